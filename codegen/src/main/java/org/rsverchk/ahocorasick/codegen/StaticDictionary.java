@@ -0,0 +1,35 @@
+package org.rsverchk.ahocorasick.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a top-level type as the owner of a dictionary fixed at build time. For a type Foo the
+ * {@link StaticDictionaryProcessor} reads the dictionary during compilation and generates the class FooTrie in the same
+ * package, FooTrie.get() returns the trie of the dictionary with no building at runtime.
+ *
+ * @author Ruslan Sverchkov
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface StaticDictionary {
+
+    /**
+     * Name of the dictionary resource relative to the package of the annotated type, like
+     * {@link Class#getResource(String)} takes it. The dictionary is a UTF-8 text file, one characters sequence per
+     * line, empty lines are skipped. A sequence is the payload of itself.
+     *
+     * @return name of the dictionary resource
+     */
+    String value();
+
+    /**
+     * Whether to match ignoring case, see {@link org.rsverchk.ahocorasick.TrieBuilder#ignoreCase()}.
+     *
+     * @return whether to match ignoring case
+     */
+    boolean ignoreCase() default false;
+
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package org.rsverchk.ahocorasick.codegen;
+
+import org.rsverchk.ahocorasick.CharConverter;
+import org.rsverchk.ahocorasick.CompiledTrie;
+import org.rsverchk.ahocorasick.MutableTrie;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Annotation processor compiling the dictionaries of types annotated with {@link StaticDictionary}. For a type Foo it
+ * builds a {@link CompiledTrie} of the dictionary, writes it with {@link CompiledTrie#write} to the class output as
+ * the resource FooTrie.bin and generates the class FooTrie reading the resource on the first call of FooTrie.get().
+ * So a fixed dictionary costs a read of flat arrays at runtime instead of building and initializing a trie.
+ * <p>
+ * The dictionary resource is looked up in the class output first (where build tools copy resources), then in the
+ * source path and the class path.
+ *
+ * @author Ruslan Sverchkov
+ */
+@SupportedAnnotationTypes("org.rsverchk.ahocorasick.codegen.StaticDictionary")
+public class StaticDictionaryProcessor extends AbstractProcessor {
+
+    private static final StandardLocation[] DICTIONARY_LOCATIONS = {
+            StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH, StandardLocation.CLASS_PATH
+    };
+    private static final String SUFFIX = "Trie";
+    private static final String EXTENSION = ".bin";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment environment) {
+        for (Element element : environment.getElementsAnnotatedWith(StaticDictionary.class)) {
+            if (!element.getKind().isClass() && !element.getKind().isInterface()
+                    || element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+                error(element, "@StaticDictionary is only applicable to top-level types");
+                continue;
+            }
+            try {
+                process((TypeElement) element, element.getAnnotation(StaticDictionary.class));
+            } catch (IOException | RuntimeException e) {
+                error(element, "cannot compile the static dictionary: " + e);
+            }
+        }
+        return true;
+    }
+
+    private void process(@Nonnull TypeElement type, @Nonnull StaticDictionary dictionary) throws IOException {
+        String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        String simpleName = type.getSimpleName() + SUFFIX;
+        MutableTrie<String> trie = new MutableTrie<>(converter(dictionary.ignoreCase()));
+        FileObject source = findDictionary(packageName, dictionary.value());
+        if (source == null) {
+            error(type, "dictionary resource " + dictionary.value() + " not found");
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.openInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    trie.addCharSequence(line, line);
+                }
+            }
+        }
+        trie.init();
+        FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, packageName,
+                simpleName + EXTENSION, type);
+        try (OutputStream stream = resource.openOutputStream();
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+            new CompiledTrie<>(trie).write(output, payload -> payload);
+        }
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source(packageName, simpleName, type.getSimpleName().toString(), dictionary));
+        }
+    }
+
+    @Nullable
+    private FileObject findDictionary(@Nonnull String packageName, @Nonnull String name) {
+        for (StandardLocation location : DICTIONARY_LOCATIONS) {
+            try {
+                FileObject resource = processingEnv.getFiler().getResource(location, packageName, name);
+                resource.openInputStream().close();
+                return resource;
+            } catch (IOException | IllegalArgumentException e) {
+                // not in this location, try the next one
+            }
+        }
+        return null;
+    }
+
+    private void error(@Nonnull Element element, @Nonnull String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    @Nonnull
+    private static CharConverter converter(boolean ignoreCase) {
+        return ignoreCase ? Character::toLowerCase : c -> c;
+    }
+
+    @Nonnull
+    private static String source(@Nonnull String packageName, @Nonnull String simpleName, @Nonnull String owner,
+                                 @Nonnull StaticDictionary dictionary) {
+        StringBuilder builder = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+        return builder
+                .append("import org.rsverchk.ahocorasick.CompiledTrie;\n")
+                .append("import org.rsverchk.ahocorasick.Trie;\n\n")
+                .append("import java.io.BufferedInputStream;\n")
+                .append("import java.io.DataInputStream;\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.io.InputStream;\n")
+                .append("import java.io.UncheckedIOException;\n\n")
+                .append("/**\n")
+                .append(" * Trie of the static dictionary ").append(dictionary.value()).append(" of {@link ")
+                .append(owner).append("}, generated by ").append(StaticDictionaryProcessor.class.getName())
+                .append(".\n */\n")
+                .append("public final class ").append(simpleName).append(" {\n\n")
+                .append("    private ").append(simpleName).append("() {\n    }\n\n")
+                .append("    /**\n")
+                .append("     * Get the trie of the dictionary, it's read on the first call.\n")
+                .append("     *\n")
+                .append("     * @return the trie of the dictionary, safe to share between threads\n")
+                .append("     */\n")
+                .append("    public static Trie<String> get() {\n")
+                .append("        return Holder.TRIE;\n")
+                .append("    }\n\n")
+                .append("    private static Trie<String> read() {\n")
+                .append("        InputStream stream = ").append(simpleName).append(".class.getResourceAsStream(\"")
+                .append(simpleName).append(EXTENSION).append("\");\n")
+                .append("        if (stream == null) {\n")
+                .append("            throw new IllegalStateException(\"resource ").append(simpleName)
+                .append(EXTENSION).append(" not found\");\n")
+                .append("        }\n")
+                .append("        try (DataInputStream input = new DataInputStream(new BufferedInputStream(stream))) {\n")
+                .append("            return CompiledTrie.read(input, ")
+                .append(dictionary.ignoreCase() ? "Character::toLowerCase" : "c -> c")
+                .append(", payload -> payload);\n")
+                .append("        } catch (IOException e) {\n")
+                .append("            throw new UncheckedIOException(e);\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    private static final class Holder {\n")
+                .append("        private static final Trie<String> TRIE = read();\n")
+                .append("    }\n\n")
+                .append("}\n")
+                .toString();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package org.rsverchk.ahocorasick.codegen;
+
+/**
+ * @author Ruslan Sverchkov
+ */
+@StaticDictionary("colors.txt")
+public interface Colors {
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package org.rsverchk.ahocorasick.codegen;
+
+/**
+ * @author Ruslan Sverchkov
+ */
+@StaticDictionary(value = "colors.txt", ignoreCase = true)
+public interface ColorsIgnoreCase {
+}
\ No newline at end of file
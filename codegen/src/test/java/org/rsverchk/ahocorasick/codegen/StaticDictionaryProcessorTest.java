@@ -0,0 +1,69 @@
+package org.rsverchk.ahocorasick.codegen;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+import org.rsverchk.ahocorasick.CharConverter;
+import org.rsverchk.ahocorasick.MutableTrie;
+import org.rsverchk.ahocorasick.Trie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Ruslan Sverchkov
+ */
+public class StaticDictionaryProcessorTest {
+
+    private static final String TEXT = "Red and green, light green and dark blue, GREEN and Yellow, cyanmagenta";
+
+    @Test
+    public void testGet_SameInstance() {
+        assertThat(ColorsTrie.get(), sameInstance(ColorsTrie.get()));
+    }
+
+    @Test
+    public void testGet_SameAsMutableTrie() throws IOException {
+        assertThat(match(ColorsTrie.get(), TEXT), equalTo(match(trie(c -> c), TEXT)));
+        assertThat(match(ColorsTrie.get(), "light green"), equalTo(Arrays.asList(
+                Triple.of(0, 11, "light green"),
+                Triple.of(6, 11, "green"))));
+    }
+
+    @Test
+    public void testGet_IgnoreCase() throws IOException {
+        assertThat(match(ColorsIgnoreCaseTrie.get(), TEXT), equalTo(match(trie(Character::toLowerCase), TEXT)));
+        assertThat(match(ColorsIgnoreCaseTrie.get(), "GREEN"), equalTo(Arrays.asList(
+                Triple.of(0, 5, "Green"))));
+    }
+
+    private static MutableTrie<String> trie(CharConverter converter) throws IOException {
+        MutableTrie<String> trie = new MutableTrie<>(converter);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Colors.class.getResourceAsStream("colors.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    trie.addCharSequence(line, line);
+                }
+            }
+        }
+        trie.init();
+        return trie;
+    }
+
+    private static List<Triple<Integer, Integer, String>> match(Trie<String> trie, String text) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        trie.match(text, (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+        return result;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.function.UnaryOperator;
+
+/**
+ * Trie node independent of the type of keys: payload, pattern id, suffix and terminal suffix, and the walk over
+ * terminal suffixes reporting matches. Children are stored by subclasses, {@link Node} for characters and
+ * {@link TokenNode} for int tokens.
+ *
+ * @param <T> payload type
+ * @param <N> node type
+ * @author Ruslan Sverchkov
+ */
+public abstract class AbstractNode<T, N extends AbstractNode<T, N>> {
+
+    private final N parent;
+    private final int level;
+
+    private N suffix;
+    private T payload;
+    private int patternId = -1;
+    private N terminalSuffix;
+
+    /**
+     * Check if the node is root
+     *
+     * @return whether the node is root
+     */
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    /**
+     * Check if the node is terminal
+     *
+     * @return whether the node is terminal
+     */
+    public boolean isTerminal() {
+        return payload != null;
+    }
+
+    /**
+     * Get node level (length of the shortest path between the node and root).
+     *
+     * @return node level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get suffix.
+     *
+     * @return suffix
+     * @throws IllegalStateException if suffix is null, it means that the method is called before the trie is
+     *                               initialized, which makes no sense
+     */
+    @Nonnull
+    public N getSuffix() {
+        if (suffix == null) {
+            throw new IllegalStateException("suffix is not set, call setSuffix() first");
+        }
+        return suffix;
+    }
+
+    /**
+     * Get terminal suffix.
+     *
+     * @return terminal suffix, can be null
+     */
+    @Nullable
+    public N getTerminalSuffix() {
+        return terminalSuffix;
+    }
+
+    /**
+     * Get payload.
+     *
+     * @return payload, can be null if the node is not terminal
+     */
+    @Nullable
+    public T getPayload() {
+        return payload;
+    }
+
+    /**
+     * Set payload.
+     *
+     * @param payload payload to set
+     * @throws NullPointerException if payload is null
+     */
+    public void setPayload(@Nonnull T payload) {
+        Validate.notNull(payload);
+        this.payload = payload;
+    }
+
+    /**
+     * Get pattern id, the index of the sequence corresponding to the node in order of addition.
+     *
+     * @return pattern id, -1 if the node is not terminal
+     */
+    public int getPatternId() {
+        return patternId;
+    }
+
+    /**
+     * Set pattern id.
+     *
+     * @param patternId pattern id to set
+     * @throws IllegalArgumentException if pattern id is negative
+     */
+    public void setPatternId(int patternId) {
+        Validate.isTrue(patternId >= 0);
+        this.patternId = patternId;
+    }
+
+    /**
+     * Set suffix, terminal suffix and compact the node.
+     */
+    public void init() {
+        setSuffix(findSuffix());
+        N terminalSuffix = findTerminalSuffix();
+        if (terminalSuffix != null) {
+            this.terminalSuffix = terminalSuffix;
+        }
+        compactChildren();
+    }
+
+    /**
+     * Replace the children map with a compact representation. No children can be created after the call.
+     */
+    protected abstract void compactChildren();
+
+    /**
+     * Get a function returning the child of a node corresponding to the same key as current node, null if there is
+     * no such child. Used to follow suffixes, so the key is looked up once.
+     *
+     * @return the function
+     * @throws IllegalStateException if current node is root
+     */
+    @Nonnull
+    protected abstract UnaryOperator<N> sameKeyChild();
+
+    /**
+     * A position corresponding to the current node has been found in an input sequence, traverse the trie starting
+     * from the current node and call the specified handler for each terminal node that will be encountered.
+     *
+     * Implementation comment:
+     * recursive implementation is good looking but this one is stack overflow free
+     *
+     * @param index   a position in an input sequence corresponding to the current node
+     * @param handler a match handler
+     * @return whether to continue matching or not
+     * @throws NullPointerException     if handler is null
+     * @throws IllegalArgumentException if index + 1 is lesser than the node level (it means that the match has been
+     *                                  found in a subsequence that is shorter than the match itself which obviously
+     *                                  cannot happen without programming errors)
+     */
+    public boolean handleMatch(int index, @Nonnull MatchHandler<T> handler) {
+        return handleMatch(index, handler, null);
+    }
+
+    /**
+     * The same as {@link AbstractNode#handleMatch(int, MatchHandler)} but also counts a hit for every terminal node
+     * encountered, before the handler is called.
+     *
+     * @param index         a position in an input sequence corresponding to the current node
+     * @param handler       a match handler
+     * @param hitStatistics hit statistics to update, can be null
+     * @return whether to continue matching or not
+     * @throws NullPointerException     if handler is null
+     * @throws IllegalArgumentException if index + 1 is lesser than the node level
+     */
+    public boolean handleMatch(int index, @Nonnull MatchHandler<T> handler, @Nullable HitStatistics<T> hitStatistics) {
+        int endOfWordExclusive = index + 1;
+        Validate.isTrue(endOfWordExclusive >= level);
+        Validate.notNull(handler);
+        AbstractNode<T, N> current = this;
+        while (current != null) {
+            if (current.isTerminal()) {
+                if (hitStatistics != null) {
+                    hitStatistics.increment(current.getPatternId());
+                }
+                if (!handler.handle(endOfWordExclusive - current.getLevel(), endOfWordExclusive,
+                        current.getPayload())) {
+                    return false;
+                }
+            }
+            current = current.getTerminalSuffix();
+        }
+        return true;
+    }
+
+    /**
+     * Find suffix node for current node. Pay attention that by the time we look for suffix of the node on level
+     * N, all suffixes of all nodes on levels from 1 to N-1 must be set. This can be ensured by breadth-first traversal
+     * of the trie.
+     *
+     * @return suffix node for current node
+     * @throws IllegalStateException if the method is called before all suffixes of all nodes on higher levels are set
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    protected N findSuffix() {
+        if (isRoot()) {
+            return (N) this;
+        }
+        if (parent.isRoot()) {
+            return parent; // for direct descendants of the root it is the suffix
+        }
+        UnaryOperator<N> sameKeyChild = sameKeyChild();
+        N parentSuffix = parent.getSuffix(); // get parent suffix
+        N suffixChild = sameKeyChild.apply(parentSuffix); // get suffix child corresponding to the key
+        while (suffixChild == null) { // if no such child
+            if (parentSuffix.isRoot()) { // and we're in the root
+                return parentSuffix; // return root
+            }
+            parentSuffix = parentSuffix.getSuffix(); // if we're not in the root, get current node's suffix
+            suffixChild = sameKeyChild.apply(parentSuffix); // get suffix child corresponding to the key
+        }
+        return suffixChild; // a suitable node is found, return it
+    }
+
+    /**
+     * Find the nearest terminal suffix for current node. Pay attention that by the time we look for a terminal
+     * suffix, all suffixes of all nodes on levels from 1 to N-1 must be set. This can be ensured by breadth-first
+     * traversal of the trie.
+     *
+     * @return the nearest terminal suffix for current node, null if there are no candidates
+     * @throws IllegalStateException if the method is called before all suffixes of all nodes on higher levels are set
+     */
+    @Nullable
+    protected N findTerminalSuffix() {
+        N current = getSuffix();
+        while (!current.isRoot()) {
+            if (current.isTerminal()) {
+                return current;
+            }
+            current = current.getSuffix();
+        }
+        return null;
+    }
+
+    /*
+    Implementation comment:
+    The methods are useful for testing purposes, see Node.
+     */
+
+    @Nullable
+    public N getParent() {
+        return parent;
+    }
+
+    protected void setSuffix(@Nullable N suffix) {
+        this.suffix = suffix;
+    }
+
+    protected void setTerminalSuffix(@Nullable N terminalSuffix) {
+        this.terminalSuffix = terminalSuffix;
+    }
+
+    /**
+     * Create an instance of AbstractNode. If parent is null and level is 0, the node is considered to be a root node.
+     * If parent is not null and level is > 0, the node is considered to be a simple node.
+     *
+     * @param parent node parent
+     * @param level  node level
+     * @throws IllegalArgumentException if:
+     *                                  * parent is null and level is not 0
+     *                                  * parent is not null and level is not > 0
+     */
+    protected AbstractNode(@Nullable N parent, int level) {
+        if (parent == null) {
+            Validate.isTrue(level == 0);
+        } else {
+            Validate.isTrue(level > 0);
+        }
+        this.parent = parent;
+        this.level = level;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package org.rsverchk.ahocorasick;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Low-level API of a built automaton for callers driving it one character at a time from their own loops, like
+ * parsers and protocol decoders, with no objects and no callbacks. States and outputs are plain ints:
+ * <pre>{@code
+ * int state = automaton.root();
+ * for (int i = 0; i < length; i++) {
+ *     state = automaton.step(state, text[i]);
+ *     if (automaton.hasOutput(state)) {
+ *         for (int o = automaton.firstOutput(state); o >= 0; o = automaton.nextOutput(o)) {
+ *             // a match of pattern automaton.getPatternId(o) is [i + 1 - automaton.getLength(o), i + 1)
+ *         }
+ *     }
+ * }
+ * }</pre>
+ * Outputs of a state are reported in the order of {@link Trie#match(CharSequence, MatchHandler)}, longest first.
+ * Hit statistics are not counted. An automaton is immutable and safe to share between threads, the state of matching
+ * is the int held by the caller.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+public interface Automaton<T> {
+
+    /**
+     * Get the initial state, nothing is matched.
+     *
+     * @return the initial state
+     */
+    int root();
+
+    /**
+     * Consume a character: follow the transition of the state by the converted character, falling back to suffixes
+     * while there is none.
+     *
+     * @param state current state
+     * @param c     next character of the input text, before conversion
+     * @return the next state, the root if no added sequence has a prefix ending with the character
+     */
+    int step(int state, char c);
+
+    /**
+     * Check if a match ends at the state.
+     *
+     * @param state state
+     * @return whether the state has outputs
+     */
+    boolean hasOutput(int state);
+
+    /**
+     * Get a cursor to the first output of the state.
+     *
+     * @param state state
+     * @return cursor to the first output, -1 if there are no outputs
+     */
+    int firstOutput(int state);
+
+    /**
+     * Advance a cursor to the next output of the same state.
+     *
+     * @param cursor cursor to an output
+     * @return cursor to the next output, -1 if there are no more outputs
+     */
+    int nextOutput(int cursor);
+
+    /**
+     * Get the pattern id of an output.
+     *
+     * @param cursor cursor to an output
+     * @return pattern id, see {@link MutableTrie#addCharSequence(CharSequence, Object)}
+     */
+    int getPatternId(int cursor);
+
+    /**
+     * Get the length of the match of an output.
+     *
+     * @param cursor cursor to an output
+     * @return length of the added sequence
+     */
+    int getLength(int cursor);
+
+    /**
+     * Get the number of patterns, pattern ids are in [0, count).
+     *
+     * @return the number of patterns
+     */
+    int getPatternCount();
+
+    /**
+     * Get the length of the longest pattern. No match can begin more than this number of characters before the end of
+     * the input consumed so far, so callers buffering the input for matches not reported yet need no more.
+     *
+     * @return the length of the longest added sequence, 0 if there are no patterns
+     */
+    int getMaxLength();
+
+    /**
+     * Get the payload of a pattern.
+     *
+     * @param patternId pattern id
+     * @return payload of the added sequence
+     * @throws IndexOutOfBoundsException if there is no such pattern
+     */
+    @Nonnull
+    T getPayload(int patternId);
+
+}
\ No newline at end of file
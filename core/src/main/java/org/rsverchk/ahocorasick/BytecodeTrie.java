@@ -0,0 +1,628 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TCharArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.commons.lang3.Validate;
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton generated as JVM bytecode at runtime. Every state is a block of code: read a character,
+ * switch on it to the blocks of the children, jump to the block of the suffix if there is no such child. The state is
+ * the program counter, so there are no tables to look up and the JIT compiler sees the whole automaton as code.
+ * Meant for small dictionaries matched very often: it pays off while the whole automaton fits into one or two chunks
+ * (see below), a few dozen short sequences. Bigger automatons spend more on calls between chunks than they save.
+ *
+ * The JIT compiler doesn't compile methods longer than 8000 bytes, so states are numbered in depth-first order and
+ * split into chunks, each one a method of about {@link BytecodeTrie#CHUNK_BUDGET} bytes. A walk along an added
+ * sequence mostly stays within a chunk. The head, the states closest to the root which most transitions and suffix
+ * links lead to, is copied into every chunk. A transition to a state of another chunk returns the state and the
+ * index to {@link BytecodeTrie#match}, which calls the other chunk. A root with too many children to take no more
+ * than half of a chunk is not copied, it makes a chunk of its own with its closest descendants. A state with more
+ * than {@link BytecodeTrie#MAX_TRANSITION_COUNT} children doesn't fit into a method at all.
+ *
+ * The generated class is defined by a class loader of its own, so it's unloaded as soon as the trie is unreachable.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class BytecodeTrie<T> implements Trie<T> {
+
+    /**
+     * Max number of states of the automaton, every state takes about a hundred bytes of code and a class can't hold much
+     * more.
+     */
+    public static final int MAX_STATE_COUNT = 16384;
+
+    /**
+     * Estimated size of code of a chunk in bytes, see class comment.
+     */
+    public static final int CHUNK_BUDGET = 7000;
+
+    /**
+     * Max number of children of a state: the code of a state and of the head has to fit into a method, which takes
+     * up to 64 KB.
+     */
+    public static final int MAX_TRANSITION_COUNT = 1500;
+
+    /**
+     * Returned by a chunk when the input is over.
+     */
+    private static final long END = -1;
+
+    /**
+     * Returned by a chunk when the handler stops matching.
+     */
+    private static final long STOPPED = -2;
+
+    private static final String CLASS_NAME = "org/rsverchk/ahocorasick/generated/GeneratedProgram";
+    private static final String CHUNK_DESCRIPTOR = "(IILjava/lang/CharSequence;L" + Type.getInternalName(
+            CharConverter.class) + ";L" + Type.getInternalName(Output.class) + ";)J";
+
+    // locals of a chunk method
+    private static final int STATE = 0;
+    private static final int INDEX = 1;
+    private static final int SEQUENCE = 2;
+    private static final int CONVERTER = 3;
+    private static final int OUTPUT = 4;
+    private static final int LENGTH = 5;
+    private static final int CHARACTER = 6;
+
+    private final CharConverter converter;
+    private final HitStatistics<T> hitStatistics;
+    private final List<T> payloads;
+    // masks of groups by pattern id
+    private final long[] patternGroups;
+    private final Program program;
+    // chunk by state
+    private final int[] chunks;
+    // keys of the children of a state in ascending order and their states, for lookups
+    private final char[][] keys;
+    private final int[][] targets;
+    // (pattern id, length) pairs of state i are in [firstOutputs[i], firstOutputs[i + 1])
+    private final int[] firstOutputs;
+    private final int[] outputs;
+
+    /**
+     * Construct an instance of BytecodeTrie, generate and load the code of the automaton of the specified trie.
+     *
+     * @param trie an initialized trie
+     * @throws NullPointerException     if trie is null
+     * @throws IllegalStateException    if the trie is not initialized
+     * @throws IllegalArgumentException if the trie has more than {@link BytecodeTrie#MAX_STATE_COUNT} nodes, a node
+     *                                  with more than {@link BytecodeTrie#MAX_TRANSITION_COUNT} children or the code
+     *                                  doesn't fit into a class anyway
+     */
+    public BytecodeTrie(@Nonnull MutableTrie<T> trie) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        converter = trie.getConverter();
+        hitStatistics = trie.getHitStatistics();
+        payloads = trie.getPayloads();
+        patternGroups = trie.getGroups();
+
+        // number states in depth-first order, children in ascending order of keys
+        List<Node<T>> nodes = new ArrayList<>();
+        TObjectIntHashMap<Node<T>> ids = new TObjectIntHashMap<>();
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        stack.push(trie.getRoot());
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+            ids.put(node, nodes.size());
+            nodes.add(node);
+            Validate.isTrue(nodes.size() <= MAX_STATE_COUNT, "too many states for bytecode, max %d",
+                    MAX_STATE_COUNT);
+            List<Node<T>> children = new ArrayList<>();
+            node.forEachChild((char key, Node<T> child) -> children.add(child));
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        int stateCount = nodes.size();
+        keys = new char[stateCount][];
+        targets = new int[stateCount][];
+        int[] suffixes = new int[stateCount];
+        firstOutputs = new int[stateCount + 1];
+        TIntArrayList outputs = new TIntArrayList();
+        for (int state = 0; state < stateCount; state++) {
+            Node<T> node = nodes.get(state);
+            TCharArrayList stateKeys = new TCharArrayList();
+            TIntArrayList stateTargets = new TIntArrayList();
+            node.forEachChild((char key, Node<T> child) -> {
+                stateKeys.add(key);
+                stateTargets.add(ids.get(child));
+                return true;
+            });
+            Validate.isTrue(stateKeys.size() <= MAX_TRANSITION_COUNT,
+                    "too many transitions of a state for bytecode, max %d", MAX_TRANSITION_COUNT);
+            keys[state] = stateKeys.toArray();
+            targets[state] = stateTargets.toArray();
+            suffixes[state] = node.isRoot() ? 0 : ids.get(node.getSuffix());
+            // the same order as Node#handleMatch reports matches in
+            firstOutputs[state] = outputs.size();
+            for (Node<T> current = node; current != null; current = current.getTerminalSuffix()) {
+                if (current.isTerminal()) {
+                    outputs.add(current.getPatternId());
+                    outputs.add(current.getLevel());
+                }
+            }
+        }
+        firstOutputs[stateCount] = outputs.size();
+        this.outputs = outputs.toArray();
+
+        // the head, states closest to the root, is copied into every chunk, the rest is split into chunks of
+        // contiguous ids; the root comes first, so it's in the first chunk if it's not in the head
+        boolean[] head = new boolean[stateCount];
+        int headSize = findHead(nodes, keys, head);
+        TIntArrayList firstStates = new TIntArrayList();
+        chunks = new int[stateCount];
+        int size = CHUNK_BUDGET;
+        for (int state = 0; state < stateCount; state++) {
+            if (head[state]) {
+                continue;
+            }
+            int estimate = estimate(keys[state].length);
+            if (size + estimate > CHUNK_BUDGET) {
+                firstStates.add(state);
+                size = headSize;
+            }
+            size += estimate;
+            chunks[state] = firstStates.size() - 1;
+        }
+        if (firstStates.isEmpty()) {
+            firstStates.add(stateCount);
+        }
+        firstStates.add(stateCount);
+        program = load(generate(keys, targets, suffixes, head, firstStates.toArray()));
+    }
+
+    /**
+     * Match the specified characters sequence against the trie. Call the specified handler when a match is found.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        run(sequence, MutableTrie.ALL_GROUPS, handler);
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#match(CharSequence, long, MatchHandler)}. The generated code is the same whatever the groups,
+     * a match of a disabled group is skipped when the matches of a state are reported.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        if (groups != 0) {
+            run(sequence, groups, handler);
+        }
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * The generated code follows suffixes, so the children of the states are looked up in arrays kept for this. The
+     * matches of a terminal state begin with its own pattern, the patterns of its suffixes are shorter.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     */
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        int length = sequence.length();
+        int state = 0;
+        for (int index = offset; index < length; index++) {
+            int child = Arrays.binarySearch(keys[state], converter.convert(sequence.charAt(index)));
+            if (child < 0) {
+                return;
+            }
+            state = targets[state][child];
+            int first = firstOutputs[state];
+            if (first < firstOutputs[state + 1] && outputs[first + 1] == index + 1 - offset
+                    && !handler.handle(offset, index + 1, payloads.get(outputs[first]))) {
+                return;
+            }
+        }
+    }
+
+    private void run(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Output output = (state, endIndex) -> {
+            for (int i = firstOutputs[state]; i < firstOutputs[state + 1]; i += 2) {
+                int patternId = outputs[i];
+                if ((patternGroups[patternId] & groups) == 0) {
+                    continue;
+                }
+                if (hitStatistics != null) {
+                    hitStatistics.increment(patternId);
+                }
+                if (!handler.handle(endIndex - outputs[i + 1], endIndex, payloads.get(patternId))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+        long result = program.run(0, 0, 0, sequence, converter, output);
+        while (result >= 0) {
+            int state = (int) (result >>> 32);
+            result = program.run(chunks[state], state, (int) result, sequence, converter, output);
+        }
+    }
+
+    /**
+     * Get the number of states of the automaton.
+     *
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Get the number of methods the automaton is split into, see class comment.
+     *
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+        return program.getChunkCount();
+    }
+
+    /**
+     * The generated code. Public since it's implemented by a class of another class loader, not intended to be
+     * implemented by clients.
+     */
+    public interface Program {
+
+        /**
+         * Run the automaton from the specified state and index until the input is over, the handler stops matching
+         * or a transition leads to a state of another chunk.
+         *
+         * @param chunk     the chunk of the state
+         * @param state     the state to start from
+         * @param index     the index of the next character to read
+         * @param sequence  a characters sequence to look for matches in
+         * @param converter a characters converter
+         * @param output    matches consumer
+         * @return -1 if the input is over, -2 if the handler stopped matching, the state to continue from in high 32
+         * bits and the index in low 32 bits otherwise
+         */
+        long run(int chunk, int state, int index, @Nonnull CharSequence sequence, @Nonnull CharConverter converter,
+                 @Nonnull Output output);
+
+        /**
+         * Get the number of chunks.
+         *
+         * @return the number of chunks
+         */
+        int getChunkCount();
+
+    }
+
+    /**
+     * Consumer of the matches of a state. Public since it's called from a class of another class loader, not intended
+     * to be implemented by clients.
+     */
+    public interface Output {
+
+        /**
+         * Report all the matches ending at a state.
+         *
+         * @param state    a state with matches
+         * @param endIndex the ending index of the matches, exclusive
+         * @return whether to continue matching or not
+         */
+        boolean emit(int state, int endIndex);
+
+    }
+
+    /**
+     * Find the head: states up to the deepest level such that all of them take no more than half of a chunk. The head
+     * is empty if the root alone takes more.
+     *
+     * @return estimated size of code of the head
+     */
+    private static <T> int findHead(@Nonnull List<Node<T>> nodes, @Nonnull char[][] keys, @Nonnull boolean[] head) {
+        int maxLevel = 0;
+        for (Node<T> node : nodes) {
+            maxLevel = Math.max(maxLevel, node.getLevel());
+        }
+        int[] sizes = new int[maxLevel + 1];
+        for (int state = 0; state < nodes.size(); state++) {
+            sizes[nodes.get(state).getLevel()] += estimate(keys[state].length);
+        }
+        if (sizes[0] > CHUNK_BUDGET / 2) {
+            return 0;
+        }
+        int level = 0;
+        int size = sizes[0];
+        while (level < maxLevel && size + sizes[level + 1] <= CHUNK_BUDGET / 2) {
+            level++;
+            size += sizes[level];
+        }
+        for (int state = 0; state < nodes.size(); state++) {
+            head[state] = nodes.get(state).getLevel() <= level;
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the size of code of a state with the specified number of children, see
+     * {@link BytecodeTrie#generateState}.
+     */
+    private static int estimate(int childCount) {
+        return 52 + 40 * childCount;
+    }
+
+    /**
+     * Generate the class implementing {@link Program}.
+     *
+     * @return bytes of the class file
+     */
+    @Nonnull
+    private byte[] generate(@Nonnull char[][] keys, @Nonnull int[][] targets, @Nonnull int[] suffixes,
+                            @Nonnull boolean[] head, @Nonnull int[] firstStates) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null,
+                "java/lang/Object", new String[]{Type.getInternalName(Program.class)});
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        int chunkCount = firstStates.length - 1;
+        MethodVisitor count = writer.visitMethod(Opcodes.ACC_PUBLIC, "getChunkCount", "()I", null, null);
+        count.visitCode();
+        count.visitLdcInsn(chunkCount);
+        count.visitInsn(Opcodes.IRETURN);
+        count.visitMaxs(0, 0);
+        count.visitEnd();
+
+        // run(chunk, state, index, ...): call the chunk, locals are shifted by this and chunk
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", "(I" + CHUNK_DESCRIPTOR.substring(1), null,
+                null);
+        run.visitCode();
+        Label[] calls = new Label[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            calls[i] = new Label();
+        }
+        Label first = calls[0];
+        run.visitVarInsn(Opcodes.ILOAD, 1);
+        run.visitTableSwitchInsn(0, chunkCount - 1, first, calls);
+        for (int i = 0; i < chunkCount; i++) {
+            run.visitLabel(calls[i]);
+            for (int local = STATE; local <= OUTPUT; local++) {
+                run.visitVarInsn(local == STATE || local == INDEX ? Opcodes.ILOAD : Opcodes.ALOAD, local + 2);
+            }
+            run.visitMethodInsn(Opcodes.INVOKESTATIC, CLASS_NAME, "chunk" + i, CHUNK_DESCRIPTOR, false);
+            run.visitInsn(Opcodes.LRETURN);
+        }
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+
+        for (int i = 0; i < chunkCount; i++) {
+            generateChunk(writer, i, firstStates[i], firstStates[i + 1], keys, targets, suffixes, head);
+        }
+        writer.visitEnd();
+        try {
+            return writer.toByteArray();
+        } catch (MethodTooLargeException | ClassTooLargeException e) {
+            // the estimates are rough
+            throw new IllegalArgumentException("the automaton is too big for bytecode", e);
+        }
+    }
+
+    /**
+     * Generate the method of a chunk: the head and the rest of states [from, to).
+     */
+    private void generateChunk(@Nonnull ClassWriter writer, int chunk, int from, int to, @Nonnull char[][] keys,
+                               @Nonnull int[][] targets, @Nonnull int[] suffixes, @Nonnull boolean[] head) {
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "chunk" + chunk,
+                CHUNK_DESCRIPTOR, null, null);
+        method.visitCode();
+        method.visitVarInsn(Opcodes.ALOAD, SEQUENCE);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/CharSequence", "length", "()I", true);
+        method.visitVarInsn(Opcodes.ISTORE, LENGTH);
+
+        // blocks of the states of the chunk by their indexes in the chunk, -1 for other states; the root is 0
+        TIntArrayList states = new TIntArrayList();
+        int[] indexes = new int[keys.length];
+        for (int state = 0; state < keys.length; state++) {
+            indexes[state] = -1;
+            if (head[state] || state >= from && state < to) {
+                indexes[state] = states.size();
+                states.add(state);
+            }
+        }
+        Label[] reads = new Label[states.size()];
+        Label[] switches = new Label[states.size()];
+        for (int i = 0; i < reads.length; i++) {
+            reads[i] = new Label();
+            switches[i] = new Label();
+        }
+        if (from < to) {
+            Label[] entries = new Label[to - from];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = reads[indexes[from + i]];
+            }
+            method.visitVarInsn(Opcodes.ILOAD, STATE);
+            method.visitTableSwitchInsn(from, to - 1, reads[0], entries);
+        }
+        for (int i = 0; i < states.size(); i++) {
+            int state = states.get(i);
+            generateState(method, state, keys[state], targets[state], suffixes[state], indexes, reads, switches);
+        }
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /**
+     * Generate the blocks of a state:
+     * read: return END if the input is over, read and convert the character at index
+     * switch: switch on the character to a transition block, to the fail block by default
+     * transition: increment index, emit the matches of the target, jump to the read block of the target or return
+     * the target and index if it belongs to another chunk
+     * fail: jump to the switch block of the suffix or return the suffix and index if it belongs to another chunk, for
+     * the root increment index and jump to the read block of the root
+     */
+    private void generateState(@Nonnull MethodVisitor method, int state, @Nonnull char[] keys, @Nonnull int[] targets,
+                               int suffix, @Nonnull int[] indexes, @Nonnull Label[] reads,
+                               @Nonnull Label[] switches) {
+        method.visitLabel(reads[indexes[state]]);
+        method.visitVarInsn(Opcodes.ILOAD, INDEX);
+        method.visitVarInsn(Opcodes.ILOAD, LENGTH);
+        Label read = new Label();
+        method.visitJumpInsn(Opcodes.IF_ICMPLT, read);
+        method.visitLdcInsn(END);
+        method.visitInsn(Opcodes.LRETURN);
+        method.visitLabel(read);
+        method.visitVarInsn(Opcodes.ALOAD, CONVERTER);
+        method.visitVarInsn(Opcodes.ALOAD, SEQUENCE);
+        method.visitVarInsn(Opcodes.ILOAD, INDEX);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/CharSequence", "charAt", "(I)C", true);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(CharConverter.class), "convert", "(C)C",
+                true);
+        method.visitVarInsn(Opcodes.ISTORE, CHARACTER);
+
+        method.visitLabel(switches[indexes[state]]);
+        Label fail = new Label();
+        Label[] transitions = new Label[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            transitions[i] = new Label();
+        }
+        if (keys.length > 0) {
+            method.visitVarInsn(Opcodes.ILOAD, CHARACTER);
+            int range = keys[keys.length - 1] - keys[0] + 1;
+            if (range <= 3 * keys.length) {
+                Label[] table = new Label[range];
+                for (int i = 0; i < range; i++) {
+                    table[i] = fail;
+                }
+                for (int i = 0; i < keys.length; i++) {
+                    table[keys[i] - keys[0]] = transitions[i];
+                }
+                method.visitTableSwitchInsn(keys[0], keys[keys.length - 1], fail, table);
+            } else {
+                int[] values = new int[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    values[i] = keys[i];
+                }
+                method.visitLookupSwitchInsn(fail, values, transitions);
+            }
+        } else {
+            method.visitJumpInsn(Opcodes.GOTO, fail);
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            int target = targets[i];
+            method.visitLabel(transitions[i]);
+            method.visitIincInsn(INDEX, 1);
+            if (firstOutputs[target] < firstOutputs[target + 1]) {
+                method.visitVarInsn(Opcodes.ALOAD, OUTPUT);
+                method.visitLdcInsn(target);
+                method.visitVarInsn(Opcodes.ILOAD, INDEX);
+                method.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(Output.class), "emit", "(II)Z",
+                        true);
+                Label proceed = new Label();
+                method.visitJumpInsn(Opcodes.IFNE, proceed);
+                method.visitLdcInsn(STOPPED);
+                method.visitInsn(Opcodes.LRETURN);
+                method.visitLabel(proceed);
+            }
+            if (indexes[target] >= 0) {
+                method.visitJumpInsn(Opcodes.GOTO, reads[indexes[target]]);
+            } else {
+                generateReturn(method, target);
+            }
+        }
+
+        method.visitLabel(fail);
+        if (state == 0) {
+            method.visitIincInsn(INDEX, 1);
+            method.visitJumpInsn(Opcodes.GOTO, reads[indexes[state]]);
+        } else if (indexes[suffix] >= 0) {
+            method.visitJumpInsn(Opcodes.GOTO, switches[indexes[suffix]]);
+        } else {
+            generateReturn(method, suffix);
+        }
+    }
+
+    /**
+     * Generate returning the specified state to continue from and the current index.
+     */
+    private static void generateReturn(@Nonnull MethodVisitor method, int state) {
+        method.visitLdcInsn((long) state << 32);
+        method.visitVarInsn(Opcodes.ILOAD, INDEX);
+        method.visitInsn(Opcodes.I2L);
+        method.visitInsn(Opcodes.LOR);
+        method.visitInsn(Opcodes.LRETURN);
+    }
+
+    /**
+     * Define the generated class by a class loader of its own and instantiate it.
+     */
+    @Nonnull
+    private static Program load(@Nonnull byte[] bytes) {
+        ProgramClassLoader loader = new ProgramClassLoader(BytecodeTrie.class.getClassLoader());
+        try {
+            return (Program) loader.define(bytes).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot load generated code", e);
+        }
+    }
+
+    /**
+     * Class loader of a single generated class.
+     */
+    private static class ProgramClassLoader extends ClassLoader {
+
+        private ProgramClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Nonnull
+        private Class<?> define(@Nonnull byte[] bytes) {
+            return defineClass(CLASS_NAME.replace('/', '.'), bytes, 0, bytes.length);
+        }
+
+    }
+
+}
\ No newline at end of file
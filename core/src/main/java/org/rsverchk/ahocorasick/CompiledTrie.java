@@ -0,0 +1,773 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TCharArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Aho-Corasick automaton compiled from a {@link MutableTrie} into flat arrays, with runs of nodes having a single
+ * child collapsed into one state. A state holds a label, a run of characters stored contiguously in one array, and
+ * branches only at the end of the label. Long added sequences such as URLs, paths or signatures mostly consist of such
+ * runs, so they cost a few array elements per character instead of a node object with a map of children.
+ *
+ * Every character of a label is a position of the automaton with its own suffix link, so a mismatch in the middle of
+ * a label falls back exactly like {@link MutableTrie} does. Inside a label the next character of the input text is
+ * compared with the next character of the label directly.
+ *
+ * All the matches ending at a position, the added sequence ending there and the ones ending at its suffixes, are
+ * precomputed into a slice of one int array: (pattern id, length) pairs followed by an end marker. So reporting them
+ * is a scan of adjacent memory rather than a walk over terminal suffixes. A position which is not terminal shares the
+ * slice of its nearest terminal suffix. A slice copies at most {@link CompiledTrie#MAX_INLINE_OUTPUTS} pairs of the
+ * suffix's slice and then jumps to the rest of it, which keeps the array linear in the number of positions even for
+ * dictionaries like "a", "aa", "aaa"...
+ *
+ * States, their labels and their transitions are laid out in breadth-first order, so the states close to the root,
+ * which are visited most, are close to each other in memory. For large dictionaries the order can be improved by
+ * matching a sample of representative texts at build time and laying out the states visited most first, see
+ * {@link CompiledTrie#CompiledTrie(MutableTrie, Iterable)}.
+ *
+ * The arrays can be written to a stream and read back without building the trie again, see
+ * {@link CompiledTrie#write(DataOutput, Function)}. This is how dictionaries fixed at build time are shipped.
+ *
+ * The arrays are also exposed as an {@link Automaton}: a state of it is a position + 1, so the root is 0.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class CompiledTrie<T> implements Trie<T>, Automaton<T> {
+
+    /**
+     * Position of the root, it's not stored in the arrays.
+     */
+    private static final int ROOT = -1;
+
+    /**
+     * Max number of matches copied from the slice of a terminal suffix, see class comment.
+     */
+    public static final int MAX_INLINE_OUTPUTS = 8;
+
+    /**
+     * Marks the end of a slice. A jump to the rest of a slice at index i is stored as JUMP - i.
+     */
+    private static final int END = -1;
+    private static final int JUMP = -2;
+
+    /**
+     * Magic number and version of the format written by {@link CompiledTrie#write(DataOutput, Function)}.
+     */
+    private static final int FORMAT = 0x41435432;
+
+    private final CharConverter converter;
+    private final long[] startCharacters;
+    private final HitStatistics<T> hitStatistics;
+    private final List<T> payloads;
+    // masks of groups by pattern id
+    private final long[] patternGroups;
+
+    // positions, a position is the end of a prefix of an added sequence; positions of a label are contiguous
+    private final char[] labels;
+    private final int[] suffixes;
+    // state ending at the position, -1 if the position is inside a label
+    private final int[] branches;
+    // beginning of the slice of matches, -1 if there are none
+    private final int[] outputs;
+    // slices of (pattern id, length) pairs
+    private final int[] slices;
+    private final int maxLength;
+
+    // transitions of states, the root is state 0; either sorted by label within a state or, for states with many
+    // children, a table of targets by label - min key with -1 for absent labels
+    private final int[] firstTransitions;
+    private final char[] minKeys;
+    private final boolean[] dense;
+    private final char[] transitionLabels;
+    private final int[] transitionTargets;
+
+    /**
+     * Construct an instance of CompiledTrie from the specified trie, states are laid out in breadth-first order.
+     *
+     * @param trie an initialized trie
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    public CompiledTrie(@Nonnull MutableTrie<T> trie) {
+        this(trie, null);
+    }
+
+    /**
+     * Construct an instance of CompiledTrie from the specified trie. States are laid out in order of the number of
+     * times they are visited while matching the specified sample texts, so that the states visited most are close to
+     * each other in memory.
+     *
+     * @param trie   an initialized trie
+     * @param sample texts representative of the input, null to lay out states in breadth-first order
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    public CompiledTrie(@Nonnull MutableTrie<T> trie, @Nullable Iterable<? extends CharSequence> sample) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        converter = trie.getConverter();
+        startCharacters = trie.getStartCharacters();
+        hitStatistics = trie.getHitStatistics();
+        payloads = trie.getPayloads();
+        patternGroups = trie.getGroups();
+
+        // find states in breadth-first order: a label starts at a child of a branching node and goes on while there
+        // is a single child, the root is state 0 with an empty label
+        List<Node<T>> firsts = new ArrayList<>();
+        List<Node<T>> lasts = new ArrayList<>();
+        TCharArrayList firstKeys = new TCharArrayList();
+        firsts.add(trie.getRoot());
+        lasts.add(trie.getRoot());
+        firstKeys.add((char) 0);
+        for (int state = 0; state < lasts.size(); state++) {
+            lasts.get(state).forEachChild((char key, Node<T> child) -> {
+                firsts.add(child);
+                firstKeys.add(key);
+                Node<T> last = child;
+                while (last.getChildCount() == 1) {
+                    last = onlyChild(last, null);
+                }
+                lasts.add(last);
+                return true;
+            });
+        }
+        int[] order = sample == null ? breadthFirstOrder(firsts.size()) : profiledOrder(trie, sample, firsts, lasts);
+
+        // lay out labels, positions of a label are contiguous
+        TObjectIntHashMap<Node<T>> positions = new TObjectIntHashMap<>();
+        TCharArrayList labels = new TCharArrayList();
+        TIntArrayList branches = new TIntArrayList();
+        for (int state = 1; state < order.length; state++) {
+            Node<T> current = firsts.get(order[state]);
+            char[] label = {firstKeys.get(order[state])};
+            while (true) {
+                positions.put(current, labels.size());
+                labels.add(label[0]);
+                if (current == lasts.get(order[state])) {
+                    break;
+                }
+                branches.add(-1);
+                current = onlyChild(current, label);
+            }
+            branches.add(state);
+        }
+
+        // lay out transitions in the same order
+        TIntArrayList firstTransitions = new TIntArrayList();
+        TCharArrayList transitionLabels = new TCharArrayList();
+        TIntArrayList transitionTargets = new TIntArrayList();
+        TCharArrayList minKeys = new TCharArrayList();
+        TIntArrayList denseStates = new TIntArrayList();
+        for (int state = 0; state < order.length; state++) {
+            Node<T> node = lasts.get(order[state]);
+            TCharArrayList keys = new TCharArrayList();
+            TIntArrayList targets = new TIntArrayList();
+            // children of an initialized node are iterated in ascending order of keys
+            node.forEachChild((char key, Node<T> child) -> {
+                keys.add(key);
+                targets.add(positions.get(child));
+                return true;
+            });
+            firstTransitions.add(transitionTargets.size());
+            minKeys.add(keys.isEmpty() ? 0 : keys.get(0));
+            int size = keys.size();
+            int range = size == 0 ? 0 : keys.get(size - 1) - keys.get(0) + 1;
+            // the same choice as Node makes
+            if (Node.useDenseTable(node.isRoot(), size, range)) {
+                denseStates.add(state);
+                int first = transitionTargets.size();
+                transitionTargets.fill(first, first + range, -1);
+                transitionLabels.fill(first, first + range, (char) 0);
+                for (int i = 0; i < size; i++) {
+                    transitionTargets.set(first + keys.get(i) - keys.get(0), targets.get(i));
+                }
+            } else {
+                transitionLabels.addAll(keys);
+                transitionTargets.addAll(targets);
+            }
+        }
+        firstTransitions.add(transitionTargets.size());
+
+        this.minKeys = minKeys.toArray();
+        this.dense = new boolean[this.minKeys.length];
+        for (int i = 0; i < denseStates.size(); i++) {
+            dense[denseStates.get(i)] = true;
+        }
+        this.labels = labels.toArray();
+        this.branches = branches.toArray();
+        this.firstTransitions = firstTransitions.toArray();
+        this.transitionLabels = transitionLabels.toArray();
+        this.transitionTargets = transitionTargets.toArray();
+        suffixes = new int[this.labels.length];
+        outputs = new int[this.labels.length];
+        TIntArrayList slices = new TIntArrayList();
+        // suffixes are shorter, so in breadth-first order they are resolved first
+        trie.breadthFirstTraversal((c, node) -> {
+            int position = positions.get(node);
+            Node<T> suffix = node.getSuffix();
+            suffixes[position] = suffix == null || suffix.isRoot() ? ROOT : positions.get(suffix);
+            int tail = suffixes[position] == ROOT ? -1 : outputs[suffixes[position]];
+            if (node.isTerminal()) {
+                outputs[position] = slices.size();
+                slices.add(node.getPatternId());
+                slices.add(node.getLevel());
+                appendSlice(slices, tail);
+            } else {
+                outputs[position] = tail;
+            }
+        });
+        this.slices = slices.toArray();
+        maxLength = maxLength(this.slices);
+    }
+
+    private CompiledTrie(@Nonnull CharConverter converter, @Nonnull long[] startCharacters, @Nonnull List<T> payloads,
+                         @Nonnull long[] patternGroups, @Nonnull DataInput input) throws IOException {
+        this.converter = converter;
+        this.startCharacters = startCharacters;
+        this.hitStatistics = null;
+        this.payloads = payloads;
+        this.patternGroups = patternGroups;
+        labels = readChars(input);
+        suffixes = readInts(input);
+        branches = readInts(input);
+        outputs = readInts(input);
+        slices = readInts(input);
+        firstTransitions = readInts(input);
+        minKeys = readChars(input);
+        dense = new boolean[minKeys.length];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = input.readBoolean();
+        }
+        transitionLabels = readChars(input);
+        transitionTargets = readInts(input);
+        maxLength = maxLength(slices);
+    }
+
+    /**
+     * Read a trie written by {@link CompiledTrie#write(DataOutput, Function)}. Nothing is built, the arrays are read
+     * as they are.
+     *
+     * @param input         input to read from
+     * @param converter     the characters converter the trie was built with, it's not written
+     * @param payloadReader a function restoring a payload from its string representation
+     * @param <T>           payload type
+     * @return an instance of CompiledTrie
+     * @throws NullPointerException if any of the arguments is null
+     * @throws IOException          if the input cannot be read or has wrong format
+     */
+    @Nonnull
+    public static <T> CompiledTrie<T> read(@Nonnull DataInput input, @Nonnull CharConverter converter,
+                                           @Nonnull Function<String, ? extends T> payloadReader) throws IOException {
+        Validate.notNull(input);
+        Validate.notNull(converter);
+        Validate.notNull(payloadReader);
+        if (input.readInt() != FORMAT) {
+            throw new IOException("not a compiled trie or unsupported format version");
+        }
+        long[] startCharacters = new long[input.readInt()];
+        for (int i = 0; i < startCharacters.length; i++) {
+            startCharacters[i] = input.readLong();
+        }
+        int payloadCount = input.readInt();
+        List<T> payloads = new ArrayList<>(payloadCount);
+        for (int i = 0; i < payloadCount; i++) {
+            payloads.add(payloadReader.apply(input.readUTF()));
+        }
+        long[] patternGroups = new long[payloadCount];
+        for (int i = 0; i < payloadCount; i++) {
+            patternGroups[i] = input.readLong();
+        }
+        return new CompiledTrie<>(converter, startCharacters, payloads, patternGroups, input);
+    }
+
+    /**
+     * Write the trie so that it can be read by {@link CompiledTrie#read(DataInput, CharConverter, Function)} without
+     * building it again. The characters converter and hit statistics are not written.
+     *
+     * @param output        output to write to
+     * @param payloadWriter a function converting a payload to a string of no more than 65535 bytes in modified UTF-8
+     * @throws NullPointerException if any of the arguments is null
+     * @throws IOException          if the output cannot be written
+     */
+    public void write(@Nonnull DataOutput output, @Nonnull Function<? super T, String> payloadWriter)
+            throws IOException {
+        Validate.notNull(output);
+        Validate.notNull(payloadWriter);
+        output.writeInt(FORMAT);
+        output.writeInt(startCharacters.length);
+        for (long word : startCharacters) {
+            output.writeLong(word);
+        }
+        output.writeInt(payloads.size());
+        for (T payload : payloads) {
+            output.writeUTF(payloadWriter.apply(payload));
+        }
+        for (long groups : patternGroups) {
+            output.writeLong(groups);
+        }
+        writeChars(output, labels);
+        writeInts(output, suffixes);
+        writeInts(output, branches);
+        writeInts(output, outputs);
+        writeInts(output, slices);
+        writeInts(output, firstTransitions);
+        writeChars(output, minKeys);
+        for (boolean value : dense) {
+            output.writeBoolean(value);
+        }
+        writeChars(output, transitionLabels);
+        writeInts(output, transitionTargets);
+    }
+
+    /**
+     * Match the specified characters sequence against the trie. Call the specified handler when a match is found.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        scan(sequence, MutableTrie.ALL_GROUPS, handler);
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#match(CharSequence, long, MatchHandler)}. Slices are shared by many positions, so they hold
+     * no groups: a match of a disabled group is skipped while its slice is scanned.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        if (groups != 0) {
+            scan(sequence, groups, handler);
+        }
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * Transitions and labels are followed without suffixes. The slice of a terminal position begins with its own
+     * pattern, the patterns of its suffixes are shorter, so a position is terminal if the first length of its slice is
+     * the length walked.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     */
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        int length = sequence.length();
+        int position = ROOT;
+        for (int index = offset; index < length; index++) {
+            char converted = converter.convert(sequence.charAt(index));
+            int next;
+            if (position == ROOT) {
+                next = findTransition(0, converted);
+            } else if (branches[position] < 0) {
+                next = labels[position + 1] == converted ? position + 1 : -1;
+            } else {
+                next = findTransition(branches[position], converted);
+            }
+            if (next < 0) {
+                return;
+            }
+            position = next;
+            int output = outputs[position];
+            if (output >= 0 && slices[output + 1] == index + 1 - offset
+                    && !handler.handle(offset, index + 1, payloads.get(slices[output]))) {
+                return;
+            }
+        }
+    }
+
+    private void scan(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        int length = sequence.length();
+        int position = ROOT;
+        int index = 0;
+        while (index < length) {
+            int next;
+            if (position == ROOT) {
+                // nothing is matched so far, skip characters that cannot start a match
+                while (index < length && !MutableTrie.isSet(startCharacters, sequence.charAt(index))) {
+                    index++;
+                }
+                if (index >= length) {
+                    return;
+                }
+                next = findTransition(0, converter.convert(sequence.charAt(index)));
+                if (next < 0) {
+                    index++;
+                    continue;
+                }
+            } else {
+                char converted = converter.convert(sequence.charAt(index));
+                int state = branches[position];
+                if (state < 0) {
+                    // inside a label, compare with the next character of the label
+                    next = labels[position + 1] == converted ? position + 1 : -1;
+                } else {
+                    next = findTransition(state, converted);
+                }
+                if (next < 0) {
+                    position = suffixes[position];
+                    continue;
+                }
+            }
+            position = next;
+            if (outputs[position] >= 0 && !handleMatch(position, index + 1, groups, handler)) {
+                return;
+            }
+            index++;
+        }
+    }
+
+    @Override
+    public int root() {
+        return ROOT + 1;
+    }
+
+    @Override
+    public int step(int state, char c) {
+        char converted = converter.convert(c);
+        int position = state - 1;
+        while (position != ROOT) {
+            int branch = branches[position];
+            int next;
+            if (branch < 0) {
+                next = labels[position + 1] == converted ? position + 1 : -1;
+            } else {
+                next = findTransition(branch, converted);
+            }
+            if (next >= 0) {
+                return next + 1;
+            }
+            position = suffixes[position];
+        }
+        return findTransition(0, converted) + 1;
+    }
+
+    @Override
+    public boolean hasOutput(int state) {
+        return state > 0 && outputs[state - 1] >= 0;
+    }
+
+    @Override
+    public int firstOutput(int state) {
+        return state > 0 && outputs[state - 1] >= 0 ? resolveOutput(outputs[state - 1]) : -1;
+    }
+
+    @Override
+    public int nextOutput(int cursor) {
+        return resolveOutput(cursor + 2);
+    }
+
+    @Override
+    public int getPatternId(int cursor) {
+        return slices[cursor];
+    }
+
+    @Override
+    public int getLength(int cursor) {
+        return slices[cursor + 1];
+    }
+
+    @Override
+    public int getPatternCount() {
+        return payloads.size();
+    }
+
+    @Override
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    @Nonnull
+    @Override
+    public T getPayload(int patternId) {
+        return payloads.get(patternId);
+    }
+
+    /**
+     * Get the number of states, a state is a run of nodes of the trie collapsed into one label.
+     *
+     * @return the number of states including the root
+     */
+    public int getStateCount() {
+        return firstTransitions.length - 1;
+    }
+
+    /**
+     * Get the number of positions, one per node of the trie except for the root.
+     *
+     * @return the number of positions
+     */
+    public int getPositionCount() {
+        return labels.length;
+    }
+
+    /**
+     * Get labels of all the states in order of their layout. Mostly for testing purposes.
+     *
+     * @return labels of all the states concatenated
+     */
+    @Nonnull
+    protected String getLabels() {
+        return new String(labels);
+    }
+
+    /**
+     * Get the length of the array holding slices of matches, see class comment. Mostly for testing purposes.
+     *
+     * @return the length of the array in ints
+     */
+    protected int getSlicesLength() {
+        return slices.length;
+    }
+
+    private boolean handleMatch(int position, int endIndex, long groups, @Nonnull MatchHandler<T> handler) {
+        int index = outputs[position];
+        while (true) {
+            int patternId = slices[index];
+            if (patternId < 0) {
+                if (patternId == END) {
+                    return true;
+                }
+                index = JUMP - patternId;
+                continue;
+            }
+            if ((patternGroups[patternId] & groups) == 0) {
+                index += 2;
+                continue;
+            }
+            if (hitStatistics != null) {
+                hitStatistics.increment(patternId);
+            }
+            if (!handler.handle(endIndex - slices[index + 1], endIndex, payloads.get(patternId))) {
+                return false;
+            }
+            index += 2;
+        }
+    }
+
+    /**
+     * Follow jumps of a slice from the specified index, see class comment.
+     *
+     * @return index of the next (pattern id, length) pair, -1 at the end of the slice
+     */
+    private int resolveOutput(int index) {
+        int patternId = slices[index];
+        while (patternId <= JUMP) {
+            index = JUMP - patternId;
+            patternId = slices[index];
+        }
+        return patternId == END ? -1 : index;
+    }
+
+    /**
+     * Get the identity order of states found in breadth-first order.
+     */
+    @Nonnull
+    private static int[] breadthFirstOrder(int stateCount) {
+        int[] order = new int[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * Match the sample texts against the trie and order states by the number of visits of the nodes of their labels,
+     * descending. The root goes first, states with the same number of visits keep breadth-first order.
+     *
+     * @return ids of states found in breadth-first order by their new ids
+     */
+    @Nonnull
+    private static <T> int[] profiledOrder(@Nonnull MutableTrie<T> trie,
+                                           @Nonnull Iterable<? extends CharSequence> sample,
+                                           @Nonnull List<Node<T>> firsts, @Nonnull List<Node<T>> lasts) {
+        // the same walk as MutableTrie#match does, counting visits instead of handling matches
+        TObjectIntHashMap<Node<T>> visits = new TObjectIntHashMap<>();
+        CharConverter converter = trie.getConverter();
+        for (CharSequence text : sample) {
+            Node<T> current = trie.getRoot();
+            for (int index = 0; index < text.length(); index++) {
+                char converted = converter.convert(text.charAt(index));
+                Node<T> next = current.getChild(converted);
+                while (next == null && !current.isRoot()) {
+                    current = current.getSuffix();
+                    next = current.getChild(converted);
+                }
+                if (next != null) {
+                    current = next;
+                    visits.adjustOrPutValue(current, 1, 1);
+                }
+            }
+        }
+        long[] heat = new long[firsts.size()];
+        for (int state = 1; state < heat.length; state++) {
+            Node<T> current = firsts.get(state);
+            heat[state] += visits.get(current);
+            while (current != lasts.get(state)) {
+                current = onlyChild(current, null);
+                heat[state] += visits.get(current);
+            }
+        }
+        List<Integer> states = new ArrayList<>();
+        for (int state = 1; state < heat.length; state++) {
+            states.add(state);
+        }
+        // the sort is stable, so ties keep breadth-first order
+        states.sort((a, b) -> Long.compare(heat[b], heat[a]));
+        int[] order = new int[heat.length];
+        for (int i = 0; i < states.size(); i++) {
+            order[i + 1] = states.get(i);
+        }
+        return order;
+    }
+
+    /**
+     * Get the only child of a node.
+     *
+     * @param node a node with a single child
+     * @param key  an array to store the key of the child into, can be null
+     * @return the child
+     */
+    @Nonnull
+    private static <T> Node<T> onlyChild(@Nonnull Node<T> node, @Nullable char[] key) {
+        List<Node<T>> child = new ArrayList<>(1);
+        node.forEachChild((char childKey, Node<T> value) -> {
+            if (key != null) {
+                key[0] = childKey;
+            }
+            child.add(value);
+            return false;
+        });
+        return child.get(0);
+    }
+
+    /**
+     * Append up to {@link CompiledTrie#MAX_INLINE_OUTPUTS} pairs of the slice beginning at the specified index and a
+     * jump to the rest of it, if any.
+     */
+    private static void appendSlice(@Nonnull TIntArrayList slices, int index) {
+        int copied = 0;
+        while (index >= 0) {
+            int patternId = slices.get(index);
+            if (patternId == END) {
+                break;
+            }
+            if (patternId < 0) {
+                index = JUMP - patternId;
+            } else if (copied == MAX_INLINE_OUTPUTS) {
+                slices.add(JUMP - index);
+                return;
+            } else {
+                slices.add(patternId);
+                slices.add(slices.get(index + 1));
+                copied++;
+                index += 2;
+            }
+        }
+        slices.add(END);
+    }
+
+    private static int maxLength(@Nonnull int[] slices) {
+        int maxLength = 0;
+        int index = 0;
+        while (index < slices.length) {
+            if (slices[index] < 0) {
+                // END or JUMP
+                index++;
+            } else {
+                maxLength = Math.max(maxLength, slices[index + 1]);
+                index += 2;
+            }
+        }
+        return maxLength;
+    }
+
+    private static void writeInts(@Nonnull DataOutput output, @Nonnull int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeChars(@Nonnull DataOutput output, @Nonnull char[] values) throws IOException {
+        output.writeInt(values.length);
+        for (char value : values) {
+            output.writeChar(value);
+        }
+    }
+
+    @Nonnull
+    private static int[] readInts(@Nonnull DataInput input) throws IOException {
+        int[] values = new int[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    @Nonnull
+    private static char[] readChars(@Nonnull DataInput input) throws IOException {
+        char[] values = new char[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readChar();
+        }
+        return values;
+    }
+
+    private int findTransition(int state, char label) {
+        int from = firstTransitions[state];
+        int to = firstTransitions[state + 1];
+        if (dense[state]) {
+            int offset = label - minKeys[state];
+            return offset >= 0 && offset < to - from ? transitionTargets[from + offset] : -1;
+        }
+        if (to - from <= Node.LINEAR_SEARCH_LIMIT) {
+            for (int i = from; i < to; i++) {
+                if (transitionLabels[i] == label) {
+                    return transitionTargets[i];
+                }
+            }
+            return -1;
+        }
+        int index = Arrays.binarySearch(transitionLabels, from, to, label);
+        return index < 0 ? -1 : transitionTargets[index];
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,423 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TCharArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal DAWG (directed acyclic word graph) built from a trie: structurally identical subtrees, such as common
+ * word endings of a natural language dictionary, are stored once. Natural language dictionaries need several times
+ * fewer states than {@link MutableTrie} does.
+ *
+ * A merged state is reached by many different prefixes which have different suffix links, so a DAWG cannot have
+ * suffix links. Instead, matching walks the DAWG from every position of the input text where a match may begin.
+ * This is O(n * lmax) in the worst case rather than O(n), where lmax is the length of the longest added sequence:
+ * texts made of long added sequences and their prefixes are read up to lmax times. For natural language texts a walk
+ * stops after a few characters. Matches are buffered and reported exactly like {@link MutableTrie} reports them: in
+ * order of their ending indexes, the longest one first for the same ending index. The buffer is a ring of lmax + 1
+ * lists in flat arrays whose entries are reused once reported, so a call allocates O(lmax) memory plus the matches
+ * pending at worst, whatever the length of the text.
+ *
+ * A merged terminal state belongs to many added sequences, so it cannot hold a payload either. Every state counts the
+ * added sequences reachable from it, and a walk sums the counts of the skipped transitions to get the index of the
+ * matched sequence in lexicographic order, which is mapped to the pattern id and the payload.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class DawgTrie<T> implements Trie<T> {
+
+    private final CharConverter converter;
+    private final long[] startCharacters;
+    private final HitStatistics<T> hitStatistics;
+    private final List<T> payloads;
+    // pattern ids by lexicographic index
+    private final int[] patternIds;
+    // masks of groups by pattern id
+    private final long[] patternGroups;
+    private final int maxLength;
+    private final int root;
+
+    // states: whether terminal, range of transitions
+    private final boolean[] terminals;
+    private final int[] firstTransitions;
+
+    // transitions sorted by label within a state: label, target, the number of sequences skipped by taking it
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] skips;
+
+    /**
+     * Construct an instance of DawgTrie from added sequences of the specified trie.
+     *
+     * @param trie an initialized trie
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    public DawgTrie(@Nonnull MutableTrie<T> trie) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        converter = trie.getConverter();
+        startCharacters = trie.getStartCharacters();
+        hitStatistics = trie.getHitStatistics();
+        payloads = trie.getPayloads();
+        patternGroups = trie.getGroups();
+
+        List<Node<T>> nodes = new ArrayList<>();
+        nodes.add(trie.getRoot());
+        trie.breadthFirstTraversal((c, node) -> nodes.add(node));
+
+        // children before parents, so that signatures of children are known
+        Map<Signature, Integer> register = new HashMap<>();
+        List<Signature> states = new ArrayList<>();
+        TIntArrayList counts = new TIntArrayList();
+        TObjectIntHashMap<Node<T>> ids = new TObjectIntHashMap<>();
+        int max = 0;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            Node<T> node = nodes.get(i);
+            max = Math.max(max, node.getLevel());
+            // children of an initialized node are iterated in ascending order of keys
+            TCharArrayList keys = new TCharArrayList();
+            TIntArrayList children = new TIntArrayList();
+            node.forEachChild((char key, Node<T> child) -> {
+                keys.add(key);
+                children.add(ids.get(child));
+                return true;
+            });
+            Signature signature = new Signature(node.isTerminal(), keys.toArray(), children.toArray());
+            Integer id = register.get(signature);
+            if (id == null) {
+                id = states.size();
+                register.put(signature, id);
+                states.add(signature);
+                int count = node.isTerminal() ? 1 : 0;
+                for (int child : signature.targets) {
+                    count += counts.get(child);
+                }
+                counts.add(count);
+            }
+            ids.put(node, id);
+        }
+        maxLength = max;
+        root = ids.get(trie.getRoot());
+
+        int transitionCount = 0;
+        for (Signature state : states) {
+            transitionCount += state.labels.length;
+        }
+        terminals = new boolean[states.size()];
+        firstTransitions = new int[states.size() + 1];
+        labels = new char[transitionCount];
+        targets = new int[transitionCount];
+        skips = new int[transitionCount];
+        int transition = 0;
+        for (int state = 0; state < states.size(); state++) {
+            Signature signature = states.get(state);
+            terminals[state] = signature.terminal;
+            firstTransitions[state] = transition;
+            // the sequence ending in the state itself goes first
+            int skipped = signature.terminal ? 1 : 0;
+            for (int i = 0; i < signature.labels.length; i++) {
+                labels[transition] = signature.labels[i];
+                targets[transition] = signature.targets[i];
+                skips[transition] = skipped;
+                skipped += counts.get(signature.targets[i]);
+                transition++;
+            }
+        }
+        firstTransitions[states.size()] = transition;
+
+        // terminals of a trie visited depth-first in ascending order of keys are in lexicographic order
+        patternIds = new int[trie.getPatternCount()];
+        collectPatternIds(trie.getRoot());
+    }
+
+    /**
+     * Match the specified characters sequence against the trie. Call the specified handler when a match is found.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        scan(sequence, MutableTrie.ALL_GROUPS, handler);
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#match(CharSequence, long, MatchHandler)}. A merged state cannot hold groups, so a match of a
+     * disabled group is dropped once its pattern id is known, before it's buffered.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        if (groups != 0) {
+            scan(sequence, groups, handler);
+        }
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * A single walk from the offset, the pattern id of a match is found by the skipped counts like matching does.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     */
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        int length = sequence.length();
+        int state = root;
+        int lexicographicIndex = 0;
+        for (int index = offset; index < length; index++) {
+            int transition = findTransition(state, converter.convert(sequence.charAt(index)));
+            if (transition < 0) {
+                return;
+            }
+            lexicographicIndex += skips[transition];
+            state = targets[transition];
+            if (terminals[state]
+                    && !handler.handle(offset, index + 1, payloads.get(patternIds[lexicographicIndex]))) {
+                return;
+            }
+        }
+    }
+
+    private void scan(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        if (patternIds.length == 0) {
+            return;
+        }
+        MatchRing buffer = new MatchRing(maxLength + 1);
+        int length = sequence.length();
+        int reported = 0;
+        for (int begin = 0; begin < length; begin++) {
+            if (!MutableTrie.isSet(startCharacters, sequence.charAt(begin))) {
+                continue;
+            }
+            // matches ending at or before begin are complete, nothing that begins later can end there
+            if (!report(buffer, reported, begin, handler)) {
+                return;
+            }
+            reported = begin;
+            int state = root;
+            int lexicographicIndex = 0;
+            for (int index = begin; index < length; index++) {
+                int transition = findTransition(state, converter.convert(sequence.charAt(index)));
+                if (transition < 0) {
+                    break;
+                }
+                lexicographicIndex += skips[transition];
+                state = targets[transition];
+                if (terminals[state]) {
+                    int patternId = patternIds[lexicographicIndex];
+                    // every pattern belongs to a group, so nothing is dropped with all the groups enabled
+                    if ((patternGroups[patternId] & groups) != 0) {
+                        buffer.add(index + 1, begin, patternId);
+                    }
+                }
+            }
+        }
+        report(buffer, reported, length, handler);
+    }
+
+    /**
+     * Get the number of states of the DAWG.
+     *
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return terminals.length;
+    }
+
+    /**
+     * Get the number of transitions of the DAWG.
+     *
+     * @return the number of transitions
+     */
+    public int getTransitionCount() {
+        return labels.length;
+    }
+
+    /**
+     * Report buffered matches ending after from and at or before to, in order of their ending indexes.
+     */
+    private boolean report(@Nonnull MatchRing buffer, int from, int to, @Nonnull MatchHandler<T> handler) {
+        int[] heads = buffer.heads;
+        int last = Math.min(to, from + heads.length);
+        for (int end = from + 1; end <= last; end++) {
+            int slot = end % heads.length;
+            // beginning indexes ascend, so the longest match goes first
+            for (int entry = heads[slot]; entry >= 0; entry = buffer.nexts[entry]) {
+                int patternId = buffer.patternIds[entry];
+                if (hitStatistics != null) {
+                    hitStatistics.increment(patternId);
+                }
+                if (!handler.handle(buffer.begins[entry], end, payloads.get(patternId))) {
+                    return false;
+                }
+            }
+            buffer.release(slot);
+        }
+        return true;
+    }
+
+    private int findTransition(int state, char label) {
+        int from = firstTransitions[state];
+        int to = firstTransitions[state + 1];
+        int index = Arrays.binarySearch(labels, from, to, label);
+        return index < 0 ? -1 : index;
+    }
+
+    private void collectPatternIds(@Nonnull Node<T> root) {
+        // depth-first with an explicit stack, sequences may be too long to recurse
+        int index = 0;
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        List<Node<T>> children = new ArrayList<>();
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+            if (node.isTerminal()) {
+                patternIds[index++] = node.getPatternId();
+            }
+            children.clear();
+            node.forEachChild((char key, Node<T> child) -> children.add(child));
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+    }
+
+    /**
+     * Matches buffered until no match beginning later can end before them: lists of matches by ending index modulo
+     * the ring size, in order of beginning indexes. Entries are linked in flat arrays, the ones of reported matches
+     * are reused.
+     */
+    private static class MatchRing {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        // first and last entries by ending index modulo ring size, -1 if none
+        private final int[] heads;
+        private final int[] tails;
+
+        // entries: beginning index, pattern id, the next entry with the same ending index or the next free entry
+        private int[] begins;
+        private int[] patternIds;
+        private int[] nexts;
+        private int size;
+        private int free;
+
+        private MatchRing(int ringSize) {
+            heads = new int[ringSize];
+            tails = new int[ringSize];
+            Arrays.fill(heads, -1);
+            begins = new int[INITIAL_CAPACITY];
+            patternIds = new int[INITIAL_CAPACITY];
+            nexts = new int[INITIAL_CAPACITY];
+            free = -1;
+        }
+
+        private void add(int end, int begin, int patternId) {
+            int entry = free;
+            if (entry >= 0) {
+                free = nexts[entry];
+            } else {
+                if (size == begins.length) {
+                    begins = Arrays.copyOf(begins, size * 2);
+                    patternIds = Arrays.copyOf(patternIds, size * 2);
+                    nexts = Arrays.copyOf(nexts, size * 2);
+                }
+                entry = size++;
+            }
+            begins[entry] = begin;
+            patternIds[entry] = patternId;
+            nexts[entry] = -1;
+            int slot = end % heads.length;
+            if (heads[slot] < 0) {
+                heads[slot] = entry;
+            } else {
+                nexts[tails[slot]] = entry;
+            }
+            tails[slot] = entry;
+        }
+
+        /**
+         * Move the entries of the specified slot to the free list.
+         */
+        private void release(int slot) {
+            if (heads[slot] >= 0) {
+                nexts[tails[slot]] = free;
+                free = heads[slot];
+                heads[slot] = -1;
+            }
+        }
+
+    }
+
+    /**
+     * A state of the DAWG being built, equal to another one if their right languages are equal.
+     */
+    private static class Signature {
+
+        private final boolean terminal;
+        private final char[] labels;
+        private final int[] targets;
+
+        private Signature(boolean terminal, @Nonnull char[] labels, @Nonnull int[] targets) {
+            this.terminal = terminal;
+            this.labels = labels;
+            this.targets = targets;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Signature)) {
+                return false;
+            }
+            Signature signature = (Signature) o;
+            return terminal == signature.terminal && Arrays.equals(labels, signature.labels) &&
+                    Arrays.equals(targets, signature.targets);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Boolean.hashCode(terminal) + Arrays.hashCode(labels)) + Arrays.hashCode(targets);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package org.rsverchk.ahocorasick;
+
+/**
+ * Matching algorithm used by a trie built with {@link TrieBuilder}. Every engine but {@link Engine#AHO_CORASICK}
+ * is constructed from an initialized {@link MutableTrie} and takes the converter, payloads, pattern ids, groups and
+ * hit statistics from it.
+ *
+ * @author Ruslan Sverchkov
+ */
+public enum Engine {
+
+    /**
+     * Aho-Corasick automaton, {@link MutableTrie}. Reads every character of the input text once, a good default for
+     * any dictionary.
+     */
+    AHO_CORASICK,
+
+    /**
+     * Set-Horspool, {@link SetHorspoolTrie}. Scans the input text backwards from the end of a window and shifts the
+     * window by up to the length of the shortest added sequence, so it reads only a fraction of the input text when
+     * all the added sequences are long and there are few of them.
+     */
+    SET_HORSPOOL,
+
+    /**
+     * Aho-Corasick with lazily resolved and cached transitions, {@link LazyDfaTrie}. Follows suffix links once per
+     * cached transition instead of every time, so it's faster than {@link Engine#AHO_CORASICK} for input texts with
+     * many partial matches.
+     */
+    LAZY_DFA,
+
+    /**
+     * Minimal DAWG, {@link DawgTrie}. Stores structurally identical subtrees once, so it needs several times less
+     * memory than {@link Engine#AHO_CORASICK} for natural language dictionaries, but it has no suffix links: a walk
+     * starts at every position that may begin a match, so matching is O(n * lmax) in the worst case, where n is the
+     * length of the input text and lmax is the length of the longest added sequence. Meant for big dictionaries of
+     * short words, never chosen by {@link Engine#AUTO}.
+     */
+    DAWG,
+
+    /**
+     * Aho-Corasick compiled into flat arrays, {@link CompiledTrie}. Runs of nodes with a single child are collapsed
+     * into one state, so it needs less memory and pointer chasing than {@link Engine#AHO_CORASICK} for long added
+     * sequences such as URLs, paths or signatures.
+     */
+    COMPILED,
+
+    /**
+     * Aho-Corasick generated as JVM bytecode at runtime, {@link BytecodeTrie}. Every state is a block of code, so
+     * there are no tables to look up. Faster than {@link Engine#AHO_CORASICK} for dictionaries of a few dozen short
+     * sequences, slower for bigger ones, takes up to {@link BytecodeTrie#MAX_STATE_COUNT} nodes.
+     */
+    BYTECODE,
+
+    /**
+     * Chosen by {@link EnginePlanner} once all the sequences are added, by the shape of the dictionary: either
+     * {@link Engine#AHO_CORASICK}, with or without a prefilter, or {@link Engine#SET_HORSPOOL}. The other engines
+     * trade matching speed for memory or build time in ways the dictionary alone doesn't tell, so they are never
+     * chosen. A prefilter specified by {@link TrieBuilder#withPrefilter(PrefilterFactory)} keeps
+     * {@link Engine#AHO_CORASICK}, the only engine using one.
+     */
+    AUTO
+
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A choice of {@link EnginePlanner}: an engine, an optional prefilter and a human readable explanation of the choice.
+ *
+ * @author Ruslan Sverchkov
+ */
+@Immutable
+public final class EnginePlan {
+
+    private final Engine engine;
+    private final PrefilterFactory prefilterFactory;
+    private final String explanation;
+
+    /**
+     * Construct an instance of EnginePlan.
+     *
+     * @param engine           matching algorithm, not {@link Engine#AUTO}
+     * @param prefilterFactory prefilter to use, can be null
+     * @param explanation      why the engine and the prefilter have been chosen
+     * @throws NullPointerException     if engine or explanation is null
+     * @throws IllegalArgumentException if engine is {@link Engine#AUTO}
+     */
+    public EnginePlan(@Nonnull Engine engine, @Nullable PrefilterFactory prefilterFactory,
+                      @Nonnull String explanation) {
+        Validate.notNull(engine);
+        Validate.notNull(explanation);
+        Validate.isTrue(engine != Engine.AUTO);
+        this.engine = engine;
+        this.prefilterFactory = prefilterFactory;
+        this.explanation = explanation;
+    }
+
+    @Nonnull
+    public Engine getEngine() {
+        return engine;
+    }
+
+    @Nullable
+    public PrefilterFactory getPrefilterFactory() {
+        return prefilterFactory;
+    }
+
+    @Nonnull
+    public String getExplanation() {
+        return explanation;
+    }
+
+    @Override
+    public String toString() {
+        return "EnginePlan {engine: [" + engine +
+                "], prefilter: [" + (prefilterFactory != null) +
+                "], explanation: [" + explanation + "]}";
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.BitSet;
+
+/**
+ * Chooses an engine and a prefilter by the shape of a dictionary: the number of added sequences, their lengths and
+ * the alphabet size, and by the expected density of matches in input texts.
+ *
+ * The rules, in order:
+ * 1) Aho-Corasick with the prefilter specified by the caller if any: no other engine uses a prefilter.
+ * 2) Aho-Corasick if matches are expected to be dense: skipping doesn't pay off when most windows have to be checked.
+ * 3) Set-Horspool for dictionaries of at most {@link EnginePlanner#HORSPOOL_MAX_PATTERNS} sequences over at least
+ * {@link EnginePlanner#HORSPOOL_MIN_ALPHABET} distinct characters, most of them at least
+ * {@link EnginePlanner#HORSPOOL_MIN_LENGTH} characters long and none shorter than
+ * {@link EnginePlanner#HORSPOOL_MIN_SHIFT}: a single character rarely occurs near the end of a sequence, so most
+ * shifts are long. With more sequences or fewer distinct characters almost every character occurs there and shifts
+ * degrade to 1, and no shift is longer than the shortest sequence.
+ * 4) Aho-Corasick with {@link QGramPrefilter} for dictionaries of at least {@link EnginePlanner#QGRAM_MIN_PATTERNS}
+ * sequences, none shorter than {@link EnginePlanner#QGRAM_MIN_LENGTH} characters: q-grams stay selective where
+ * single characters are not. Over a large alphabet single characters are selective enough, so the sequences have to
+ * be as long as for Set-Horspool. With a couple of sequences the automaton is left quickly anyway.
+ * 5) Aho-Corasick skipping characters that cannot start a match otherwise.
+ *
+ * "Most of them" is the {@link EnginePlanner#LENGTH_PERCENTILE}th percentile of the lengths: a few short outliers
+ * should not turn a skipping engine down, yet the shortest sequence still bounds every shift.
+ *
+ * So the planner chooses between {@link Engine#AHO_CORASICK} and {@link Engine#SET_HORSPOOL} only. The other engines
+ * are the caller's call, their trade-offs depend on more than the dictionary: {@link Engine#LAZY_DFA} on partial
+ * matches in input texts, {@link Engine#COMPILED} on memory and shipping, {@link Engine#BYTECODE} on how often a small
+ * dictionary is matched. {@link Engine#DAWG} trades O(n) matching for O(n * lmax) to save memory, and for long
+ * sequences it's the slowest engine. Every engine matches by groups and looks up prefixes, so the choice never takes
+ * a feature of {@link Trie} away.
+ *
+ * The thresholds are calibrated by EnginePlannerBenchmark on random texts with rare matches over the alphabet of the
+ * dictionary, the measurements they are based on are recorded next to them.
+ *
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class EnginePlanner {
+
+    /**
+     * Percentile of the sequence lengths compared with the length thresholds, the nearest rank one.
+     */
+    public static final int LENGTH_PERCENTILE = 25;
+
+    /**
+     * 5 sequences of 16-32 characters over 1000: Set-Horspool 18 us, q-grams 29 us, Aho-Corasick 48 us per 50000
+     * characters. 5 sequences of 8-12 characters over 1000: Set-Horspool 42 us, Aho-Corasick 46 us, a tie.
+     */
+    public static final int HORSPOOL_MIN_LENGTH = 16;
+
+    /**
+     * 5 sequences of 16-32 characters and one of 12 over 1000: Set-Horspool 27 us, q-grams 36 us, Aho-Corasick 62 us.
+     * With one of 8: 46 us, 59 us and 50 us, with one of 4: 90 us, 120 us and 46 us. Sequences of 4-8 characters over
+     * 1000: q-grams 132-140 us, Aho-Corasick 36-94 us for 2 to 100 sequences.
+     */
+    public static final int HORSPOOL_MIN_SHIFT = 12;
+
+    /**
+     * 100 sequences of 16-32 characters over 26: Set-Horspool 856 us, Aho-Corasick 821 us, q-grams 44 us. Not measured
+     * over a large alphabet, so the bound is a conservative one.
+     */
+    public static final int HORSPOOL_MAX_PATTERNS = 10;
+
+    /**
+     * 5 sequences of 16-32 characters over 26: Set-Horspool 55 us, q-grams 27 us.
+     */
+    public static final int HORSPOOL_MIN_ALPHABET = 64;
+
+    /**
+     * 100 sequences of 4-8 characters over 26: q-grams 300 us, Aho-Corasick 1156 us. 100 of 2-4: q-grams 952 us,
+     * Aho-Corasick 906 us, and 1000 of 8-16 and one of 2: q-grams 1492 us, Aho-Corasick 1161 us.
+     */
+    public static final int QGRAM_MIN_LENGTH = 4;
+
+    /**
+     * 2 sequences of 4-8 characters over 26: q-grams 125 us, Aho-Corasick 91 us. 10 of 4-8: 154 us and 435 us, 5 of
+     * 16-32: 27 us and 290 us.
+     */
+    public static final int QGRAM_MIN_PATTERNS = 5;
+
+    /**
+     * Expected density of matches in input texts, a hint for the planner.
+     */
+    public enum MatchDensity {
+
+        /**
+         * Matches are rare, most of the input text cannot be a part of a match.
+         */
+        SPARSE,
+
+        /**
+         * Matches are frequent, skipping doesn't pay off.
+         */
+        DENSE,
+
+        /**
+         * Nothing is known, the planner assumes sparse matches.
+         */
+        UNKNOWN
+
+    }
+
+    /**
+     * Choose an engine and a prefilter for the specified trie.
+     *
+     * @param trie         an initialized trie
+     * @param matchDensity expected density of matches
+     * @param <T>          payload type
+     * @return the choice
+     * @throws NullPointerException  if any of the arguments is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    @Nonnull
+    public <T> EnginePlan plan(@Nonnull MutableTrie<T> trie, @Nonnull MatchDensity matchDensity) {
+        return plan(trie, matchDensity, null);
+    }
+
+    /**
+     * Choose an engine for the specified trie, and a prefilter unless the caller has specified one. A prefilter is
+     * used by {@link Engine#AHO_CORASICK} only, so no other engine is chosen with a specified prefilter.
+     *
+     * @param trie             an initialized trie
+     * @param matchDensity     expected density of matches
+     * @param prefilterFactory a prefilter specified by the caller, null to let the planner choose
+     * @param <T>              payload type
+     * @return the choice, with the specified prefilter if any
+     * @throws NullPointerException  if trie or matchDensity is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    @Nonnull
+    public <T> EnginePlan plan(@Nonnull MutableTrie<T> trie, @Nonnull MatchDensity matchDensity,
+                               @Nullable PrefilterFactory prefilterFactory) {
+        Validate.notNull(trie);
+        Validate.notNull(matchDensity);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        BitSet alphabet = new BitSet();
+        TIntArrayList lengths = new TIntArrayList();
+        trie.breadthFirstTraversal((c, node) -> {
+            alphabet.set(c);
+            if (node.isTerminal()) {
+                lengths.add(node.getLevel());
+            }
+        });
+        int patternCount = trie.getPatternCount();
+        if (patternCount == 0) {
+            return new EnginePlan(Engine.AHO_CORASICK, prefilterFactory, "the dictionary is empty");
+        }
+        // breadth first, so the lengths are sorted already
+        int minLength = lengths.get(0);
+        int percentileLength = lengths.get((lengths.size() * LENGTH_PERCENTILE + 99) / 100 - 1);
+        String profile = patternCount + " sequences of " + minLength + "-" + lengths.get(lengths.size() - 1) +
+                " characters over " + alphabet.cardinality() + " distinct characters, " + percentileLength +
+                " at the " + LENGTH_PERCENTILE + "th length percentile, " + matchDensity + " matches";
+        if (prefilterFactory != null) {
+            return new EnginePlan(Engine.AHO_CORASICK, prefilterFactory, profile + ": a prefilter is specified, " +
+                    "Aho-Corasick is the only engine using one");
+        }
+        return plan(patternCount, minLength, percentileLength, alphabet.cardinality(), matchDensity, profile);
+    }
+
+    /**
+     * Apply the rules, see class comment. Mostly for testing purposes.
+     *
+     * @param patternCount     the number of added sequences
+     * @param minLength        the length of the shortest added sequence
+     * @param percentileLength the {@link EnginePlanner#LENGTH_PERCENTILE}th percentile of the lengths
+     * @param alphabetSize     the number of distinct characters in added sequences, after conversion
+     * @param matchDensity     expected density of matches
+     * @param profile          description of the dictionary to start the explanation with
+     * @return the choice
+     */
+    @Nonnull
+    protected EnginePlan plan(int patternCount, int minLength, int percentileLength, int alphabetSize,
+                              @Nonnull MatchDensity matchDensity, @Nonnull String profile) {
+        if (matchDensity == MatchDensity.DENSE) {
+            return new EnginePlan(Engine.AHO_CORASICK, null, profile + ": dense matches, skipping doesn't pay off, " +
+                    "Aho-Corasick reads every character once");
+        }
+        boolean largeAlphabet = alphabetSize >= HORSPOOL_MIN_ALPHABET;
+        boolean longShifts = percentileLength >= HORSPOOL_MIN_LENGTH && minLength >= HORSPOOL_MIN_SHIFT;
+        if (largeAlphabet && longShifts && patternCount <= HORSPOOL_MAX_PATTERNS) {
+            return new EnginePlan(Engine.SET_HORSPOOL, null, profile + ": few long sequences over a large " +
+                    "alphabet, Set-Horspool shifts by up to " + minLength + " characters");
+        }
+        if (patternCount >= QGRAM_MIN_PATTERNS && minLength >= QGRAM_MIN_LENGTH && (!largeAlphabet || longShifts)) {
+            return new EnginePlan(Engine.AHO_CORASICK, QGramPrefilter.factory(), profile + ": sequences of at least " +
+                    minLength + " characters, q-gram prefilter skips text that cannot contain a match " +
+                    "without touching the automaton");
+        }
+        return new EnginePlan(Engine.AHO_CORASICK, null, profile + ": short or few sequences, Aho-Corasick skipping " +
+                "characters that cannot start a match");
+    }
+
+}
\ No newline at end of file
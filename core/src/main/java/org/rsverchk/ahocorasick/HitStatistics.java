@@ -0,0 +1,160 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-pattern hit counters indexed by pattern id (see {@link Node#getPatternId()}). Useful to find out which
+ * characters sequences actually match and which are dead weight.
+ *
+ * Implementation comment:
+ * counters are striped: every thread increments counters of the stripe chosen by its id, so threads matching
+ * concurrently mostly touch different arrays. Each stripe is padded on both sides so that counters of different
+ * stripes never share a cache line. The price is memory: stripes * patterns * 8 bytes.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class HitStatistics<T> {
+
+    private static final int PADDING = 16; // 128 bytes, covers adjacent cache line prefetch
+    private static final int MAX_DEFAULT_STRIPES = 8;
+
+    private final List<T> payloads;
+    private final AtomicLongArray[] stripes;
+    private final int mask;
+
+    /**
+     * Construct an instance of HitStatistics with the number of stripes depending on the number of processors.
+     *
+     * @param payloads payloads indexed by pattern id
+     * @throws NullPointerException if payloads is null
+     */
+    public HitStatistics(@Nonnull List<T> payloads) {
+        this(payloads, Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()),
+                MAX_DEFAULT_STRIPES));
+    }
+
+    /**
+     * Construct an instance of HitStatistics.
+     *
+     * @param payloads payloads indexed by pattern id
+     * @param stripes  number of stripes
+     * @throws NullPointerException     if payloads is null
+     * @throws IllegalArgumentException if stripes is not a positive power of two
+     */
+    public HitStatistics(@Nonnull List<T> payloads, int stripes) {
+        Validate.notNull(payloads);
+        Validate.isTrue(stripes > 0 && Integer.bitCount(stripes) == 1, "stripes must be a power of two");
+        this.payloads = Collections.unmodifiableList(new ArrayList<>(payloads));
+        this.stripes = new AtomicLongArray[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new AtomicLongArray(payloads.size() + 2 * PADDING);
+        }
+        this.mask = stripes - 1;
+    }
+
+    /**
+     * Count a hit of the specified pattern.
+     *
+     * @param patternId pattern id
+     * @throws IndexOutOfBoundsException if there is no such pattern
+     */
+    public void increment(int patternId) {
+        if (patternId < 0 || patternId >= payloads.size()) {
+            throw new IndexOutOfBoundsException("no pattern with id " + patternId);
+        }
+        stripes[(int) Thread.currentThread().getId() & mask].incrementAndGet(PADDING + patternId);
+    }
+
+    /**
+     * Get the number of hits of the specified pattern.
+     *
+     * @param patternId pattern id
+     * @return the number of hits
+     * @throws IndexOutOfBoundsException if there is no such pattern
+     */
+    public long getHits(int patternId) {
+        if (patternId < 0 || patternId >= payloads.size()) {
+            throw new IndexOutOfBoundsException("no pattern with id " + patternId);
+        }
+        long hits = 0;
+        for (AtomicLongArray stripe : stripes) {
+            hits += stripe.get(PADDING + patternId);
+        }
+        return hits;
+    }
+
+    /**
+     * Get the numbers of hits of all patterns. Hits counted concurrently with the call may or may not be included.
+     *
+     * @return the numbers of hits indexed by pattern id
+     */
+    @Nonnull
+    public long[] snapshot() {
+        long[] snapshot = new long[payloads.size()];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] += stripe.get(PADDING + i);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Set all counters to zero. Hits counted concurrently with the call may or may not be lost.
+     */
+    public void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < payloads.size(); i++) {
+                stripe.set(PADDING + i, 0);
+            }
+        }
+    }
+
+    /**
+     * Get payloads of the patterns that have never matched since construction or the last reset.
+     *
+     * @return payloads of never matched patterns in order of pattern ids
+     */
+    @Nonnull
+    public List<T> getNeverMatched() {
+        long[] snapshot = snapshot();
+        List<T> neverMatched = new ArrayList<>();
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] == 0) {
+                neverMatched.add(payloads.get(i));
+            }
+        }
+        return neverMatched;
+    }
+
+    /**
+     * Get the number of patterns.
+     *
+     * @return the number of patterns
+     */
+    public int getPatternCount() {
+        return payloads.size();
+    }
+
+    /**
+     * Get payload of the specified pattern.
+     *
+     * @param patternId pattern id
+     * @return payload of the pattern
+     * @throws IndexOutOfBoundsException if there is no such pattern
+     */
+    @Nonnull
+    public T getPayload(int patternId) {
+        return payloads.get(patternId);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.CharBuffer;
+
+/**
+ * A built trie, the one returned by {@link TrieBuilder#build()}. A single instance is meant to be shared by all the
+ * threads matching against the dictionary, with no locks and no copies per thread.
+ *
+ * Sharing contract:
+ * * the wrapped trie is fully built before the constructor is called and is never modified afterwards, the wrapper
+ * exposes nothing but matching, so neither can the clients modify it
+ * * the wrapped trie is held in a final field. By the final field semantics of the Java Memory Model every write to
+ * the wrapped trie and to the objects reachable from it made before the end of the constructor, including the
+ * non-final fields of {@link Node}s set by {@link MutableTrie#init()}, is visible to any thread which sees the
+ * reference to the wrapper. So an instance is safely published even through a data race, like a plain static field
+ * assigned without synchronization
+ * * matching keeps its state in local variables only, so concurrent calls don't interfere. Implementations which
+ * write shared state while matching, such as the cache of {@link LazyDfaTrie} or {@link HitStatistics}, synchronize
+ * those writes themselves
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public final class ImmutableTrie<T> implements Trie<T> {
+
+    private final Trie<T> trie;
+
+    /**
+     * Construct an instance of ImmutableTrie, see the sharing contract in the class comment.
+     *
+     * @param trie a built trie, it must not be modified after the call
+     * @throws NullPointerException if trie is null
+     */
+    public ImmutableTrie(@Nonnull Trie<T> trie) {
+        Validate.notNull(trie);
+        this.trie = trie;
+    }
+
+    @Override
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        trie.match(sequence, handler);
+    }
+
+    @Override
+    public void match(@Nonnull CharSequence sequence, int beginIndex, int endIndex,
+                      @Nonnull MatchHandler<T> handler) {
+        trie.match(sequence, beginIndex, endIndex, handler);
+    }
+
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        trie.match(sequence, groups, handler);
+    }
+
+    @Nullable
+    @Override
+    public T get(@Nonnull CharSequence sequence) {
+        return trie.get(sequence);
+    }
+
+    @Override
+    public int longestPrefixMatch(@Nonnull CharSequence sequence, int offset) {
+        return trie.longestPrefixMatch(sequence, offset);
+    }
+
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        trie.allPrefixMatches(sequence, offset, handler);
+    }
+
+    @Override
+    public void match(@Nonnull char[] array, int offset, int length, @Nonnull MatchHandler<T> handler) {
+        trie.match(array, offset, length, handler);
+    }
+
+    @Override
+    public void match(@Nonnull CharBuffer buffer, @Nonnull MatchHandler<T> handler) {
+        trie.match(buffer, handler);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,279 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TCharArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lazy DFA on top of an Aho-Corasick trie. A resolved transition, the node reached from a node by a character with all
+ * the suffix links followed, is computed by {@link MutableTrie} style walk the first time it's needed and cached, so
+ * failure-heavy input texts cost one cache lookup per character instead of a walk along the suffix links. A fully
+ * materialized DFA would need a transition per node and character, which is prohibitive for large alphabets.
+ *
+ * The cache is a direct-mapped table of a fixed size, shared by all the nodes: a (node, character) pair is hashed to
+ * a slot, and a transition evicts whatever has been cached in the slot before. Every slot is a single long holding
+ * the node id, the character and the target node id, so the table can be read and filled by many threads at once
+ * without locks: a thread either sees a complete entry or computes the transition by itself.
+ *
+ * Matches are reported exactly like {@link MutableTrie} reports them. A prefilter is not used.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class LazyDfaTrie<T> implements Trie<T> {
+
+    /**
+     * Default cache size in bytes.
+     */
+    public static final int DEFAULT_CACHE_BUDGET = 1 << 20;
+
+    /*
+    Implementation comment:
+    an entry is [24 bits node id][16 bits character][24 bits target id + 1], 0 is an empty slot.
+     */
+    private static final int ID_BITS = 24;
+    private static final int MAX_STATES = (1 << ID_BITS) - 1;
+    private static final long TARGET_MASK = (1L << ID_BITS) - 1;
+
+    private final CharConverter converter;
+    private final long[] startCharacters;
+    private final HitStatistics<T> hitStatistics;
+    private final Node<T>[] states;
+    // whether a match is reported when a node is reached, by node id
+    private final boolean[] outputs;
+    private final TObjectIntHashMap<Node<T>> ids;
+    // ids of the root's children: by key - rootMinKey if the root has a dense table, see Node, parallel to rootKeys
+    // otherwise, 0 if there is no child
+    private final int[] rootTargets;
+    private final char rootMinKey;
+    private final char[] rootKeys;
+    private final AtomicLongArray cache;
+    private final int mask;
+
+    /**
+     * Construct an instance of LazyDfaTrie with the {@link LazyDfaTrie#DEFAULT_CACHE_BUDGET}.
+     *
+     * @param trie an initialized trie
+     * @throws NullPointerException     if trie is null
+     * @throws IllegalArgumentException if the trie has more than 2^24 - 1 nodes
+     * @throws IllegalStateException    if the trie is not initialized
+     */
+    public LazyDfaTrie(@Nonnull MutableTrie<T> trie) {
+        this(trie, DEFAULT_CACHE_BUDGET);
+    }
+
+    /**
+     * Construct an instance of LazyDfaTrie.
+     *
+     * @param trie        an initialized trie
+     * @param cacheBudget max size of the transition cache in bytes, rounded down to a power of two, at least 8
+     * @throws NullPointerException     if trie is null
+     * @throws IllegalArgumentException if cacheBudget is less than 8 or the trie has more than 2^24 - 1 nodes
+     * @throws IllegalStateException    if the trie is not initialized
+     */
+    public LazyDfaTrie(@Nonnull MutableTrie<T> trie, long cacheBudget) {
+        Validate.notNull(trie);
+        Validate.isTrue(cacheBudget >= Long.BYTES, "cache budget is too small: %d", cacheBudget);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        converter = trie.getConverter();
+        startCharacters = trie.getStartCharacters();
+        hitStatistics = trie.getHitStatistics();
+        List<Node<T>> nodes = new ArrayList<>();
+        ids = new TObjectIntHashMap<>();
+        nodes.add(trie.getRoot());
+        ids.put(trie.getRoot(), 0);
+        trie.breadthFirstTraversal((c, node) -> {
+            ids.put(node, nodes.size());
+            nodes.add(node);
+        });
+        Validate.isTrue(nodes.size() <= MAX_STATES, "too many nodes: %d", nodes.size());
+        states = Tries.newNodeArray(nodes.size());
+        outputs = new boolean[nodes.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = nodes.get(i);
+            outputs[i] = states[i].isTerminal() || states[i].getTerminalSuffix() != null;
+        }
+        // children of an initialized node are iterated in ascending order of keys
+        TCharArrayList keys = new TCharArrayList();
+        TIntArrayList targets = new TIntArrayList();
+        trie.getRoot().forEachChild((char key, Node<T> child) -> {
+            keys.add(key);
+            targets.add(ids.get(child));
+            return true;
+        });
+        int size = keys.size();
+        int range = size == 0 ? 0 : keys.get(size - 1) - keys.get(0) + 1;
+        rootMinKey = size == 0 ? 0 : keys.get(0);
+        // the same choice as Node makes, so the table is bounded like the one of the root
+        if (Node.useDenseTable(true, size, range)) {
+            rootKeys = null;
+            rootTargets = new int[range];
+            for (int i = 0; i < size; i++) {
+                rootTargets[keys.get(i) - rootMinKey] = targets.get(i);
+            }
+        } else {
+            rootKeys = keys.toArray();
+            rootTargets = targets.toArray();
+        }
+        int slots = (int) Math.min(Long.highestOneBit(cacheBudget / Long.BYTES), 1 << 30);
+        cache = new AtomicLongArray(slots);
+        mask = slots - 1;
+    }
+
+    /**
+     * Match the specified characters sequence against the trie. Call the specified handler when a match is found.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        scan(sequence, MutableTrie.ALL_GROUPS, handler);
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#match(CharSequence, long, MatchHandler)}. Transitions are resolved and cached the same way
+     * whatever the groups, only reporting is limited.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        if (groups != 0) {
+            scan(sequence, groups, handler);
+        }
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * Children of the nodes are followed, the transition cache is neither used nor filled.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     */
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        Tries.allPrefixMatches(states[0], converter, sequence, offset, handler);
+    }
+
+    private void scan(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Node<T>[] states = this.states;
+        boolean[] outputs = this.outputs;
+        int length = sequence.length();
+        int state = 0;
+        int index = 0;
+        while (index < length) {
+            if (state == 0) {
+                // nothing is matched so far, skip characters that cannot start a match
+                while (index < length && !MutableTrie.isSet(startCharacters, sequence.charAt(index))) {
+                    index++;
+                }
+                if (index >= length) {
+                    return;
+                }
+            }
+            char converted = converter.convert(sequence.charAt(index));
+            state = state == 0 ? rootTransition(converted) : transition(state, converted);
+            if (outputs[state] && (groups == MutableTrie.ALL_GROUPS
+                    ? !states[state].handleMatch(index, handler, hitStatistics)
+                    : !states[state].handleMatch(index, groups, handler, hitStatistics))) {
+                return;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Get the number of cache slots.
+     *
+     * @return the number of cache slots
+     */
+    public int getCacheSize() {
+        return cache.length();
+    }
+
+    /**
+     * Get the number of cached transitions. Mostly for testing purposes.
+     *
+     * @return the number of non-empty cache slots
+     */
+    protected int getCachedCount() {
+        int count = 0;
+        for (int i = 0; i < cache.length(); i++) {
+            if (cache.get(i) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the resolved transition from a non-root node, from the cache or by the suffix links.
+     *
+     * @param state     id of the node
+     * @param character converted character
+     * @return id of the node reached
+     */
+    protected int transition(int state, char character) {
+        long key = (long) state << Character.SIZE | character;
+        int slot = slot(key);
+        long entry = cache.get(slot);
+        if (entry >>> ID_BITS == key && entry != 0) {
+            return (int) (entry & TARGET_MASK) - 1;
+        }
+        Node<T> current = states[state];
+        Node<T> next = current.getChild(character);
+        while (next == null && !current.isRoot()) {
+            current = current.getSuffix();
+            next = current.getChild(character);
+        }
+        int target = next == null ? 0 : ids.get(next);
+        // no need to publish immediately, other threads compute the transition by themselves meanwhile
+        cache.lazySet(slot, key << ID_BITS | target + 1);
+        return target;
+    }
+
+    private int rootTransition(char character) {
+        if (rootKeys != null) {
+            int index = Arrays.binarySearch(rootKeys, character);
+            return index < 0 ? 0 : rootTargets[index];
+        }
+        int offset = character - rootMinKey;
+        return offset >= 0 && offset < rootTargets.length ? rootTargets[offset] : 0;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+}
\ No newline at end of file
@@ -3,8 +3,12 @@ package org.rsverchk.ahocorasick;
 import org.apache.commons.lang3.Validate;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 /**
@@ -24,9 +28,27 @@ import java.util.Queue;
 @NotThreadSafe
 public class MutableTrie<T> implements Trie<T> {
 
+    /**
+     * Max number of characters copied at once from a characters sequence without an accessible array, see
+     * {@link MutableTrie#match(CharSequence, int, int, MatchHandler)}.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Mask of all the groups, the groups of a sequence added without groups.
+     */
+    public static final long ALL_GROUPS = -1L;
+
+    // chunks reused by the range matches of a thread
+    private static final ThreadLocal<char[]> CHUNKS = new ThreadLocal<>();
+
     private final CharConverter converter;
+    private final List<Node<T>> terminals;
     private Node<T> root;
+    private long[] startCharacters;
+    private Prefilter prefilter;
     private boolean built;
+    private HitStatistics<T> hitStatistics;
 
     /**
      * Construct an instance of MutableTrie.
@@ -37,12 +59,14 @@ public class MutableTrie<T> implements Trie<T> {
     public MutableTrie(@Nonnull CharConverter converter) {
         Validate.notNull(converter);
         this.converter = converter;
+        terminals = new ArrayList<>();
         root = Node.root();
         built = false;
     }
 
     /**
-     * Add the specified characters sequence to the trie.
+     * Add the specified characters sequence to the trie. Every distinct sequence gets a pattern id, its index in order
+     * of addition. Adding the same sequence again replaces the payload but keeps the pattern id.
      *
      * @param sequence a characters sequence to add
      * @param payload  payload associated with the sequence, can be any useful information
@@ -51,8 +75,26 @@ public class MutableTrie<T> implements Trie<T> {
      * @throws IllegalStateException    if called on already initialized trie
      */
     public void addCharSequence(@Nonnull CharSequence sequence, @Nonnull T payload) {
+        addCharSequence(sequence, payload, ALL_GROUPS);
+    }
+
+    /**
+     * Add the specified characters sequence to the trie as a pattern of the specified groups, up to 64 groups are
+     * identified by bits of a mask. Matching can be limited to the patterns of some groups without building another
+     * trie, see {@link MutableTrie#match(CharSequence, long, MatchHandler)}. Adding the same sequence again replaces
+     * the groups too.
+     *
+     * @param sequence a characters sequence to add
+     * @param payload  payload associated with the sequence, can be any useful information
+     * @param groups   a mask of the groups of the sequence
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty or groups is 0
+     * @throws IllegalStateException    if called on already initialized trie
+     */
+    public void addCharSequence(@Nonnull CharSequence sequence, @Nonnull T payload, long groups) {
         Validate.notEmpty(sequence);
         Validate.notNull(payload);
+        Validate.isTrue(groups != 0, "a sequence must belong to a group");
         if (built) {
             throw new IllegalStateException("cannot modify an initialized trie");
         }
@@ -66,7 +108,12 @@ public class MutableTrie<T> implements Trie<T> {
             }
             current = next;
         }
+        if (!current.isTerminal()) {
+            current.setPatternId(terminals.size());
+            terminals.add(current);
+        }
         current.setPayload(payload);
+        current.setGroups(groups);
     }
 
     /**
@@ -80,6 +127,7 @@ public class MutableTrie<T> implements Trie<T> {
         }
         root.init();
         breadthFirstTraversal(getNodeInitializer());
+        setStartCharacters(findStartCharacters());
         built = true;
     }
 
@@ -99,14 +147,73 @@ public class MutableTrie<T> implements Trie<T> {
         if (!built) {
             throw new IllegalStateException("call build() first");
         }
+        scan(sequence, ALL_GROUPS, handler);
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#addCharSequence(CharSequence, Object, long)}. Every node knows the union of the groups of
+     * all the matches ending at it, so a node with no match of an enabled group costs one bitwise and, no matter how
+     * many disabled patterns end there.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     * @throws IllegalStateException    if the called on not initialized trie
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        if (!built) {
+            throw new IllegalStateException("call build() first");
+        }
+        if (groups != 0) {
+            scan(sequence, groups, handler);
+        }
+    }
+
+    private void scan(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
         Node<T> current = root;
+        long[] startCharacters = this.startCharacters;
+        Prefilter prefilter = this.prefilter;
+        int length = sequence.length();
         int index = 0;
-        while (index < sequence.length()) {
+        // no match begins in [start of the longest partial match, candidate), see below
+        int candidate = -1;
+        while (index < length) {
+            if (prefilter != null) {
+                // partial matches in progress begin at or after the beginning of the longest one, if the prefilter
+                // rejects all these positions, none of them can complete and the automaton can be reset
+                int start = index - current.getLevel();
+                if (start > candidate) {
+                    candidate = prefilter.next(sequence, start);
+                }
+                if (candidate >= index) {
+                    current = root;
+                    index = candidate;
+                    if (index >= length) {
+                        return;
+                    }
+                }
+            } else if (current == root) {
+                // nothing is matched so far, skip characters that cannot start a match without entering the trie
+                while (index < length && !isSet(startCharacters, sequence.charAt(index))) {
+                    index++;
+                }
+                if (index >= length) {
+                    return;
+                }
+            }
             char character = sequence.charAt(index);
             char converted = converter.convert(character);
             Node<T> node = current.getChild(converted);
             if (node != null) {
-                if (!node.handleMatch(index, handler)) {
+                if (groups == ALL_GROUPS ? !node.handleMatch(index, handler, hitStatistics)
+                        : (node.getOutputGroups() & groups) != 0
+                        && !node.handleMatch(index, groups, handler, hitStatistics)) {
                     return;
                 }
                 current = node;
@@ -121,6 +228,128 @@ public class MutableTrie<T> implements Trie<T> {
         }
     }
 
+    /**
+     * The same as {@link Trie#match(CharSequence, int, int, MatchHandler)} but the range is scanned as a char array
+     * where possible: the backing array of a CharBuffer is scanned in place, with the prefilter if there is one.
+     * Without a prefilter other sequences are copied in chunks of {@link MutableTrie#CHUNK_SIZE} by bulk getChars
+     * where available, into a chunk reused by the calls of a thread. The automaton doesn't look back, so matching just
+     * carries the state over from one chunk to the next. The prefilter may look back, so with a prefilter other
+     * sequences are matched as a view of the range.
+     *
+     * @throws IllegalStateException if the called on not initialized trie
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, int beginIndex, int endIndex,
+                      @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(beginIndex, endIndex, sequence.length());
+        if (!built) {
+            throw new IllegalStateException("call build() first");
+        }
+        if (sequence instanceof CharBuffer && ((CharBuffer) sequence).hasArray()) {
+            CharBuffer buffer = (CharBuffer) sequence;
+            int base = buffer.arrayOffset() + buffer.position();
+            if (prefilter != null) {
+                scan(buffer.array(), base + beginIndex, base + endIndex, -base, prefilter, handler);
+            } else {
+                scan(buffer.array(), base + beginIndex, base + endIndex, -base, root, handler);
+            }
+            return;
+        }
+        if (prefilter != null) {
+            // the prefilter needs random access to the whole range
+            Trie.super.match(sequence, beginIndex, endIndex, handler);
+            return;
+        }
+        // taken while in use, a handler may match again
+        char[] chunk = CHUNKS.get();
+        if (chunk == null) {
+            chunk = new char[CHUNK_SIZE];
+        } else {
+            CHUNKS.set(null);
+        }
+        try {
+            Node<T> current = root;
+            for (int from = beginIndex; from < endIndex && current != null; from += chunk.length) {
+                int to = Math.min(from + chunk.length, endIndex);
+                getChars(sequence, from, to, chunk);
+                current = scan(chunk, 0, to - from, from, current, handler);
+            }
+        } finally {
+            CHUNKS.set(chunk);
+        }
+    }
+
+    /**
+     * The same as {@link Trie#match(char[], int, int, MatchHandler)} but the array is scanned in place, the prefilter
+     * if there is one is asked by {@link Prefilter#next(char[], int, int)}.
+     *
+     * @throws IllegalStateException if the called on not initialized trie
+     */
+    @Override
+    public void match(@Nonnull char[] array, int offset, int length, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(array);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, offset + length, array.length);
+        if (!built) {
+            throw new IllegalStateException("call build() first");
+        }
+        if (prefilter != null) {
+            scan(array, offset, offset + length, 0, prefilter, handler);
+        } else {
+            scan(array, offset, offset + length, 0, root, handler);
+        }
+    }
+
+    /**
+     * Get the characters converter.
+     *
+     * @return the characters converter
+     */
+    @Nonnull
+    public CharConverter getConverter() {
+        return converter;
+    }
+
+    /**
+     * Get the number of distinct characters sequences added to the trie.
+     *
+     * @return the number of patterns
+     */
+    public int getPatternCount() {
+        return terminals.size();
+    }
+
+    /**
+     * Get payloads of all added characters sequences.
+     *
+     * @return payloads indexed by pattern id
+     */
+    @Nonnull
+    public List<T> getPayloads() {
+        List<T> payloads = new ArrayList<>(terminals.size());
+        for (Node<T> terminal : terminals) {
+            payloads.add(terminal.getPayload());
+        }
+        return payloads;
+    }
+
+    /**
+     * Get groups of all added characters sequences, see
+     * {@link MutableTrie#addCharSequence(CharSequence, Object, long)}.
+     *
+     * @return masks of groups indexed by pattern id
+     */
+    @Nonnull
+    public long[] getGroups() {
+        long[] groups = new long[terminals.size()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = terminals.get(i).getGroups();
+        }
+        return groups;
+    }
+
     /**
      * Perform breadth-first traversal of the trie, call the specified consumer for each node except for root.
      *
@@ -141,6 +370,216 @@ public class MutableTrie<T> implements Trie<T> {
         }
     }
 
+    /**
+     * Find characters that can start a match: a bitset of all the characters (before conversion) that are converted
+     * to a key of a root's child. Mostly for testing purposes.
+     *
+     * @return a bitset of 65536 bits, a bit is set if the corresponding character can start a match
+     */
+    @Nonnull
+    protected long[] findStartCharacters() {
+        long[] bitset = new long[(Character.MAX_VALUE + 1) >>> 6];
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            if (root.getChild(converter.convert((char) c)) != null) {
+                bitset[c >>> 6] |= 1L << c;
+            }
+        }
+        return bitset;
+    }
+
+    /**
+     * Get the payload of the specified characters sequence, converted like the added ones. Only child transitions are
+     * followed, so the lookup takes time proportional to the length of the sequence. Hit statistics are not counted.
+     *
+     * @param sequence a characters sequence to look up
+     * @return payload of the sequence, null if it has not been added
+     * @throws NullPointerException     if sequence is null
+     * @throws IllegalArgumentException if sequence is empty
+     * @throws IllegalStateException    if the called on not initialized trie
+     */
+    @Nullable
+    @Override
+    public T get(@Nonnull CharSequence sequence) {
+        Validate.notEmpty(sequence);
+        if (!built) {
+            throw new IllegalStateException("call build() first");
+        }
+        Node<T> current = root;
+        for (int i = 0; i < sequence.length() && current != null; i++) {
+            current = current.getChild(converter.convert(sequence.charAt(i)));
+        }
+        return current != null && current.isTerminal() ? current.getPayload() : null;
+    }
+
+    /**
+     * Find the longest added sequence starting exactly at the specified offset, the way a dictionary-based tokenizer
+     * takes the next token. Only child transitions are followed, so the lookup takes time proportional to the length
+     * of the longest added prefix of the text at the offset, whatever the length of the text. Hit statistics are not
+     * counted.
+     *
+     * @param sequence a characters sequence to look for a match in
+     * @param offset   the beginning index of the match
+     * @return the ending index of the match, exclusive, -1 if no added sequence starts at the offset
+     * @throws NullPointerException      if sequence is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     * @throws IllegalStateException     if the called on not initialized trie
+     */
+    @Override
+    public int longestPrefixMatch(@Nonnull CharSequence sequence, int offset) {
+        Validate.notNull(sequence);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        if (!built) {
+            throw new IllegalStateException("call build() first");
+        }
+        int length = sequence.length();
+        int endIndex = -1;
+        Node<T> current = root;
+        for (int index = offset; index < length; index++) {
+            current = current.getChild(converter.convert(sequence.charAt(index)));
+            if (current == null) {
+                break;
+            }
+            if (current.isTerminal()) {
+                endIndex = index + 1;
+            }
+        }
+        return endIndex;
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * Only child transitions are followed, see {@link MutableTrie#longestPrefixMatch(CharSequence, int)}. Hit
+     * statistics are not counted.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     * @throws IllegalStateException     if the called on not initialized trie
+     */
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        if (!built) {
+            throw new IllegalStateException("call build() first");
+        }
+        Tries.allPrefixMatches(root, converter, sequence, offset, handler);
+    }
+
+    /**
+     * Check if the specified character is set in the specified bitset of 65536 bits.
+     *
+     * @param bitset bitset
+     * @param c      character
+     * @return whether the character is set
+     */
+    public static boolean isSet(@Nonnull long[] bitset, char c) {
+        return (bitset[c >>> 6] & (1L << c)) != 0;
+    }
+
+    /**
+     * Run the automaton over a range of a char array starting from the specified node.
+     *
+     * @param shift difference between indices in the input and indices in the array
+     * @return the node reached at the end of the range, null if the handler stopped matching
+     */
+    @Nullable
+    private Node<T> scan(@Nonnull char[] chars, int from, int to, int shift, @Nonnull Node<T> current,
+                         @Nonnull MatchHandler<T> handler) {
+        long[] startCharacters = this.startCharacters;
+        CharConverter converter = this.converter;
+        HitStatistics<T> hitStatistics = this.hitStatistics;
+        int index = from;
+        while (index < to) {
+            if (current == root) {
+                while (index < to && !isSet(startCharacters, chars[index])) {
+                    index++;
+                }
+                if (index >= to) {
+                    return current;
+                }
+            }
+            Node<T> node = current.getChild(converter.convert(chars[index]));
+            if (node != null) {
+                if (!node.handleMatch(index + shift, handler, hitStatistics)) {
+                    return null;
+                }
+                current = node;
+                index++;
+            } else if (current.isRoot()) {
+                index++;
+            } else {
+                current = current.getSuffix();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The same as {@link MutableTrie#scan(char[], int, int, int, Node, MatchHandler)} from the root, skipping the
+     * positions the prefilter rejects like {@link MutableTrie#match(CharSequence, MatchHandler)} does.
+     */
+    private void scan(@Nonnull char[] chars, int from, int to, int shift, @Nonnull Prefilter prefilter,
+                      @Nonnull MatchHandler<T> handler) {
+        CharConverter converter = this.converter;
+        HitStatistics<T> hitStatistics = this.hitStatistics;
+        Node<T> current = root;
+        int index = from;
+        int candidate = from - 1;
+        while (index < to) {
+            int start = index - current.getLevel();
+            if (start > candidate) {
+                candidate = prefilter.next(chars, start, to);
+            }
+            if (candidate >= index) {
+                current = root;
+                index = candidate;
+                if (index >= to) {
+                    return;
+                }
+            }
+            Node<T> node = current.getChild(converter.convert(chars[index]));
+            if (node != null) {
+                if (!node.handleMatch(index + shift, handler, hitStatistics)) {
+                    return;
+                }
+                current = node;
+                index++;
+            } else if (current.isRoot()) {
+                index++;
+            } else {
+                current = current.getSuffix();
+            }
+        }
+    }
+
+    /**
+     * Copy characters of a sequence like {@link String#getChars(int, int, char[], int)} does, in bulk where the
+     * implementation allows.
+     */
+    private static void getChars(@Nonnull CharSequence sequence, int from, int to, @Nonnull char[] destination) {
+        if (sequence instanceof String) {
+            ((String) sequence).getChars(from, to, destination, 0);
+        } else if (sequence instanceof StringBuilder) {
+            ((StringBuilder) sequence).getChars(from, to, destination, 0);
+        } else if (sequence instanceof StringBuffer) {
+            ((StringBuffer) sequence).getChars(from, to, destination, 0);
+        } else if (sequence instanceof CharBuffer) {
+            CharBuffer buffer = ((CharBuffer) sequence).duplicate();
+            buffer.position(buffer.position() + from);
+            buffer.get(destination, 0, to - from);
+        } else {
+            for (int i = from; i < to; i++) {
+                destination[i - from] = sequence.charAt(i);
+            }
+        }
+    }
+
     /**
      * Get a node initialization function. Mostly for testing purposes.
      *
@@ -167,6 +606,34 @@ public class MutableTrie<T> implements Trie<T> {
         return root;
     }
 
+    public void setHitStatistics(@Nullable HitStatistics<T> hitStatistics) {
+        this.hitStatistics = hitStatistics;
+    }
+
+    @Nullable
+    public HitStatistics<T> getHitStatistics() {
+        return hitStatistics;
+    }
+
+    protected void setStartCharacters(@Nonnull long[] startCharacters) {
+        Validate.notNull(startCharacters);
+        this.startCharacters = startCharacters;
+    }
+
+    @Nullable
+    public long[] getStartCharacters() {
+        return startCharacters;
+    }
+
+    public void setPrefilter(@Nullable Prefilter prefilter) {
+        this.prefilter = prefilter;
+    }
+
+    @Nullable
+    public Prefilter getPrefilter() {
+        return prefilter;
+    }
+
     protected void setBuilt(boolean built) {
         this.built = built;
     }
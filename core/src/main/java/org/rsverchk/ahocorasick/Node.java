@@ -9,23 +9,55 @@ import org.apache.commons.lang3.Validate;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
- * Trie node.
+ * Trie node over characters, suffixes and reporting of matches are shared with {@link TokenNode} by
+ * {@link AbstractNode}.
+ *
+ * While the trie is being built children are kept in a hash map. When the node is initialized, the map is replaced
+ * with a representation chosen by the number of children:
+ * * a single child is stored inline as a key and a reference
+ * * a handful of children is stored as a sorted array of keys and a parallel array of nodes
+ * * nodes with densely distributed keys use a table indexed by key - base key
+ * * the root is visited most, so it uses the table whenever the range of its keys is within an absolute budget, e.g.
+ * for a dictionary mixing Latin and Cyrillic
  *
  * @param <T> payload type
  * @author Ruslan Sverchkov
  */
-public class Node<T> {
+public class Node<T> extends AbstractNode<T, Node<T>> {
+
+    /**
+     * Max number of children to be searched linearly, a few comparisons are cheaper than binary search branches.
+     */
+    static final int LINEAR_SEARCH_LIMIT = 8;
+
+    /**
+     * Min number of children to consider a dense table for a non-root node.
+     */
+    static final int DENSE_TABLE_THRESHOLD = 16;
+
+    /**
+     * Min ratio of children to the range of keys for a dense table of a non-root node, 4 means at least 25% of slots
+     * are occupied.
+     */
+    static final int DENSE_TABLE_SPARSENESS = 4;
 
-    private final Node<T> parent;
-    private final int level;
+    /**
+     * Max range of keys for a dense table of the root, 4096 slots take 16 KB at most.
+     */
+    static final int ROOT_DENSE_TABLE_RANGE = 4096;
 
     private TCharObjectHashMap<Node<T>> children;
-    private Node<T> suffix;
-    private T payload;
-    private Node<T> terminalSuffix;
+    private char key;
+    private Node<T> child;
+    private char[] keys;
+    private Node<T>[] table;
+    private long groups = MutableTrie.ALL_GROUPS;
+    private long outputGroups;
 
     /**
      * Create a root node.
@@ -38,91 +70,92 @@ public class Node<T> {
     }
 
     /**
-     * Check if the node is root
+     * Get groups of the pattern ending at the node, see {@link MutableTrie#addCharSequence(CharSequence, Object, long)}.
      *
-     * @return whether the node is root
+     * @return a mask of groups, {@link MutableTrie#ALL_GROUPS} by default
      */
-    public boolean isRoot() {
-        return parent == null;
+    public long getGroups() {
+        return groups;
     }
 
     /**
-     * Check if the node is terminal
+     * Set groups of the pattern ending at the node.
      *
-     * @return whether the node is terminal
+     * @param groups a mask of groups
      */
-    public boolean isTerminal() {
-        return payload != null;
+    public void setGroups(long groups) {
+        this.groups = groups;
     }
 
     /**
-     * Get node level (length of the shortest path between the node and root).
+     * Get the union of groups of all the matches ending at the node: its own pattern and the ones of its terminal
+     * suffixes. Set by {@link Node#init()}.
      *
-     * @return node level
+     * @return a mask of groups, 0 if no match ends at the node
      */
-    public int getLevel() {
-        return level;
+    public long getOutputGroups() {
+        return outputGroups;
     }
 
     /**
-     * Get suffix.
-     *
-     * @return suffix
-     * @throws IllegalArgumentException if suffix is null, it means that the method is called before the trie is
-     *                                  initialized, which makes no sense
+     * Set suffix, terminal suffix, output groups and compact the node.
      */
-    @Nonnull
-    public Node<T> getSuffix() {
-        if (suffix == null) {
-            throw new IllegalStateException("suffix is not set, call setSuffix() first");
-        }
-        return suffix;
-    }
-
-    /**
-     * Get terminal suffix.
-     *
-     * @return terminal suffix, can be null
-     */
-    @Nullable
-    public Node<T> getTerminalSuffix() {
-        return terminalSuffix;
+    @Override
+    public void init() {
+        super.init();
+        // the terminal suffix is on an upper level, so its output groups are already set
+        Node<T> terminalSuffix = getTerminalSuffix();
+        outputGroups = (isTerminal() ? groups : 0) | (terminalSuffix == null ? 0 : terminalSuffix.outputGroups);
     }
 
     /**
-     * Get payload.
-     *
-     * @return payload, can be null if the node is not terminal
+     * Replace the children map with a representation chosen by the number of children and distribution of their
+     * keys, see class comment. No children can be created after the call.
      */
-    @Nullable
-    public T getPayload() {
-        return payload;
+    @Override
+    protected void compactChildren() {
+        if (children == null) {
+            return;
+        }
+        char[] sortedKeys = children.keys();
+        Arrays.sort(sortedKeys);
+        int size = sortedKeys.length;
+        int range = size == 0 ? 0 : sortedKeys[size - 1] - sortedKeys[0] + 1;
+        if (size == 1) {
+            key = sortedKeys[0];
+            child = children.get(key);
+        } else if (useDenseTable(isRoot(), size, range)) {
+            key = sortedKeys[0];
+            table = Tries.newNodeArray(range);
+            for (char c : sortedKeys) {
+                table[c - key] = children.get(c);
+            }
+        } else if (size > 1) {
+            keys = sortedKeys;
+            table = Tries.newNodeArray(size);
+            for (int i = 0; i < size; i++) {
+                table[i] = children.get(sortedKeys[i]);
+            }
+        }
+        children = null;
     }
 
     /**
-     * Set payload.
+     * Check if children of a node are to be stored in a dense table, see class comment.
      *
-     * @param payload payload to set
-     * @throws NullPointerException if payload is null
+     * @param root  whether the node is root
+     * @param size  the number of children
+     * @param range the range of keys of the children, max key - min key + 1
+     * @return whether to use a dense table
      */
-    public void setPayload(@Nonnull T payload) {
-        Validate.notNull(payload);
-        this.payload = payload;
-    }
-
-    /**
-     * Set suffix, terminal suffix and compact the node.
-     */
-    public void init() {
-        Node<T> suffix = findSuffix();
-        setSuffix(suffix);
-        Node<T> terminalSuffix = findTerminalSuffix();
-        if (terminalSuffix != null) {
-            this.terminalSuffix = terminalSuffix;
+    static boolean useDenseTable(boolean root, int size, long range) {
+        if (size < 2) {
+            return false;
         }
-        if (children != null) {
-            children.compact();
+        if (root) {
+            return range <= ROOT_DENSE_TABLE_RANGE;
         }
+        return size >= DENSE_TABLE_THRESHOLD && range <= (long) size * DENSE_TABLE_SPARSENESS;
     }
 
     /**
@@ -133,13 +166,16 @@ public class Node<T> {
      * @throws IllegalArgumentException if the node already has a child corresponding to the specified character
      */
     public Node<T> createChild(char key) {
+        if (isCompacted()) {
+            throw new IllegalStateException("cannot create a child of an initialized node");
+        }
         if (children != null) {
             Validate.isTrue(!children.containsKey(key), MessageFormat.format("child [{0}] already exists",
                     key));
         } else {
             children = new TCharObjectHashMap<>(1);
         }
-        Node<T> child = new Node<>(this, level + 1);
+        Node<T> child = new Node<>(this, getLevel() + 1);
         children.put(key, child);
         return child;
     }
@@ -152,9 +188,45 @@ public class Node<T> {
      */
     @Nullable
     public Node<T> getChild(char key) {
+        if (child != null) {
+            return this.key == key ? child : null;
+        }
+        if (keys != null) {
+            int index = keys.length <= LINEAR_SEARCH_LIMIT ? linearSearch(keys, key) : Arrays.binarySearch(keys,
+                    key);
+            return index < 0 ? null : table[index];
+        }
+        if (table != null) {
+            int index = key - this.key;
+            return index >= 0 && index < table.length ? table[index] : null;
+        }
         return children == null ? null : children.get(key);
     }
 
+    /**
+     * Get the number of children.
+     *
+     * @return the number of children
+     */
+    public int getChildCount() {
+        if (child != null) {
+            return 1;
+        }
+        if (keys != null) {
+            return keys.length;
+        }
+        if (table != null) {
+            int count = 0;
+            for (Node<T> node : table) {
+                if (node != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return children == null ? 0 : children.size();
+    }
+
     /**
      * Call the specified procedure for each child of current node.
      *
@@ -163,34 +235,49 @@ public class Node<T> {
      */
     public void forEachChild(@Nonnull TCharObjectProcedure<? super Node<T>> procedure) {
         Validate.notNull(procedure);
-        if (children == null) {
-            return;
+        if (child != null) {
+            procedure.execute(key, child);
+        } else if (keys != null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (!procedure.execute(keys[i], table[i])) {
+                    return;
+                }
+            }
+        } else if (table != null) {
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] != null && !procedure.execute((char) (key + i), table[i])) {
+                    return;
+                }
+            }
+        } else if (children != null) {
+            children.forEachEntry(procedure);
         }
-        children.forEachEntry(procedure);
     }
 
     /**
-     * A position corresponding to the current node has been found in an input string, traverse the trie starting from
-     * the current node and call the specified handler for each terminal node that will be encountered.
+     * The same as {@link AbstractNode#handleMatch(int, MatchHandler, HitStatistics)} but only matches of the enabled groups
+     * are handled. The walk over terminal suffixes stops as soon as no enabled group is left in their output groups,
+     * so it requires the nodes to be initialized.
      *
-     * Implementation comment:
-     * recursive implementation is good looking but this one is stack overflow free
-     *
-     * @param index   a position in an input string corresponding to the current node
-     * @param handler a match handler
+     * @param index         a position in an input string corresponding to the current node
+     * @param groups        a mask of the enabled groups
+     * @param handler       a match handler
+     * @param hitStatistics hit statistics to update, can be null
      * @return whether to continue matching or not
      * @throws NullPointerException     if handler is null
-     * @throws IllegalArgumentException if index + 1 is lesser than the node level (it means that the match has been
-     *                                  found in a substring that is shorter than the match itself which obviously
-     *                                  cannot happen without programming errors)
+     * @throws IllegalArgumentException if index + 1 is lesser than the node level
      */
-    public boolean handleMatch(int index, @Nonnull MatchHandler<T> handler) {
+    public boolean handleMatch(int index, long groups, @Nonnull MatchHandler<T> handler,
+                               @Nullable HitStatistics<T> hitStatistics) {
         int endOfWordExclusive = index + 1;
-        Validate.isTrue(endOfWordExclusive >= level);
+        Validate.isTrue(endOfWordExclusive >= getLevel());
         Validate.notNull(handler);
         Node<T> current = this;
-        while (current != null) {
-            if (current.isTerminal()) {
+        while (current != null && (current.outputGroups & groups) != 0) {
+            if (current.isTerminal() && (current.groups & groups) != 0) {
+                if (hitStatistics != null) {
+                    hitStatistics.increment(current.getPatternId());
+                }
                 if (!handler.handle(endOfWordExclusive - current.getLevel(), endOfWordExclusive,
                         current.getPayload())) {
                     return false;
@@ -227,57 +314,11 @@ public class Node<T> {
         return sb.toString();
     }
 
-    /**
-     * Find suffix node for current node. Pay attention that by the time we look for suffix of the node on level
-     * N, all suffixes of all nodes on levels from 1 to N-1 must be set. This can be ensured by breadth-first traversal
-     * of the trie.
-     *
-     * @return suffix node for the specified node
-     * @throws NullPointerException  if node is null
-     * @throws IllegalStateException if the method is called before all suffixes of all nodes on higher levels are set
-     */
     @Nonnull
-    protected Node<T> findSuffix() {
-        if (isRoot()) {
-            return this;
-        }
-        if (parent.isRoot()) {
-            return parent; // for direct descendants of the root it is the suffix
-        }
+    @Override
+    protected UnaryOperator<Node<T>> sameKeyChild() {
         char key = getKey();
-        Node<T> parentSuffix = parent.getSuffix(); // get parent suffix
-        Node<T> suffixChild = parentSuffix.getChild(key); // get suffix child corresponding to the key
-        while (suffixChild == null) { // if no such child
-            if (parentSuffix.isRoot()) { // and we're in the root
-                return parentSuffix; // return root
-            }
-            parentSuffix = parentSuffix.getSuffix(); // if we're not in the root, get current node's suffix
-            suffixChild = parentSuffix.getChild(key); // get suffix child corresponding to the key
-        }
-        return suffixChild; // a suitable node is found, return it
-    }
-
-    /**
-     * Find the nearest terminal suffix for current node. Pay attention that by the time we look for a terminal
-     * suffix, all suffixes of all nodes on levels from 1 to N-1 must be set must be set. This can be ensured by
-     * breadth-first traversal of the trie.
-     *
-     * @return the nearest terminal suffix for the specified node, null if there are no candidates
-     * @throws IllegalStateException if the method is called before all suffixes of all nodes on higher levels are set
-     */
-    @Nullable
-    protected Node<T> findTerminalSuffix() {
-        Node<T> currentSuffix = getSuffix();
-        while (true) {
-            if (currentSuffix.isRoot()) {
-                return null;
-            }
-            if (currentSuffix.isTerminal()) {
-                return currentSuffix;
-            }
-            Node<T> current = currentSuffix;
-            currentSuffix = current.getSuffix();
-        }
+        return node -> node.getChild(key);
     }
 
     /**
@@ -290,7 +331,7 @@ public class Node<T> {
         if (isRoot()) {
             throw new IllegalStateException("makes no sense for root");
         }
-        return parent.getChildKey(this);
+        return getParent().getChildKey(this);
     }
 
     /**
@@ -318,17 +359,25 @@ public class Node<T> {
         return ref.get();
     }
 
+    private boolean isCompacted() {
+        return child != null || table != null;
+    }
+
+    private static int linearSearch(@Nonnull char[] keys, char key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /*
     Implementation comment:
     The methods are useful for testing purposes. Even though the class is very simple, it's still a full-fledged state
     machine and for white box testing of a state machine we need an ability to set its state.
      */
 
-    @Nullable
-    public Node<T> getParent() {
-        return parent;
-    }
-
     @Nullable
     protected TCharObjectHashMap<Node<T>> getChildren() {
         return children;
@@ -338,12 +387,14 @@ public class Node<T> {
         this.children = children;
     }
 
-    protected void setSuffix(@Nullable Node<T> suffix) {
-        this.suffix = suffix;
+    @Nullable
+    protected char[] getKeys() {
+        return keys;
     }
 
-    protected void setTerminalSuffix(@Nullable Node<T> terminalSuffix) {
-        this.terminalSuffix = terminalSuffix;
+    @Nullable
+    protected Node<T>[] getTable() {
+        return table;
     }
 
     /**
@@ -357,13 +408,7 @@ public class Node<T> {
      *                                  * parent is not null and level is not > 0
      */
     protected Node(@Nullable Node<T> parent, int level) {
-        if (parent == null) {
-            Validate.isTrue(level == 0);
-        } else {
-            Validate.isTrue(level > 0);
-        }
-        this.parent = parent;
-        this.level = level;
+        super(parent, level);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.function.IntConsumer;
+
+/**
+ * Counter of occurrences of every pattern in a text, for callers that need a histogram rather than the matches, like
+ * term frequencies of a document. Counts are incremented by pattern id as the automaton reports outputs, no match
+ * handler is called and nothing is boxed.
+ *
+ * {@link PatternCounter#count(CharSequence)} keeps counts in an array reused from call to call and clears only the
+ * entries incremented by the previous call. The other overloads add counts to an array or a map of the caller, the
+ * sparse map is meant for huge dictionaries where an array per caller would be too big.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public class PatternCounter<T> {
+
+    private final Automaton<T> automaton;
+    private final TIntArrayList found;
+    private int[] counts;
+
+    /**
+     * Construct an instance of PatternCounter.
+     *
+     * @param automaton automaton to drive, see {@link TrieBuilder#buildAutomaton()}
+     * @throws NullPointerException if automaton is null
+     */
+    public PatternCounter(@Nonnull Automaton<T> automaton) {
+        Validate.notNull(automaton);
+        this.automaton = automaton;
+        found = new TIntArrayList();
+    }
+
+    /**
+     * Count occurrences of every pattern in the specified characters sequence, the counts of the previous call are
+     * discarded. The array of counts is allocated by the first call.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @return the number of distinct patterns found
+     * @throws NullPointerException     if sequence is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    public int count(@Nonnull CharSequence sequence) {
+        Validate.notEmpty(sequence);
+        if (counts == null) {
+            counts = new int[automaton.getPatternCount()];
+        }
+        reset();
+        int[] counts = this.counts;
+        scan(sequence, patternId -> {
+            if (counts[patternId]++ == 0) {
+                found.add(patternId);
+            }
+        });
+        return found.size();
+    }
+
+    /**
+     * Add occurrences of every pattern in the specified characters sequence to the specified array indexed by pattern
+     * id. The array is not cleared, so counts of several texts can be summed up.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param counts   counts to add to, at least {@link Automaton#getPatternCount()} long
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty or counts is too short
+     */
+    public void count(@Nonnull CharSequence sequence, @Nonnull int[] counts) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(counts);
+        Validate.isTrue(counts.length >= automaton.getPatternCount(), "counts are shorter than the pattern count");
+        scan(sequence, patternId -> counts[patternId]++);
+    }
+
+    /**
+     * Add occurrences of every pattern in the specified characters sequence to the specified map from pattern id to
+     * count. The map is not cleared, so counts of several texts can be summed up.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param counts   counts to add to, patterns not found are not added
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    public void count(@Nonnull CharSequence sequence, @Nonnull TIntIntMap counts) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(counts);
+        scan(sequence, patternId -> counts.adjustOrPutValue(patternId, 1, 1));
+    }
+
+    /**
+     * Get the number of occurrences of the specified pattern counted by the last call of
+     * {@link PatternCounter#count(CharSequence)}.
+     *
+     * @param patternId pattern id
+     * @return the number of occurrences
+     * @throws IndexOutOfBoundsException if there is no such pattern
+     */
+    public int getCount(int patternId) {
+        if (patternId < 0 || patternId >= automaton.getPatternCount()) {
+            throw new IndexOutOfBoundsException("no pattern " + patternId);
+        }
+        return counts == null ? 0 : counts[patternId];
+    }
+
+    /**
+     * Get the number of distinct patterns found by the last call of {@link PatternCounter#count(CharSequence)}.
+     *
+     * @return the number of patterns found
+     */
+    public int getFoundCount() {
+        return found.size();
+    }
+
+    /**
+     * Get the id of a pattern found by the last call of {@link PatternCounter#count(CharSequence)}, in the order of
+     * first occurrences. Together with {@link PatternCounter#getFoundCount()} lets the caller visit the non-zero
+     * counts only.
+     *
+     * @param index index of the found pattern, in [0, {@link PatternCounter#getFoundCount()})
+     * @return pattern id
+     * @throws IndexOutOfBoundsException if index is out of the bounds
+     */
+    public int getFoundPatternId(int index) {
+        if (index < 0 || index >= found.size()) {
+            throw new IndexOutOfBoundsException("no found pattern " + index);
+        }
+        return found.getQuick(index);
+    }
+
+    /**
+     * Drive the automaton over the specified characters sequence and pass the pattern id of every match to the
+     * specified consumer.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param counter  a consumer storing a count
+     */
+    private void scan(@Nonnull CharSequence sequence, @Nonnull IntConsumer counter) {
+        Automaton<T> automaton = this.automaton;
+        int length = sequence.length();
+        int state = automaton.root();
+        for (int index = 0; index < length; index++) {
+            state = automaton.step(state, sequence.charAt(index));
+            if (!automaton.hasOutput(state)) {
+                continue;
+            }
+            for (int output = automaton.firstOutput(state); output >= 0; output = automaton.nextOutput(output)) {
+                counter.accept(automaton.getPatternId(output));
+            }
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < found.size(); i++) {
+            counts[found.getQuick(i)] = 0;
+        }
+        found.resetQuick();
+    }
+
+}
\ No newline at end of file
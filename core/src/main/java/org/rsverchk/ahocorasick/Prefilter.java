@@ -0,0 +1,44 @@
+package org.rsverchk.ahocorasick;
+
+import javax.annotation.Nonnull;
+import java.nio.CharBuffer;
+
+/**
+ * A fast search for positions in an input text where a match may begin. The trie asks the prefilter where to continue
+ * when nothing is matched so far or when all the partial matches in progress begin at positions the prefilter has
+ * already rejected, and skips everything in between without entering the automaton. A prefilter may report positions
+ * where no match begins, but it must never skip a position where one does.
+ *
+ * Implementations must be thread-safe.
+ *
+ * @author Ruslan Sverchkov
+ */
+@FunctionalInterface
+public interface Prefilter {
+
+    /**
+     * Find the next position in the specified characters sequence where a match may begin.
+     *
+     * @param sequence  a characters sequence to look for matches in
+     * @param fromIndex the index to start from, inclusive
+     * @return the smallest index i >= fromIndex at which a match may begin, sequence.length() if there is none
+     * @throws NullPointerException if sequence is null
+     */
+    int next(@Nonnull CharSequence sequence, int fromIndex);
+
+    /**
+     * Find the next position in the specified range of a char array where a match may begin. Called by
+     * {@link Trie#match(char[], int, int, MatchHandler)}, so that implementations can scan the array in place. By
+     * default the array is wrapped into a characters sequence.
+     *
+     * @param array     a char array to look for matches in
+     * @param fromIndex the index to start from, inclusive
+     * @param toIndex   the end of the range, exclusive
+     * @return the smallest index i >= fromIndex at which a match may begin, toIndex if there is none
+     * @throws NullPointerException if array is null
+     */
+    default int next(@Nonnull char[] array, int fromIndex, int toIndex) {
+        return next(CharBuffer.wrap(array, 0, toIndex), fromIndex);
+    }
+
+}
\ No newline at end of file
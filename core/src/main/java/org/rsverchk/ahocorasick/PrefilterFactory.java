@@ -0,0 +1,23 @@
+package org.rsverchk.ahocorasick;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A function used to create a {@link Prefilter} for a trie once all characters sequences are added to it.
+ *
+ * @author Ruslan Sverchkov
+ */
+@FunctionalInterface
+public interface PrefilterFactory {
+
+    /**
+     * Create a prefilter for the specified trie.
+     *
+     * @param trie an initialized trie
+     * @return a prefilter
+     * @throws NullPointerException if trie is null
+     */
+    @Nonnull
+    Prefilter create(@Nonnull MutableTrie<?> trie);
+
+}
\ No newline at end of file
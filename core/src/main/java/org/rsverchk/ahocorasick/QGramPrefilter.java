@@ -0,0 +1,251 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A Wu-Manber style {@link Prefilter} for large dictionaries with rare matches. Every added characters sequence is at
+ * least m characters long, m is the length of the shortest one, so a match may begin at a position only if the m
+ * characters starting at it are a prefix of an added sequence. The prefilter checks windows of m characters by the
+ * q-gram at the end of a window: a table of q-gram hashes gives the distance from the q-gram to the end of the
+ * closest prefix containing it, and the window is shifted by this distance without reading the characters in
+ * between. When the distance is 0, the first q-gram of the window is checked against a bloom-style bitset of the first
+ * q-grams of all the prefixes, and the trie is entered only if it passes.
+ *
+ * Both tables are indexed by hashes, collisions only make shifts shorter and let more windows through, so matching
+ * results are exactly the same as without the prefilter. The tables occupy a few bytes per added sequence regardless
+ * of the number of trie nodes, and the longer the shortest added sequence is, the longer shifts are.
+ *
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public final class QGramPrefilter implements Prefilter {
+
+    private static final int MIN_TABLE_SIZE = 1 << 8;
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+    private static final int MAX_SHIFT = Byte.MAX_VALUE;
+
+    private final CharConverter converter;
+    private final int minLength;
+    private final int q;
+    private final int mask;
+    private final byte[] shifts;
+    private final long[] firstGrams;
+
+    /**
+     * Get a factory creating q-gram prefilters with q-gram length chosen by the dictionary, see
+     * {@link QGramPrefilter#create(MutableTrie)}.
+     *
+     * @return a prefilter factory
+     */
+    @Nonnull
+    public static PrefilterFactory factory() {
+        return QGramPrefilter::create;
+    }
+
+    /**
+     * Get a factory creating q-gram prefilters with the specified q-gram length. Longer q-grams are more selective,
+     * but shifts are shorter.
+     *
+     * @param q q-gram length, shortened to the length of the shortest added sequence if it's longer
+     * @return a prefilter factory
+     * @throws IllegalArgumentException if q is not positive
+     */
+    @Nonnull
+    public static PrefilterFactory factory(int q) {
+        Validate.isTrue(q > 0);
+        return trie -> create(trie, q);
+    }
+
+    /**
+     * Create a prefilter for the specified trie. The q-gram length is log(2 * m * k) to the base of the alphabet size,
+     * where k is the number of prefixes, as suggested by Wu and Manber: q-grams of this length are rare enough to
+     * make most shifts non-zero.
+     *
+     * @param trie an initialized trie
+     * @return a prefilter
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    @Nonnull
+    public static QGramPrefilter create(@Nonnull MutableTrie<?> trie) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        List<String> prefixes = findPrefixes(trie);
+        return new QGramPrefilter(trie.getConverter(), chooseQ(prefixes), prefixes);
+    }
+
+    /**
+     * Create a prefilter for the specified trie.
+     *
+     * @param trie an initialized trie
+     * @param q    q-gram length, shortened to the length of the shortest added sequence if it's longer
+     * @return a prefilter
+     * @throws NullPointerException     if trie is null
+     * @throws IllegalArgumentException if q is not positive
+     * @throws IllegalStateException    if the trie is not initialized
+     */
+    @Nonnull
+    public static QGramPrefilter create(@Nonnull MutableTrie<?> trie, int q) {
+        Validate.notNull(trie);
+        Validate.isTrue(q > 0);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        return new QGramPrefilter(trie.getConverter(), q, findPrefixes(trie));
+    }
+
+    @Override
+    public int next(@Nonnull CharSequence sequence, int fromIndex) {
+        int length = sequence.length();
+        if (minLength == 0) {
+            return length;
+        }
+        // the last index of the window
+        int end = fromIndex + minLength - 1;
+        while (end < length) {
+            int shift = shifts[hash(sequence, end - q + 1, converter) & mask];
+            if (shift == 0) {
+                int start = end - minLength + 1;
+                if (isFirstGram(hash(sequence, start, converter))) {
+                    return start;
+                }
+                shift = 1;
+            }
+            end += shift;
+        }
+        // too short for any added sequence
+        return length;
+    }
+
+    /**
+     * Get the length of the shortest added sequence, the window length.
+     *
+     * @return the length of the shortest added sequence, 0 if there are none
+     */
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Get the q-gram length actually used.
+     *
+     * @return the q-gram length
+     */
+    public int getQ() {
+        return q;
+    }
+
+    /**
+     * Compute a hash of q characters starting at the specified index.
+     *
+     * @param sequence  characters sequence
+     * @param from      the index of the first character
+     * @param converter characters converter to apply before hashing
+     * @return hash
+     */
+    private int hash(@Nonnull CharSequence sequence, int from, @Nonnull CharConverter converter) {
+        int hash = 0;
+        for (int i = from; i < from + q; i++) {
+            hash = (hash + converter.convert(sequence.charAt(i))) * 0x9E3779B1;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean isFirstGram(int hash) {
+        // two bits per q-gram, the second one taken from the high bits of the hash
+        int first = hash & mask;
+        int second = (hash >>> 11 ^ hash << 5) & mask;
+        return (firstGrams[first >>> 6] & 1L << first) != 0 && (firstGrams[second >>> 6] & 1L << second) != 0;
+    }
+
+    private void addFirstGram(int hash) {
+        int first = hash & mask;
+        int second = (hash >>> 11 ^ hash << 5) & mask;
+        firstGrams[first >>> 6] |= 1L << first;
+        firstGrams[second >>> 6] |= 1L << second;
+    }
+
+    private static int chooseQ(@Nonnull List<String> prefixes) {
+        if (prefixes.isEmpty()) {
+            return 1;
+        }
+        BitSet alphabet = new BitSet();
+        for (String prefix : prefixes) {
+            for (int i = 0; i < prefix.length(); i++) {
+                alphabet.set(prefix.charAt(i));
+            }
+        }
+        double entries = 2.0 * prefixes.get(0).length() * prefixes.size();
+        return (int) Math.ceil(Math.log(entries) / Math.log(Math.max(2, alphabet.cardinality())));
+    }
+
+    /**
+     * Find prefixes of the length of the shortest added sequence, after conversion.
+     *
+     * @param trie an initialized trie
+     * @param <T>  payload type
+     * @return distinct prefixes
+     */
+    @Nonnull
+    private static <T> List<String> findPrefixes(@Nonnull MutableTrie<T> trie) {
+        List<Node<T>> terminals = new ArrayList<>();
+        trie.breadthFirstTraversal((c, node) -> {
+            if (node.isTerminal()) {
+                terminals.add(node);
+            }
+        });
+        int minLength = Integer.MAX_VALUE;
+        for (Node<T> terminal : terminals) {
+            minLength = Math.min(minLength, terminal.getLevel());
+        }
+        List<String> prefixes = new ArrayList<>();
+        if (terminals.isEmpty()) {
+            return prefixes;
+        }
+        int length = minLength;
+        trie.breadthFirstTraversal((c, node) -> {
+            if (node.getLevel() == length) {
+                char[] prefix = new char[length];
+                for (Node<T> current = node; !current.isRoot(); current = current.getParent()) {
+                    prefix[current.getLevel() - 1] = current.getKey();
+                }
+                prefixes.add(new String(prefix));
+            }
+        });
+        return prefixes;
+    }
+
+    private QGramPrefilter(@Nonnull CharConverter converter, int q, @Nonnull List<String> prefixes) {
+        this.converter = converter;
+        this.minLength = prefixes.isEmpty() ? 0 : prefixes.get(0).length();
+        this.q = Math.max(1, Math.min(q, minLength));
+        int size = MIN_TABLE_SIZE;
+        long entries = (long) prefixes.size() * (minLength - this.q + 1);
+        while (size < MAX_TABLE_SIZE && size < entries * 4) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.shifts = new byte[size];
+        this.firstGrams = new long[size >>> 6];
+        Arrays.fill(shifts, (byte) Math.min(minLength - this.q + 1, MAX_SHIFT));
+        // prefixes are converted already
+        CharConverter identity = c -> c;
+        for (String prefix : prefixes) {
+            for (int end = this.q - 1; end < minLength; end++) {
+                int slot = hash(prefix, end - this.q + 1, identity) & mask;
+                shifts[slot] = (byte) Math.min(shifts[slot], minLength - 1 - end);
+            }
+            addFirstGram(hash(prefix, 0, identity));
+        }
+    }
+
+}
\ No newline at end of file
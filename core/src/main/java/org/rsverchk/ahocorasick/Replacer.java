@@ -0,0 +1,301 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.function.IntFunction;
+
+/**
+ * Replacer of the patterns found in a text, for redacting or rewriting dictionary terms in large texts. The input is
+ * read once and written to an {@link Appendable} as it goes, so neither the input nor the output is edited in place
+ * and no offsets are shifted. The same works for a whole string and for a {@link Reader}.
+ *
+ * Overlapping matches are resolved leftmost-longest: the match beginning first wins, of the ones beginning at the
+ * same index the longest wins, and the text is scanned on from the end of the winner. A match can only be chosen once
+ * no longer one beginning at the same index or earlier can be reported, that is once {@link Automaton#getMaxLength()}
+ * characters following its beginning have been read. So the replacer keeps no more than about that number of
+ * characters, whatever the length of the input.
+ *
+ * Buffers are reused from call to call. Hit statistics are not counted.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public class Replacer<T> {
+
+    /**
+     * Min number of characters kept, the input is read by chunks of this size.
+     */
+    static final int MIN_BUFFER_SIZE = 1024;
+
+    private final Automaton<T> automaton;
+    private final IntFunction<? extends CharSequence> replacements;
+    private final char mask;
+    private final int maxLength;
+    private final char[] chunk;
+    // characters at positions [bufferStart, bufferStart + bufferLength) of the input
+    private final char[] buffer;
+    // matches reported but not chosen yet which don't overlap the candidate and begin after it
+    private final TLongArrayList begins;
+    private final TLongArrayList ends;
+    private final TIntArrayList patternIds;
+
+    private Appendable output;
+    private int state;
+    private long position;
+    private long bufferStart;
+    private int bufferLength;
+    // the first position neither written nor replaced, matches beginning before it are discarded
+    private long written;
+    // the leftmost-longest match so far, candidateEnd is -1 if there is none
+    private long candidateBegin;
+    private long candidateEnd;
+    private int candidatePatternId;
+
+    /**
+     * Construct an instance of Replacer replacing every match with the replacement of its pattern.
+     *
+     * @param automaton    automaton to drive, see {@link TrieBuilder#buildAutomaton()}
+     * @param replacements a function returning the replacement of a pattern by its id, never null
+     * @throws NullPointerException if any of the arguments is null
+     */
+    public Replacer(@Nonnull Automaton<T> automaton, @Nonnull IntFunction<? extends CharSequence> replacements) {
+        this(automaton, replacements, (char) 0);
+        Validate.notNull(replacements);
+    }
+
+    /**
+     * Construct an instance of Replacer redacting every match: each of its characters is replaced with the mask.
+     *
+     * @param automaton automaton to drive, see {@link TrieBuilder#buildAutomaton()}
+     * @param mask      a character to replace the characters of matches with
+     * @throws NullPointerException if automaton is null
+     */
+    public Replacer(@Nonnull Automaton<T> automaton, char mask) {
+        this(automaton, null, mask);
+    }
+
+    private Replacer(@Nonnull Automaton<T> automaton, @Nullable IntFunction<? extends CharSequence> replacements,
+                     char mask) {
+        Validate.notNull(automaton);
+        this.automaton = automaton;
+        this.replacements = replacements;
+        this.mask = mask;
+        maxLength = automaton.getMaxLength();
+        chunk = new char[MIN_BUFFER_SIZE];
+        // whatever is kept after a flush, there is room for a chunk
+        buffer = new char[maxLength + MIN_BUFFER_SIZE];
+        begins = new TLongArrayList();
+        ends = new TLongArrayList();
+        patternIds = new TIntArrayList();
+    }
+
+    /**
+     * Replace the matches in the specified characters sequence.
+     *
+     * @param sequence a characters sequence to replace matches in
+     * @return the sequence with the matches replaced
+     * @throws NullPointerException if sequence is null or a replacement is null
+     */
+    @Nonnull
+    public String replace(@Nonnull CharSequence sequence) {
+        StringBuilder builder = new StringBuilder(sequence.length());
+        try {
+            replace(sequence, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder doesn't throw it
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Replace the matches in the specified characters sequence, write the result to the specified output.
+     *
+     * @param sequence a characters sequence to replace matches in
+     * @param output   output to write the result to
+     * @throws NullPointerException if any of the arguments is null or a replacement is null
+     * @throws IOException          if the output cannot be written
+     */
+    public void replace(@Nonnull CharSequence sequence, @Nonnull Appendable output) throws IOException {
+        Validate.notNull(sequence);
+        Validate.notNull(output);
+        start(output);
+        int length = sequence.length();
+        for (int from = 0; from < length; from += chunk.length) {
+            int to = Math.min(length, from + chunk.length);
+            for (int i = from; i < to; i++) {
+                chunk[i - from] = sequence.charAt(i);
+            }
+            consume(to - from);
+        }
+        finish();
+    }
+
+    /**
+     * Replace the matches in the characters read from the specified input until its end, write the result to the
+     * specified output. The input is not closed.
+     *
+     * @param input  input to read from
+     * @param output output to write the result to
+     * @throws NullPointerException if any of the arguments is null or a replacement is null
+     * @throws IOException          if the input cannot be read or the output cannot be written
+     */
+    public void replace(@Nonnull Reader input, @Nonnull Appendable output) throws IOException {
+        Validate.notNull(input);
+        Validate.notNull(output);
+        start(output);
+        int read;
+        while ((read = input.read(chunk, 0, chunk.length)) >= 0) {
+            consume(read);
+        }
+        finish();
+    }
+
+    private void start(@Nonnull Appendable output) {
+        this.output = output;
+        state = automaton.root();
+        position = 0;
+        bufferStart = 0;
+        bufferLength = 0;
+        written = 0;
+        candidateEnd = -1;
+        begins.resetQuick();
+        ends.resetQuick();
+        patternIds.resetQuick();
+    }
+
+    /**
+     * Consume the first characters of the chunk.
+     */
+    private void consume(int count) throws IOException {
+        if (bufferLength + count > buffer.length) {
+            flush();
+        }
+        System.arraycopy(chunk, 0, buffer, bufferLength, count);
+        bufferLength += count;
+        Automaton<T> automaton = this.automaton;
+        for (int i = 0; i < count; i++) {
+            state = automaton.step(state, chunk[i]);
+            position++;
+            if (automaton.hasOutput(state)) {
+                for (int output = automaton.firstOutput(state); output >= 0; output = automaton.nextOutput(output)) {
+                    offer(position - automaton.getLength(output), position, automaton.getPatternId(output));
+                }
+            }
+            // no match reported later begins at or before the candidate
+            while (candidateEnd >= 0 && candidateBegin + maxLength <= position) {
+                choose();
+            }
+        }
+    }
+
+    private void offer(long begin, long end, int patternId) {
+        if (begin < written) {
+            return;
+        }
+        if (candidateEnd < 0 || begin < candidateBegin || begin == candidateBegin && end > candidateEnd) {
+            // the new candidate ends at least where the old one does, so it overlaps the old one
+            candidateBegin = begin;
+            candidateEnd = end;
+            candidatePatternId = patternId;
+        } else if (begin >= candidateEnd) {
+            // the candidate can only be replaced by a match ending later, so the overlapping ones are never chosen
+            begins.add(begin);
+            ends.add(end);
+            patternIds.add(patternId);
+        }
+    }
+
+    /**
+     * Replace the candidate and find the next one among the matches following it.
+     */
+    private void choose() throws IOException {
+        write(written, candidateBegin);
+        if (replacements == null) {
+            for (long i = candidateBegin; i < candidateEnd; i++) {
+                output.append(mask);
+            }
+        } else {
+            CharSequence replacement = replacements.apply(candidatePatternId);
+            Validate.notNull(replacement, "no replacement of pattern %d", candidatePatternId);
+            output.append(replacement);
+        }
+        written = candidateEnd;
+        candidateEnd = -1;
+        int size = begins.size();
+        for (int i = 0; i < size; i++) {
+            // offered in the order of ends, so of the ones beginning at the same index the longest one comes last;
+            // the ones kept for a former candidate may overlap the replaced one
+            long begin = begins.getQuick(i);
+            if (begin >= written && (candidateEnd < 0 || begin <= candidateBegin)) {
+                candidateBegin = begin;
+                candidateEnd = ends.getQuick(i);
+                candidatePatternId = patternIds.getQuick(i);
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (begins.getQuick(i) >= candidateEnd && candidateEnd >= 0) {
+                begins.setQuick(kept, begins.getQuick(i));
+                ends.setQuick(kept, ends.getQuick(i));
+                patternIds.setQuick(kept, patternIds.getQuick(i));
+                kept++;
+            }
+        }
+        begins.remove(kept, size - kept);
+        ends.remove(kept, size - kept);
+        patternIds.remove(kept, size - kept);
+    }
+
+    /**
+     * Write the characters no match reported later can include and drop them from the buffer.
+     */
+    private void flush() throws IOException {
+        long end = Math.min(position, position + 1 - maxLength);
+        if (candidateEnd >= 0) {
+            end = Math.min(end, candidateBegin);
+        }
+        if (end > written) {
+            write(written, end);
+            written = end;
+        }
+        int dropped = (int) (written - bufferStart);
+        System.arraycopy(buffer, dropped, buffer, 0, bufferLength - dropped);
+        bufferStart = written;
+        bufferLength -= dropped;
+    }
+
+    private void finish() throws IOException {
+        while (candidateEnd >= 0) {
+            choose();
+        }
+        write(written, position);
+        output = null;
+    }
+
+    private void write(long begin, long end) throws IOException {
+        int offset = (int) (begin - bufferStart);
+        int length = (int) (end - begin);
+        if (length <= 0) {
+            return;
+        }
+        if (output instanceof Writer) {
+            ((Writer) output).write(buffer, offset, length);
+        } else if (output instanceof StringBuilder) {
+            ((StringBuilder) output).append(buffer, offset, length);
+        } else {
+            output.append(CharBuffer.wrap(buffer, offset, length));
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Set-Horspool implementation, a backward scanning alternative to Aho-Corasick for dictionaries of few long
+ * characters sequences.
+ *
+ * The trie checks possible ends of matches only. At every such position it walks a trie of reversed added sequences
+ * backwards through the input text, then shifts to the next position by a distance looked up by the character at the
+ * current one. The shift is the distance from the character to the end of an added sequence, the smallest one among
+ * the last lmin characters of all the added sequences, lmin is the length of the shortest added sequence. So the
+ * shift never exceeds lmin, and the longer the added sequences are, the longer the shifts are.
+ *
+ * Matches are reported exactly like {@link MutableTrie} reports them: in order of their ending indexes, the longest
+ * one first for the same ending index. The worst case is O(n * lmax) though, not O(n), so the trie is a bad choice for
+ * dictionaries with short sequences or input texts with many partial matches.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class SetHorspoolTrie<T> implements Trie<T> {
+
+    /*
+    Implementation comment:
+    shifts are looked up by the lowest 8 bits of a converted character, characters sharing them share the smallest
+    shift. It keeps the table small enough for L1 cache, and shifts are still safe, just shorter for rare collisions.
+     */
+    private static final int SHIFT_MASK = 0xFF;
+
+    private final CharConverter converter;
+    private final Node<T> root;
+    // the trie the reversed one is built from, kept for lookups
+    private final Node<T> forwardRoot;
+    private final int[] shifts;
+    private final int minLength;
+    private final int maxLength;
+    private final HitStatistics<T> hitStatistics;
+
+    /**
+     * Construct an instance of SetHorspoolTrie from added sequences of the specified trie.
+     *
+     * @param trie an initialized trie
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    public SetHorspoolTrie(@Nonnull MutableTrie<T> trie) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        converter = trie.getConverter();
+        hitStatistics = trie.getHitStatistics();
+        forwardRoot = trie.getRoot();
+        List<Node<T>> terminals = new ArrayList<>();
+        trie.breadthFirstTraversal((c, node) -> {
+            if (node.isTerminal()) {
+                terminals.add(node);
+            }
+        });
+        int min = terminals.isEmpty() ? 0 : Integer.MAX_VALUE;
+        int max = 0;
+        for (Node<T> terminal : terminals) {
+            min = Math.min(min, terminal.getLevel());
+            max = Math.max(max, terminal.getLevel());
+        }
+        minLength = min;
+        maxLength = max;
+        shifts = new int[SHIFT_MASK + 1];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = Math.max(minLength, 1);
+        }
+        root = Node.root();
+        for (Node<T> terminal : terminals) {
+            addReversed(terminal);
+        }
+        compact(root);
+    }
+
+    /**
+     * Match the specified characters sequence against the trie. Call the specified handler when a match is found.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        scan(sequence, MutableTrie.ALL_GROUPS, handler);
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#match(CharSequence, long, MatchHandler)}. Shifts are the same whatever the groups, a match of
+     * a disabled group is skipped when the walk backwards reaches it.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    @Override
+    public void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        if (groups != 0) {
+            scan(sequence, groups, handler);
+        }
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * The reversed trie can only be walked backwards from an end, so the trie it's built from is walked instead.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if offset is the length of sequence
+     * @throws IndexOutOfBoundsException if offset is out of the sequence bounds
+     */
+    @Override
+    public void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, sequence.length(), sequence.length());
+        Tries.allPrefixMatches(forwardRoot, converter, sequence, offset, handler);
+    }
+
+    private void scan(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        if (minLength == 0) {
+            return;
+        }
+        Node<T>[] found = Tries.newNodeArray(maxLength);
+        int length = sequence.length();
+        int end = minLength - 1;
+        while (end < length) {
+            char last = converter.convert(sequence.charAt(end));
+            int count = 0;
+            int index = end;
+            Node<T> node = root.getChild(last);
+            while (node != null) {
+                if (node.isTerminal() && (node.getGroups() & groups) != 0) {
+                    found[count++] = node;
+                }
+                if (--index < 0) {
+                    break;
+                }
+                node = node.getChild(converter.convert(sequence.charAt(index)));
+            }
+            // found from the shortest to the longest
+            for (int i = count - 1; i >= 0; i--) {
+                if (!handleMatch(found[i], end + 1, handler)) {
+                    return;
+                }
+            }
+            end += shifts[last & SHIFT_MASK];
+        }
+    }
+
+    /**
+     * Get the length of the shortest added sequence, which is the longest possible shift.
+     *
+     * @return the length of the shortest added sequence, 0 if there are none
+     */
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Get a shift for the specified converted character. Mostly for testing purposes.
+     *
+     * @param c converted character
+     * @return the distance to the next position to check
+     */
+    protected int getShift(char c) {
+        return shifts[c & SHIFT_MASK];
+    }
+
+    /**
+     * Add the sequence corresponding to the specified terminal node to the reversed trie and update shifts.
+     *
+     * @param terminal a terminal node of a trie
+     */
+    private void addReversed(@Nonnull Node<T> terminal) {
+        Node<T> current = root;
+        int distance = 0;
+        for (Node<T> node = terminal; !node.isRoot(); node = node.getParent()) {
+            char key = node.getKey();
+            if (distance > 0 && distance < minLength) {
+                int slot = key & SHIFT_MASK;
+                shifts[slot] = Math.min(shifts[slot], distance);
+            }
+            Node<T> next = current.getChild(key);
+            if (next == null) {
+                next = current.createChild(key);
+            }
+            current = next;
+            distance++;
+        }
+        current.setPatternId(terminal.getPatternId());
+        current.setPayload(terminal.getPayload());
+        current.setGroups(terminal.getGroups());
+    }
+
+    private boolean handleMatch(@Nonnull Node<T> node, int endIndex, @Nonnull MatchHandler<T> handler) {
+        if (hitStatistics != null) {
+            hitStatistics.increment(node.getPatternId());
+        }
+        return handler.handle(endIndex - node.getLevel(), endIndex, node.getPayload());
+    }
+
+    private static <T> void compact(@Nonnull Node<T> root) {
+        Queue<Node<T>> queue = new LinkedList<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node<T> node = queue.remove();
+            node.forEachChild((char key, Node<T> child) -> {
+                queue.add(child);
+                return true;
+            });
+            node.compactChildren();
+        }
+    }
+
+}
\ No newline at end of file
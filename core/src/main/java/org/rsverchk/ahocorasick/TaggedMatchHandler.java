@@ -0,0 +1,25 @@
+package org.rsverchk.ahocorasick;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Handle match of a substring of the input text to a pattern of one of the dictionaries of a {@link UnionTrie}.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@FunctionalInterface
+public interface TaggedMatchHandler<T> {
+
+    /**
+     * Handle match of a substring of the input text to a pattern of a dictionary.
+     *
+     * @param dictionary the dictionary the pattern has been added to
+     * @param beginIndex the beginning index of the match in the input text, inclusive.
+     * @param endIndex   the ending index of the match in the input text, exclusive.
+     * @param payload    the payload the pattern has been added with to the dictionary
+     * @return whether to continue matching or not
+     */
+    boolean handle(int dictionary, int beginIndex, int endIndex, @Nonnull T payload);
+
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.procedure.TIntObjectProcedure;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Trie node over an int alphabet, the counterpart of {@link Node} for {@link TokenTrie}. Suffixes, terminal suffixes
+ * and reporting of matches are shared by {@link AbstractNode}, compaction of children follows {@link Node}.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+public class TokenNode<T> extends AbstractNode<T, TokenNode<T>> {
+
+    private final int label;
+
+    private TIntObjectHashMap<TokenNode<T>> children;
+    private int key;
+    private TokenNode<T> child;
+    private int[] keys;
+    private TokenNode<T>[] table;
+
+    /**
+     * Create a root node.
+     *
+     * @param <T> payload type
+     * @return a root node
+     */
+    public static <T> TokenNode<T> root() {
+        return new TokenNode<>(null, 0, 0);
+    }
+
+    /**
+     * Get a token corresponding to current node.
+     *
+     * @return a token corresponding to current node
+     * @throws IllegalStateException if current node is root, the operation makes no sense for root
+     */
+    public int getKey() {
+        if (isRoot()) {
+            throw new IllegalStateException("makes no sense for root");
+        }
+        return label;
+    }
+
+    /**
+     * Replace the children map with a representation chosen by the number of children and distribution of their
+     * keys, see {@link Node}. No children can be created after the call.
+     */
+    @Override
+    protected void compactChildren() {
+        if (children == null) {
+            return;
+        }
+        int[] sortedKeys = children.keys();
+        Arrays.sort(sortedKeys);
+        int size = sortedKeys.length;
+        long range = size == 0 ? 0 : (long) sortedKeys[size - 1] - sortedKeys[0] + 1;
+        if (size == 1) {
+            key = sortedKeys[0];
+            child = children.get(key);
+        } else if (Node.useDenseTable(isRoot(), size, range)) {
+            key = sortedKeys[0];
+            table = Tries.newTokenNodeArray((int) range);
+            for (int token : sortedKeys) {
+                table[token - key] = children.get(token);
+            }
+        } else if (size > 1) {
+            keys = sortedKeys;
+            table = Tries.newTokenNodeArray(size);
+            for (int i = 0; i < size; i++) {
+                table[i] = children.get(sortedKeys[i]);
+            }
+        }
+        children = null;
+    }
+
+    /**
+     * Create a child for the node.
+     *
+     * @param key a token corresponding to the child
+     * @return the child
+     * @throws IllegalArgumentException if the node already has a child corresponding to the specified token
+     * @throws IllegalStateException    if the node is already compacted
+     */
+    @Nonnull
+    public TokenNode<T> createChild(int key) {
+        if (child != null || table != null) {
+            throw new IllegalStateException("cannot create a child of an initialized node");
+        }
+        if (children != null) {
+            Validate.isTrue(!children.containsKey(key), MessageFormat.format("child [{0}] already exists", key));
+        } else {
+            children = new TIntObjectHashMap<>(1);
+        }
+        TokenNode<T> child = new TokenNode<>(this, getLevel() + 1, key);
+        children.put(key, child);
+        return child;
+    }
+
+    /**
+     * Get a child corresponding to the specified token.
+     *
+     * @param key token
+     * @return a child corresponding to the specified token if exists, null otherwise
+     */
+    @Nullable
+    public TokenNode<T> getChild(int key) {
+        if (child != null) {
+            return this.key == key ? child : null;
+        }
+        if (keys != null) {
+            int index = keys.length <= Node.LINEAR_SEARCH_LIMIT ? linearSearch(keys, key) : Arrays.binarySearch(keys,
+                    key);
+            return index < 0 ? null : table[index];
+        }
+        if (table != null) {
+            // in long, keys can be anywhere in the int range
+            long index = (long) key - this.key;
+            return index >= 0 && index < table.length ? table[(int) index] : null;
+        }
+        return children == null ? null : children.get(key);
+    }
+
+    /**
+     * Get the number of children.
+     *
+     * @return the number of children
+     */
+    public int getChildCount() {
+        if (child != null) {
+            return 1;
+        }
+        if (keys != null) {
+            return keys.length;
+        }
+        if (table != null) {
+            int count = 0;
+            for (TokenNode<T> node : table) {
+                if (node != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return children == null ? 0 : children.size();
+    }
+
+    /**
+     * Call the specified procedure for each child of current node.
+     *
+     * @param procedure procedure to call
+     * @throws NullPointerException if procedure is null
+     */
+    public void forEachChild(@Nonnull TIntObjectProcedure<? super TokenNode<T>> procedure) {
+        Validate.notNull(procedure);
+        if (child != null) {
+            procedure.execute(key, child);
+        } else if (keys != null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (!procedure.execute(keys[i], table[i])) {
+                    return;
+                }
+            }
+        } else if (table != null) {
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] != null && !procedure.execute(key + i, table[i])) {
+                    return;
+                }
+            }
+        } else if (children != null) {
+            children.forEachEntry(procedure);
+        }
+    }
+
+    @Nonnull
+    @Override
+    protected UnaryOperator<TokenNode<T>> sameKeyChild() {
+        int key = getKey();
+        return node -> node.getChild(key);
+    }
+
+    private static int linearSearch(@Nonnull int[] keys, int key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+    Implementation comment:
+    The methods are useful for testing purposes, see Node.
+     */
+
+    @Nullable
+    protected int[] getKeys() {
+        return keys;
+    }
+
+    @Nullable
+    protected TokenNode<T>[] getTable() {
+        return table;
+    }
+
+    /**
+     * Create an instance of TokenNode. If parent is null and level is 0, the node is considered to be a root node.
+     * If parent is not null and level is > 0, the node is considered to be a simple node.
+     *
+     * @param parent node parent
+     * @param level  node level
+     * @param label  a token corresponding to the node, ignored for root
+     * @throws IllegalArgumentException if:
+     *                                  * parent is null and level is not 0
+     *                                  * parent is not null and level is not > 0
+     */
+    protected TokenNode(@Nullable TokenNode<T> parent, int level, int label) {
+        super(parent, level);
+        this.label = label;
+    }
+
+}
\ No newline at end of file
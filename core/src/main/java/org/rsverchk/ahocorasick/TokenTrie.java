@@ -0,0 +1,196 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick implementation over an int alphabet, for texts that are already tokenized into int ids, like words of
+ * a phrase dictionary. A phrase of N tokens takes N transitions instead of one per character, and matches can only
+ * begin and end on token boundaries. Insertion, suffixes and outputs are the same as in {@link MutableTrie}, as well
+ * as the valid usage of methods:
+ * 1) add as much tokens sequences as you need using {@link TokenTrie#addTokens(int[], Object)}
+ * 2) initialize the trie using {@link TokenTrie#init()}
+ * 3) now you can perform matching using {@link TokenTrie#match(int[], MatchHandler)}, begin and end indices passed to
+ * the handler are token indices
+ * Illegal sequence of calls will lead to IllegalStateException.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public class TokenTrie<T> {
+
+    private final List<TokenNode<T>> terminals;
+    private final TokenNode<T> root;
+    private boolean built;
+    private HitStatistics<T> hitStatistics;
+
+    /**
+     * Construct an instance of TokenTrie.
+     */
+    public TokenTrie() {
+        terminals = new ArrayList<>();
+        root = TokenNode.root();
+        built = false;
+    }
+
+    /**
+     * Add the specified tokens sequence to the trie. Every distinct sequence gets a pattern id, its index in order of
+     * addition. Adding the same sequence again replaces the payload but keeps the pattern id.
+     *
+     * @param tokens  a tokens sequence to add, it's not retained
+     * @param payload payload associated with the sequence, can be any useful information
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if tokens is empty
+     * @throws IllegalStateException    if called on already initialized trie
+     */
+    public void addTokens(@Nonnull int[] tokens, @Nonnull T payload) {
+        Validate.notNull(tokens);
+        Validate.isTrue(tokens.length > 0, "tokens is empty");
+        Validate.notNull(payload);
+        if (built) {
+            throw new IllegalStateException("cannot modify an initialized trie");
+        }
+        TokenNode<T> current = root;
+        for (int token : tokens) {
+            TokenNode<T> next = current.getChild(token);
+            if (next == null) {
+                next = current.createChild(token);
+            }
+            current = next;
+        }
+        if (!current.isTerminal()) {
+            current.setPatternId(terminals.size());
+            terminals.add(current);
+        }
+        current.setPayload(payload);
+    }
+
+    /**
+     * Set suffix, terminal suffix and compact all trie nodes.
+     *
+     * @throws IllegalStateException if called on already initialized trie
+     */
+    public void init() {
+        if (built) {
+            throw new IllegalStateException("cannot modify an initialized trie");
+        }
+        root.init();
+        Queue<TokenNode<T>> queue = new LinkedList<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            queue.remove().forEachChild((int key, TokenNode<T> node) -> {
+                node.init();
+                queue.add(node);
+                return true;
+            });
+        }
+        built = true;
+    }
+
+    /**
+     * Match the specified tokens sequence against the trie. Call the specified handler when a match is found.
+     *
+     * @param tokens  a tokens sequence to look for matches in
+     * @param handler a handler to call when a match is found, indices are token indices
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if tokens is empty
+     * @throws IllegalStateException    if called on not initialized trie
+     */
+    public void match(@Nonnull int[] tokens, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(tokens);
+        match(tokens, 0, tokens.length, handler);
+    }
+
+    /**
+     * Match the specified range of a tokens sequence against the trie, for example a sentence of a tokenized
+     * document. Call the specified handler when a match is found, indices passed to the handler are indices in the
+     * whole sequence.
+     *
+     * @param tokens     a tokens sequence to look for matches in
+     * @param beginIndex the beginning index of the range, inclusive
+     * @param endIndex   the ending index of the range, exclusive
+     * @param handler    a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if the range is empty
+     * @throws IndexOutOfBoundsException if the range is out of the sequence bounds
+     * @throws IllegalStateException     if called on not initialized trie
+     */
+    public void match(@Nonnull int[] tokens, int beginIndex, int endIndex, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(tokens);
+        Validate.notNull(handler);
+        if (beginIndex < 0 || endIndex > tokens.length || beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException("range [" + beginIndex + ", " + endIndex + ") of " + tokens.length);
+        }
+        Validate.isTrue(beginIndex < endIndex, "range is empty");
+        if (!built) {
+            throw new IllegalStateException("call init() first");
+        }
+        TokenNode<T> current = root;
+        HitStatistics<T> hitStatistics = this.hitStatistics;
+        int index = beginIndex;
+        while (index < endIndex) {
+            TokenNode<T> node = current.getChild(tokens[index]);
+            if (node != null) {
+                if (!node.handleMatch(index, handler, hitStatistics)) {
+                    return;
+                }
+                current = node;
+                index++;
+            } else if (current.isRoot()) {
+                index++;
+            } else {
+                current = current.getSuffix();
+            }
+        }
+    }
+
+    /**
+     * Get the number of distinct tokens sequences added to the trie.
+     *
+     * @return the number of patterns
+     */
+    public int getPatternCount() {
+        return terminals.size();
+    }
+
+    /**
+     * Get payloads of all added tokens sequences.
+     *
+     * @return payloads indexed by pattern id
+     */
+    @Nonnull
+    public List<T> getPayloads() {
+        List<T> payloads = new ArrayList<>(terminals.size());
+        for (TokenNode<T> terminal : terminals) {
+            payloads.add(terminal.getPayload());
+        }
+        return payloads;
+    }
+
+    @Nonnull
+    public TokenNode<T> getRoot() {
+        return root;
+    }
+
+    public void setHitStatistics(@Nullable HitStatistics<T> hitStatistics) {
+        this.hitStatistics = hitStatistics;
+    }
+
+    @Nullable
+    public HitStatistics<T> getHitStatistics() {
+        return hitStatistics;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+}
\ No newline at end of file
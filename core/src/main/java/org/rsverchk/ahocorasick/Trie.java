@@ -1,10 +1,20 @@
 package org.rsverchk.ahocorasick;
 
+import org.apache.commons.lang3.Validate;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * API for Aho-Corasick implementations.
  *
+ * The overloads matching a range, a char array or a CharBuffer report indices relative to the original input and
+ * never copy it into a String. By default they match a {@link CharBuffer} view of the input, implementations may
+ * override them with specialized scan loops.
+ *
  * @param <T> payload type
  * @author Ruslan Sverchkov
  */
@@ -21,4 +31,146 @@ public interface Trie<T> {
      */
     void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler);
 
+    /**
+     * Match the specified range of a characters sequence against the trie. Call the specified handler when a match is
+     * found, indices passed to the handler are indices in the whole sequence.
+     *
+     * @param sequence   a characters sequence to look for matches in
+     * @param beginIndex the beginning index of the range, inclusive
+     * @param endIndex   the ending index of the range, exclusive
+     * @param handler    a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if the range is empty
+     * @throws IndexOutOfBoundsException if the range is out of the sequence bounds
+     */
+    default void match(@Nonnull CharSequence sequence, int beginIndex, int endIndex,
+                       @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(sequence);
+        Validate.notNull(handler);
+        Tries.checkRange(beginIndex, endIndex, sequence.length());
+        if (beginIndex == 0 && endIndex == sequence.length()) {
+            match(sequence, handler);
+        } else {
+            // views, a CharBuffer is not copied by subSequence unlike String
+            CharSequence range = sequence instanceof CharBuffer ? sequence.subSequence(beginIndex, endIndex)
+                    : CharBuffer.wrap(sequence, beginIndex, endIndex);
+            match(range, (begin, end, payload) -> handler.handle(begin + beginIndex, end + beginIndex, payload));
+        }
+    }
+
+    /**
+     * Match the specified range of a char array against the trie. Call the specified handler when a match is found,
+     * indices passed to the handler are indices in the array.
+     *
+     * @param array   a char array to look for matches in
+     * @param offset  the beginning index of the range
+     * @param length  the length of the range
+     * @param handler a handler to call when a match is found
+     * @throws NullPointerException      if any of the arguments is null
+     * @throws IllegalArgumentException  if the range is empty
+     * @throws IndexOutOfBoundsException if the range is out of the array bounds
+     */
+    default void match(@Nonnull char[] array, int offset, int length, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(array);
+        Validate.notNull(handler);
+        Tries.checkRange(offset, offset + length, array.length);
+        CharSequence range = CharBuffer.wrap(array, offset, length);
+        match(range, (begin, end, payload) -> handler.handle(begin + offset, end + offset, payload));
+    }
+
+    /**
+     * Match the specified characters sequence against the patterns of the enabled groups only, see
+     * {@link MutableTrie#addCharSequence(CharSequence, Object, long)}. Supported by every {@link Engine}, the default
+     * implementation is for tries that don't know groups of their patterns.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param groups   a mask of the enabled groups
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException          if any of the arguments is null
+     * @throws IllegalArgumentException      if sequence is empty
+     * @throws UnsupportedOperationException if the implementation doesn't support groups
+     */
+    default void match(@Nonnull CharSequence sequence, long groups, @Nonnull MatchHandler<T> handler) {
+        throw new UnsupportedOperationException("groups are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Get the payload of the specified characters sequence. By default it's the match of
+     * {@link Trie#allPrefixMatches(CharSequence, int, MatchHandler)} spanning the whole sequence, if any.
+     *
+     * @param sequence a characters sequence to look up
+     * @return payload of the sequence, null if it has not been added
+     * @throws NullPointerException          if sequence is null
+     * @throws IllegalArgumentException      if sequence is empty
+     * @throws UnsupportedOperationException if the implementation doesn't support lookups
+     */
+    @Nullable
+    default T get(@Nonnull CharSequence sequence) {
+        Validate.notEmpty(sequence);
+        int length = sequence.length();
+        List<T> found = new ArrayList<>(1);
+        allPrefixMatches(sequence, 0, (begin, end, payload) -> {
+            if (end == length) {
+                found.add(payload);
+            }
+            return true;
+        });
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Find the longest added sequence starting exactly at the specified offset, see
+     * {@link MutableTrie#longestPrefixMatch(CharSequence, int)}. By default it's the last match of
+     * {@link Trie#allPrefixMatches(CharSequence, int, MatchHandler)}.
+     *
+     * @param sequence a characters sequence to look for a match in
+     * @param offset   the beginning index of the match
+     * @return the ending index of the match, exclusive, -1 if no added sequence starts at the offset
+     * @throws NullPointerException          if sequence is null
+     * @throws IllegalArgumentException      if offset is the length of sequence
+     * @throws IndexOutOfBoundsException     if offset is out of the sequence bounds
+     * @throws UnsupportedOperationException if the implementation doesn't support lookups
+     */
+    default int longestPrefixMatch(@Nonnull CharSequence sequence, int offset) {
+        int[] endIndex = {-1};
+        allPrefixMatches(sequence, offset, (begin, end, payload) -> {
+            endIndex[0] = end;
+            return true;
+        });
+        return endIndex[0];
+    }
+
+    /**
+     * Call the specified handler for every added sequence starting exactly at the specified offset, shortest first.
+     * Only child transitions are followed, so it takes time proportional to the length of the longest added prefix of
+     * the text at the offset. Hit statistics are not counted. Supported by every {@link Engine}, the default
+     * implementation is for tries that can't walk their added sequences.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param offset   the beginning index of the matches
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException          if any of the arguments is null
+     * @throws IllegalArgumentException      if offset is the length of sequence
+     * @throws IndexOutOfBoundsException     if offset is out of the sequence bounds
+     * @throws UnsupportedOperationException if the implementation doesn't support lookups
+     */
+    default void allPrefixMatches(@Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        throw new UnsupportedOperationException("lookups are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Match the remaining characters of the specified buffer against the trie, the position of the buffer is not
+     * changed. Call the specified handler when a match is found, indices passed to the handler are relative to the
+     * position like {@link CharBuffer#charAt(int)} takes them.
+     *
+     * @param buffer  a buffer to look for matches in
+     * @param handler a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if there are no remaining characters
+     */
+    default void match(@Nonnull CharBuffer buffer, @Nonnull MatchHandler<T> handler) {
+        Validate.notNull(buffer);
+        match(buffer, 0, buffer.remaining(), handler);
+    }
+
 }
\ No newline at end of file
@@ -16,6 +16,15 @@ import javax.annotation.concurrent.NotThreadSafe;
 public class TrieBuilder<T> {
 
     private MutableTrie<T> trie;
+    private boolean collectHitStatistics;
+    private PrefilterFactory prefilterFactory;
+    private HitStatistics<T> hitStatistics;
+    private Engine engine = Engine.AHO_CORASICK;
+    private EnginePlanner.MatchDensity matchDensity = EnginePlanner.MatchDensity.UNKNOWN;
+    private EnginePlan enginePlan;
+    private long cacheBudget = LazyDfaTrie.DEFAULT_CACHE_BUDGET;
+    private Iterable<? extends CharSequence> sample;
+    private boolean built;
 
     /**
      * Specify custom characters converter for trie.
@@ -48,6 +57,94 @@ public class TrieBuilder<T> {
         return this;
     }
 
+    /**
+     * Count hits of every added characters sequence during matching. The counters are available through
+     * {@link TrieBuilder#getHitStatistics()} once the trie is built.
+     *
+     * @return this
+     */
+    @Nonnull
+    public TrieBuilder<T> withHitStatistics() {
+        collectHitStatistics = true;
+        return this;
+    }
+
+    /**
+     * Specify a prefilter used to skip parts of the input text where no match can begin. By default the trie skips
+     * characters that no added sequence starts with.
+     *
+     * @param prefilterFactory a function creating a prefilter for the trie
+     * @return this
+     * @throws NullPointerException if prefilterFactory is null
+     */
+    @Nonnull
+    public TrieBuilder<T> withPrefilter(@Nonnull PrefilterFactory prefilterFactory) {
+        Validate.notNull(prefilterFactory);
+        this.prefilterFactory = prefilterFactory;
+        return this;
+    }
+
+    /**
+     * Specify the matching algorithm, {@link Engine#AHO_CORASICK} by default. A prefilter is used by
+     * {@link Engine#AHO_CORASICK} only. With {@link Engine#AUTO} both the engine and the prefilter are chosen by
+     * {@link EnginePlanner}, a prefilter specified explicitly is kept along with {@link Engine#AHO_CORASICK}. See
+     * {@link TrieBuilder#getEnginePlan()} for the choice.
+     *
+     * @param engine matching algorithm
+     * @return this
+     * @throws NullPointerException if engine is null
+     */
+    @Nonnull
+    public TrieBuilder<T> withEngine(@Nonnull Engine engine) {
+        Validate.notNull(engine);
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * Specify the max size of the transition cache of {@link Engine#LAZY_DFA} in bytes,
+     * {@link LazyDfaTrie#DEFAULT_CACHE_BUDGET} by default.
+     *
+     * @param cacheBudget max size of the transition cache in bytes
+     * @return this
+     * @throws IllegalArgumentException if cacheBudget is less than 8
+     */
+    @Nonnull
+    public TrieBuilder<T> withCacheBudget(long cacheBudget) {
+        Validate.isTrue(cacheBudget >= Long.BYTES, "cache budget is too small: %d", cacheBudget);
+        this.cacheBudget = cacheBudget;
+        return this;
+    }
+
+    /**
+     * Specify sample texts representative of the input to lay out states of {@link Engine#COMPILED} by the number of
+     * times they are visited, breadth-first order is used by default. The texts are matched once, at build time.
+     *
+     * @param sample sample texts
+     * @return this
+     * @throws NullPointerException if sample is null
+     */
+    @Nonnull
+    public TrieBuilder<T> withSample(@Nonnull Iterable<? extends CharSequence> sample) {
+        Validate.notNull(sample);
+        this.sample = sample;
+        return this;
+    }
+
+    /**
+     * Specify the expected density of matches, a hint for {@link Engine#AUTO}.
+     *
+     * @param matchDensity expected density of matches
+     * @return this
+     * @throws NullPointerException if matchDensity is null
+     */
+    @Nonnull
+    public TrieBuilder<T> withMatchDensity(@Nonnull EnginePlanner.MatchDensity matchDensity) {
+        Validate.notNull(matchDensity);
+        this.matchDensity = matchDensity;
+        return this;
+    }
+
     /**
      * Add the specified characters sequence to the trie.
      *
@@ -55,7 +152,7 @@ public class TrieBuilder<T> {
      * @param payload  payload associated with the sequence, can be any useful information
      * @throws NullPointerException     if any of the arguments is null
      * @throws IllegalArgumentException if sequence is empty
-     * @throws IllegalStateException    if called after build()
+     * @throws IllegalStateException    if called after build() or buildAutomaton()
      */
     @Nonnull
     public TrieBuilder<T> addCharSequence(@Nonnull CharSequence sequence, @Nonnull T payload) {
@@ -67,19 +164,120 @@ public class TrieBuilder<T> {
     }
 
     /**
-     * Create and initialize an instance of a trie.
+     * Add the specified characters sequence to the trie as a pattern of the specified groups, see
+     * {@link MutableTrie#addCharSequence(CharSequence, Object, long)}. Every engine supports
+     * {@link Trie#match(CharSequence, long, MatchHandler)}.
      *
-     * @return initialized instance of a trie
+     * @param sequence a characters sequence to add
+     * @param payload  payload associated with the sequence, can be any useful information
+     * @param groups   a mask of the groups of the sequence
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty or groups is 0
+     * @throws IllegalStateException    if called after build() or buildAutomaton()
      */
     @Nonnull
-    public Trie<T> build() {
+    public TrieBuilder<T> addCharSequence(@Nonnull CharSequence sequence, @Nonnull T payload, long groups) {
         if (trie == null) {
             trie = createMutableTrie(createEmptyConverter());
         }
-        trie.init();
+        trie.addCharSequence(sequence, payload, groups);
+        return this;
+    }
+
+    /**
+     * Create and initialize an instance of a trie. Can be called before or after {@link TrieBuilder#buildAutomaton()},
+     * the trie and the automaton share the added sequences.
+     *
+     * @return initialized instance of a trie, an {@link ImmutableTrie} meant to be shared by all the threads
+     * @throws IllegalStateException if called twice
+     */
+    @Nonnull
+    public Trie<T> build() {
+        if (built) {
+            throw new IllegalStateException("the trie is built already");
+        }
+        built = true;
+        initTrie();
+        Engine engine = this.engine;
+        PrefilterFactory prefilterFactory = this.prefilterFactory;
+        if (engine == Engine.AUTO) {
+            enginePlan = createEnginePlanner().plan(trie, matchDensity, prefilterFactory);
+            engine = enginePlan.getEngine();
+            prefilterFactory = enginePlan.getPrefilterFactory();
+        }
+        if (prefilterFactory != null && engine == Engine.AHO_CORASICK) {
+            trie.setPrefilter(prefilterFactory.create(trie));
+        }
+        if (collectHitStatistics) {
+            hitStatistics = createHitStatistics(trie);
+            trie.setHitStatistics(hitStatistics);
+        }
+        if (engine == Engine.SET_HORSPOOL) {
+            return createImmutableTrie(createSetHorspoolTrie(trie));
+        }
+        if (engine == Engine.LAZY_DFA) {
+            return createImmutableTrie(createLazyDfaTrie(trie, cacheBudget));
+        }
+        if (engine == Engine.DAWG) {
+            return createImmutableTrie(createDawgTrie(trie));
+        }
+        if (engine == Engine.COMPILED) {
+            return createImmutableTrie(createCompiledTrie(trie, sample));
+        }
+        if (engine == Engine.BYTECODE) {
+            return createImmutableTrie(createBytecodeTrie(trie));
+        }
         return createImmutableTrie(trie);
     }
 
+    /**
+     * Initialize the trie and compile it into an automaton driven by the caller one character at a time, see
+     * {@link Automaton}. The automaton is a {@link CompiledTrie} laid out by the sample if any, whatever the engine.
+     * Hit statistics are not collected. Can be called before or after {@link TrieBuilder#build()}, so a caller needing
+     * both doesn't add the sequences twice.
+     *
+     * @return the automaton of the added sequences
+     */
+    @Nonnull
+    public Automaton<T> buildAutomaton() {
+        initTrie();
+        return createCompiledTrie(trie, sample);
+    }
+
+    /**
+     * Get hit statistics of the built trie.
+     *
+     * @return hit statistics, null if the trie is not built yet or {@link TrieBuilder#withHitStatistics()} has not
+     * been called
+     */
+    @Nullable
+    public HitStatistics<T> getHitStatistics() {
+        return hitStatistics;
+    }
+
+    /**
+     * Get the choice of {@link EnginePlanner} for the built trie.
+     *
+     * @return the engine plan, null if the trie is not built yet or the engine has not been {@link Engine#AUTO}
+     */
+    @Nullable
+    public EnginePlan getEnginePlan() {
+        return enginePlan;
+    }
+
+    /**
+     * Create the trie if no sequence has been added and initialize it unless {@link TrieBuilder#build()} or
+     * {@link TrieBuilder#buildAutomaton()} has done it.
+     */
+    private void initTrie() {
+        if (trie == null) {
+            trie = createMutableTrie(createEmptyConverter());
+        }
+        if (!trie.isBuilt()) {
+            trie.init();
+        }
+    }
+
     /**
      * Create an instance of case insensitive converter. Mostly for testing purposes.
      *
@@ -113,16 +311,102 @@ public class TrieBuilder<T> {
     }
 
     /**
-     * Create an instance of immutable trie. Ensures thread-safety through immutability. Could just use the interface
-     * instead but someone may decide to use instanceof for some reason. This is not a panacea but better than nothing.
+     * Create an instance of {@link HitStatistics}. Mostly for testing purposes.
+     *
+     * @param trie initialized trie to count hits for
+     * @return an instance of {@link HitStatistics}
+     * @throws NullPointerException if trie is null
+     */
+    @Nonnull
+    protected HitStatistics<T> createHitStatistics(@Nonnull MutableTrie<T> trie) {
+        return new HitStatistics<>(trie.getPayloads());
+    }
+
+    /**
+     * Create an instance of {@link EnginePlanner}. Mostly for testing purposes.
+     *
+     * @return an instance of {@link EnginePlanner}
+     */
+    @Nonnull
+    protected EnginePlanner createEnginePlanner() {
+        return new EnginePlanner();
+    }
+
+    /**
+     * Create an instance of {@link SetHorspoolTrie}. Mostly for testing purposes.
+     *
+     * @param trie initialized trie to take added sequences from
+     * @return an instance of {@link SetHorspoolTrie}
+     * @throws NullPointerException if trie is null
+     */
+    @Nonnull
+    protected SetHorspoolTrie<T> createSetHorspoolTrie(@Nonnull MutableTrie<T> trie) {
+        return new SetHorspoolTrie<>(trie);
+    }
+
+    /**
+     * Create an instance of {@link LazyDfaTrie}. Mostly for testing purposes.
+     *
+     * @param trie        initialized trie to resolve transitions of
+     * @param cacheBudget max size of the transition cache in bytes
+     * @return an instance of {@link LazyDfaTrie}
+     * @throws NullPointerException if trie is null
+     */
+    @Nonnull
+    protected LazyDfaTrie<T> createLazyDfaTrie(@Nonnull MutableTrie<T> trie, long cacheBudget) {
+        return new LazyDfaTrie<>(trie, cacheBudget);
+    }
+
+    /**
+     * Create an instance of {@link DawgTrie}. Mostly for testing purposes.
+     *
+     * @param trie initialized trie to take added sequences from
+     * @return an instance of {@link DawgTrie}
+     * @throws NullPointerException if trie is null
+     */
+    @Nonnull
+    protected DawgTrie<T> createDawgTrie(@Nonnull MutableTrie<T> trie) {
+        return new DawgTrie<>(trie);
+    }
+
+    /**
+     * Create an instance of {@link CompiledTrie}. Mostly for testing purposes.
+     *
+     * @param trie   initialized trie to compile
+     * @param sample sample texts to lay out states by, null for breadth-first order
+     * @return an instance of {@link CompiledTrie}
+     * @throws NullPointerException if trie is null
+     */
+    @Nonnull
+    protected CompiledTrie<T> createCompiledTrie(@Nonnull MutableTrie<T> trie,
+                                                 @Nullable Iterable<? extends CharSequence> sample) {
+        return new CompiledTrie<>(trie, sample);
+    }
+
+    /**
+     * Create an instance of {@link BytecodeTrie}. Mostly for testing purposes.
+     *
+     * @param trie initialized trie to generate code for
+     * @return an instance of {@link BytecodeTrie}
+     * @throws NullPointerException     if trie is null
+     * @throws IllegalArgumentException if the trie is too big, see {@link BytecodeTrie#MAX_STATE_COUNT}
+     */
+    @Nonnull
+    protected BytecodeTrie<T> createBytecodeTrie(@Nonnull MutableTrie<T> trie) {
+        return new BytecodeTrie<>(trie);
+    }
+
+    /**
+     * Create an instance of immutable trie, safe to share between threads, see {@link ImmutableTrie}. Mostly for
+     * testing purposes.
      *
-     * @param trie trie to wrap
+     * @param trie built trie to wrap
      * @return an instance of immutable trie
      * @throws NullPointerException if trie is null
      */
     @Nonnull
     protected Trie<T> createImmutableTrie(@Nonnull Trie<T> trie) {
-        return trie::match;
+        return new ImmutableTrie<>(trie);
     }
 
     /*
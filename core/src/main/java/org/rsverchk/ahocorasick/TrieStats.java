@@ -0,0 +1,291 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.map.hash.TCharObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+
+/**
+ * Structural statistics of an initialized trie: number of states, depth, fan-out, failure and output chain length
+ * distributions and an estimate of the memory occupied. Useful for capacity planning and to detect dictionaries that
+ * produce pathological failure chains.
+ *
+ * Histograms are arrays where the element at index i is the number of nodes with the corresponding value equal to i.
+ * The root node is included in all of them.
+ *
+ * @author Ruslan Sverchkov
+ */
+@Immutable
+public final class TrieStats {
+
+    /**
+     * Upper bounds (inclusive) of fan-out buckets: no children, 1, 2-4, 5-16, more than 16.
+     */
+    private static final int[] FAN_OUT_BUCKETS = {0, 1, 4, 16, Integer.MAX_VALUE};
+
+    /*
+    Implementation comment:
+    memory estimates assume a 64-bit JVM with compressed oops: 12 bytes object header, 16 bytes array header, 4 bytes
+    reference, everything aligned to 8 bytes.
+     */
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    // references, level and pattern id, key, groups and output groups
+    private static final int NODE_SIZE = align(OBJECT_HEADER + 8 * REFERENCE + 2 * 4 + 2 + 2 * 8);
+    private static final int MAP_SIZE = align(OBJECT_HEADER + 4 * REFERENCE + 6 * 4 + 4);
+
+    private final int stateCount;
+    private final int terminalCount;
+    private final int[] depthHistogram;
+    private final int[] fanOutHistogram;
+    private final int[] failureChainHistogram;
+    private final int[] outputChainHistogram;
+    private final long estimatedMemory;
+
+    /**
+     * Collect statistics of the specified trie.
+     *
+     * @param trie an initialized trie
+     * @param <T>  payload type
+     * @return statistics of the trie
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    @Nonnull
+    public static <T> TrieStats of(@Nonnull MutableTrie<T> trie) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        Collector<T> collector = new Collector<>();
+        collector.consume(trie.getRoot());
+        trie.breadthFirstTraversal((c, node) -> collector.consume(node));
+        return new TrieStats(collector);
+    }
+
+    /**
+     * Get the number of states (nodes) including root.
+     *
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Get the number of terminal states, which is the number of distinct added characters sequences.
+     *
+     * @return the number of terminal states
+     */
+    public int getTerminalCount() {
+        return terminalCount;
+    }
+
+    /**
+     * Get the number of states on each level (distance to root).
+     *
+     * @return depth histogram
+     */
+    @Nonnull
+    public int[] getDepthHistogram() {
+        return depthHistogram.clone();
+    }
+
+    /**
+     * Get the number of states by number of children. The histogram has five buckets: no children, 1 child,
+     * 2-4 children, 5-16 children and more than 16 children.
+     *
+     * @return fan-out histogram
+     */
+    @Nonnull
+    public int[] getFanOutHistogram() {
+        return fanOutHistogram.clone();
+    }
+
+    /**
+     * Get the number of states by length of the failure chain, the number of suffix links to follow to get to root.
+     *
+     * @return failure chain length histogram
+     */
+    @Nonnull
+    public int[] getFailureChainHistogram() {
+        return failureChainHistogram.clone();
+    }
+
+    /**
+     * Get the number of states by length of the output chain, the number of matches reported when the state is
+     * reached.
+     *
+     * @return output chain length histogram
+     */
+    @Nonnull
+    public int[] getOutputChainHistogram() {
+        return outputChainHistogram.clone();
+    }
+
+    /**
+     * Get the maximum depth, which is the length of the longest added characters sequence.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return depthHistogram.length - 1;
+    }
+
+    /**
+     * Get the maximum failure chain length.
+     *
+     * @return the maximum failure chain length
+     */
+    public int getMaxFailureChainLength() {
+        return failureChainHistogram.length - 1;
+    }
+
+    /**
+     * Get the average failure chain length.
+     *
+     * @return the average failure chain length
+     */
+    public double getAverageFailureChainLength() {
+        return average(failureChainHistogram);
+    }
+
+    /**
+     * Get the maximum output chain length.
+     *
+     * @return the maximum output chain length
+     */
+    public int getMaxOutputChainLength() {
+        return outputChainHistogram.length - 1;
+    }
+
+    /**
+     * Get a rough estimate of the memory occupied by the trie nodes, payloads excluded.
+     *
+     * @return estimated memory in bytes
+     */
+    public long getEstimatedMemory() {
+        return estimatedMemory;
+    }
+
+    @Override
+    public String toString() {
+        return "TrieStats {states: [" + stateCount +
+                "], terminals: [" + terminalCount +
+                "], depth: " + Arrays.toString(depthHistogram) +
+                ", fanOut: " + Arrays.toString(fanOutHistogram) +
+                ", failureChain: " + Arrays.toString(failureChainHistogram) +
+                ", outputChain: " + Arrays.toString(outputChainHistogram) +
+                ", estimatedMemory: [" + estimatedMemory + "]}";
+    }
+
+    private static double average(@Nonnull int[] histogram) {
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += (long) i * histogram[i];
+            count += histogram[i];
+        }
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static long childrenSize(@Nonnull Node<?> node) {
+        TCharObjectHashMap<?> children = node.getChildren();
+        if (children != null) {
+            int capacity = children.capacity();
+            // keys, values, states
+            return MAP_SIZE + align(ARRAY_HEADER + 2 * capacity) + align(ARRAY_HEADER + REFERENCE * capacity) +
+                    align(ARRAY_HEADER + capacity);
+        }
+        long size = 0;
+        if (node.getKeys() != null) {
+            size += align(ARRAY_HEADER + 2 * node.getKeys().length);
+        }
+        if (node.getTable() != null) {
+            size += align(ARRAY_HEADER + REFERENCE * node.getTable().length);
+        }
+        return size;
+    }
+
+    private TrieStats(@Nonnull Collector<?> collector) {
+        stateCount = collector.stateCount;
+        terminalCount = collector.terminalCount;
+        depthHistogram = Arrays.copyOf(collector.depthHistogram, collector.maxDepth + 1);
+        fanOutHistogram = collector.fanOutHistogram;
+        failureChainHistogram = Arrays.copyOf(collector.failureChainHistogram, collector.maxFailureChain + 1);
+        outputChainHistogram = Arrays.copyOf(collector.outputChainHistogram, collector.maxOutputChain + 1);
+        estimatedMemory = collector.estimatedMemory;
+    }
+
+    /**
+     * Accumulates statistics during breadth-first traversal. Failure and output chain lengths of a node are computed
+     * from the ones of its suffix and terminal suffix, which are on higher levels and thus already visited.
+     *
+     * @param <T> payload type
+     */
+    private static class Collector<T> {
+
+        private final TObjectIntHashMap<Node<T>> failureChains = new TObjectIntHashMap<>();
+        private final TObjectIntHashMap<Node<T>> outputChains = new TObjectIntHashMap<>();
+
+        private int stateCount;
+        private int terminalCount;
+        private int[] depthHistogram = new int[16];
+        private final int[] fanOutHistogram = new int[FAN_OUT_BUCKETS.length];
+        private int[] failureChainHistogram = new int[16];
+        private int[] outputChainHistogram = new int[16];
+        private int maxDepth;
+        private int maxFailureChain;
+        private int maxOutputChain;
+        private long estimatedMemory;
+
+        private void consume(@Nonnull Node<T> node) {
+            stateCount++;
+            if (node.isTerminal()) {
+                terminalCount++;
+            }
+            depthHistogram = increment(depthHistogram, node.getLevel());
+            maxDepth = Math.max(maxDepth, node.getLevel());
+
+            int fanOut = node.getChildCount();
+            int bucket = 0;
+            while (fanOut > FAN_OUT_BUCKETS[bucket]) {
+                bucket++;
+            }
+            fanOutHistogram[bucket]++;
+
+            int failureChain = node.isRoot() ? 0 : failureChains.get(node.getSuffix()) + 1;
+            failureChains.put(node, failureChain);
+            failureChainHistogram = increment(failureChainHistogram, failureChain);
+            maxFailureChain = Math.max(maxFailureChain, failureChain);
+
+            Node<T> terminalSuffix = node.getTerminalSuffix();
+            int outputChain = (node.isTerminal() ? 1 : 0) + (terminalSuffix == null ? 0 :
+                    outputChains.get(terminalSuffix));
+            outputChains.put(node, outputChain);
+            outputChainHistogram = increment(outputChainHistogram, outputChain);
+            maxOutputChain = Math.max(maxOutputChain, outputChain);
+
+            estimatedMemory += NODE_SIZE + childrenSize(node);
+        }
+
+        private static int[] increment(@Nonnull int[] histogram, int index) {
+            int[] result = histogram;
+            if (index >= result.length) {
+                result = Arrays.copyOf(result, Math.max(index + 1, result.length * 2));
+            }
+            result[index]++;
+            return result;
+        }
+
+    }
+
+}
\ No newline at end of file
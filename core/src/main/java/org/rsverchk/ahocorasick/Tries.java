@@ -0,0 +1,83 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Checks, walks and arrays shared by the implementations of {@link Trie}.
+ *
+ * @author Ruslan Sverchkov
+ */
+final class Tries {
+
+    /**
+     * Check that the specified range is not empty and within the bounds of an input of the specified length.
+     *
+     * @param beginIndex the beginning index of the range, inclusive
+     * @param endIndex   the ending index of the range, exclusive
+     * @param length     length of the input
+     * @throws IllegalArgumentException  if the range is empty
+     * @throws IndexOutOfBoundsException if the range is out of the bounds
+     */
+    static void checkRange(int beginIndex, int endIndex, int length) {
+        if (beginIndex < 0 || endIndex > length || beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException("range [" + beginIndex + ", " + endIndex + ") of " + length);
+        }
+        Validate.isTrue(beginIndex < endIndex, "range is empty");
+    }
+
+    /**
+     * Call the specified handler for every terminal node reached from the specified root by child transitions along
+     * the characters starting at the specified offset, shortest first. Suffixes are not followed, so the walk stops at
+     * the first character with no child. Hit statistics are not counted.
+     *
+     * @param root      root of an initialized trie
+     * @param converter the characters converter the trie was built with
+     * @param sequence  a characters sequence to look for matches in
+     * @param offset    the beginning index of the matches, within the sequence bounds
+     * @param handler   a handler to call when a match is found
+     */
+    static <T> void allPrefixMatches(@Nonnull Node<T> root, @Nonnull CharConverter converter,
+                                     @Nonnull CharSequence sequence, int offset, @Nonnull MatchHandler<T> handler) {
+        int length = sequence.length();
+        Node<T> current = root;
+        for (int index = offset; index < length; index++) {
+            current = current.getChild(converter.convert(sequence.charAt(index)));
+            if (current == null) {
+                return;
+            }
+            if (current.isTerminal() && !handler.handle(offset, index + 1, current.getPayload())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Create an array of nodes, generic arrays can't be created directly.
+     *
+     * @param size the length of the array
+     * @param <T>  payload type
+     * @return an array of nulls
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> Node<T>[] newNodeArray(int size) {
+        return new Node[size];
+    }
+
+    /**
+     * Create an array of token nodes, see {@link Tries#newNodeArray(int)}.
+     *
+     * @param size the length of the array
+     * @param <T>  payload type
+     * @return an array of nulls
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> TokenNode<T>[] newTokenNodeArray(int size) {
+        return new TokenNode[size];
+    }
+
+    private Tries() {
+    }
+
+}
\ No newline at end of file
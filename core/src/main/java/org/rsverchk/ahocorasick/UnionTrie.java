@@ -0,0 +1,138 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+
+/**
+ * Several dictionaries combined into one automaton, so a text is scanned once for all of them rather than once per
+ * dictionary. Every pattern is tagged by the dictionaries it has been added to, a match is reported once per
+ * dictionary. See {@link UnionTrieBuilder}.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public class UnionTrie<T> {
+
+    private final Trie<Tags<T>> trie;
+    private final int dictionaryCount;
+
+    /**
+     * Construct an instance of UnionTrie.
+     *
+     * @param trie            built trie of the union, payloads are tags of the patterns
+     * @param dictionaryCount the number of dictionaries, dictionaries are in [0, count)
+     * @throws NullPointerException     if trie is null
+     * @throws IllegalArgumentException if dictionaryCount is negative
+     */
+    public UnionTrie(@Nonnull Trie<Tags<T>> trie, int dictionaryCount) {
+        Validate.notNull(trie);
+        Validate.isTrue(dictionaryCount >= 0);
+        this.trie = trie;
+        this.dictionaryCount = dictionaryCount;
+    }
+
+    /**
+     * Match the specified characters sequence against all the dictionaries at once. Matches are reported in the
+     * order of {@link Trie#match(CharSequence, MatchHandler)}, a pattern added to several dictionaries is reported
+     * for each of them in ascending order of dictionaries.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a match is found
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    public void match(@Nonnull CharSequence sequence, @Nonnull TaggedMatchHandler<T> handler) {
+        Validate.notNull(handler);
+        trie.match(sequence, (beginIndex, endIndex, tags) -> {
+            for (int i = 0; i < tags.dictionaries.length; i++) {
+                if (!handler.handle(tags.dictionaries[i], beginIndex, endIndex, tags.payloads.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Match the specified characters sequence against all the dictionaries at once, every dictionary gets its own
+     * handler, see {@link UnionTrie#match(CharSequence, TaggedMatchHandler)}. Matching stops as soon as any handler
+     * returns false.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handlers handlers by dictionary, a null handler skips matches of its dictionary
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty or the number of handlers differs from the number of
+     *                                  dictionaries
+     */
+    public void match(@Nonnull CharSequence sequence, @Nonnull List<? extends MatchHandler<T>> handlers) {
+        Validate.notNull(handlers);
+        Validate.isTrue(handlers.size() == dictionaryCount, "expected %d handlers", dictionaryCount);
+        match(sequence, (dictionary, beginIndex, endIndex, payload) -> {
+            MatchHandler<T> handler = handlers.get(dictionary);
+            return handler == null || handler.handle(beginIndex, endIndex, payload);
+        });
+    }
+
+    /**
+     * Get the number of dictionaries.
+     *
+     * @return the number of dictionaries
+     */
+    public int getDictionaryCount() {
+        return dictionaryCount;
+    }
+
+    /**
+     * Tags of a pattern of the union: the dictionaries the pattern has been added to in ascending order, and the
+     * payloads it has been added with.
+     *
+     * @param <T> payload type
+     */
+    public static final class Tags<T> {
+
+        private final int[] dictionaries;
+        private final List<T> payloads;
+
+        Tags(@Nonnull int[] dictionaries, @Nonnull List<T> payloads) {
+            Validate.isTrue(dictionaries.length == payloads.size());
+            this.dictionaries = dictionaries;
+            this.payloads = payloads;
+        }
+
+        /**
+         * Get the number of dictionaries the pattern has been added to.
+         *
+         * @return the number of dictionaries
+         */
+        public int size() {
+            return dictionaries.length;
+        }
+
+        /**
+         * Get a dictionary the pattern has been added to.
+         *
+         * @param index index of the tag
+         * @return the dictionary
+         */
+        public int getDictionary(int index) {
+            return dictionaries[index];
+        }
+
+        /**
+         * Get the payload the pattern has been added with to a dictionary.
+         *
+         * @param index index of the tag
+         * @return the payload
+         */
+        @Nonnull
+        public T getPayload(int index) {
+            return payloads.get(index);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builder of a {@link UnionTrie}. Characters sequences are added to dictionaries identified by ints, the union is one
+ * trie built by a {@link TrieBuilder}, so the engine, the converter and the rest of the options of the union are
+ * those of the trie builder. A sequence added to several dictionaries, or sequences equal after conversion, become
+ * one pattern tagged by all of them. Adding the same sequence to the same dictionary again replaces the payload.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public class UnionTrieBuilder<T> {
+
+    private final TrieBuilder<UnionTrie.Tags<T>> builder;
+    private final List<Entry<T>> entries;
+    private int dictionaryCount;
+    private boolean built;
+
+    /**
+     * Construct an instance of UnionTrieBuilder with the default options of {@link TrieBuilder}.
+     */
+    public UnionTrieBuilder() {
+        this(new TrieBuilder<>());
+    }
+
+    /**
+     * Construct an instance of UnionTrieBuilder.
+     *
+     * @param builder a trie builder with the options of the union, no sequences must be added to it
+     * @throws NullPointerException if builder is null
+     */
+    public UnionTrieBuilder(@Nonnull TrieBuilder<UnionTrie.Tags<T>> builder) {
+        Validate.notNull(builder);
+        this.builder = builder;
+        entries = new ArrayList<>();
+    }
+
+    /**
+     * Add the specified characters sequence to a dictionary.
+     *
+     * @param dictionary the dictionary to add the sequence to
+     * @param sequence   a characters sequence to add
+     * @param payload    payload associated with the sequence in the dictionary
+     * @return this
+     * @throws NullPointerException     if sequence or payload is null
+     * @throws IllegalArgumentException if dictionary is negative or sequence is empty
+     * @throws IllegalStateException    if called after build()
+     */
+    @Nonnull
+    public UnionTrieBuilder<T> addCharSequence(int dictionary, @Nonnull CharSequence sequence, @Nonnull T payload) {
+        Validate.isTrue(dictionary >= 0, "dictionary is negative: %d", dictionary);
+        Validate.notEmpty(sequence);
+        Validate.notNull(payload);
+        if (built) {
+            throw new IllegalStateException("cannot modify a built union");
+        }
+        entries.add(new Entry<>(dictionary, sequence.toString(), payload));
+        dictionaryCount = Math.max(dictionaryCount, dictionary + 1);
+        return this;
+    }
+
+    /**
+     * Combine the dictionaries and build the union.
+     *
+     * @return the union of all the dictionaries
+     * @throws IllegalStateException if called twice
+     */
+    @Nonnull
+    public UnionTrie<T> build() {
+        if (built) {
+            throw new IllegalStateException("the union is already built");
+        }
+        built = true;
+        MutableTrie<UnionTrie.Tags<T>> trie = builder.getTrie();
+        CharConverter converter = trie == null ? c -> c : trie.getConverter();
+        // group by the converted sequence, this is what the trie considers the same pattern
+        Map<String, Map<Integer, T>> patterns = new LinkedHashMap<>();
+        Map<String, String> sequences = new LinkedHashMap<>();
+        for (Entry<T> entry : entries) {
+            String key = convert(entry.sequence, converter);
+            patterns.computeIfAbsent(key, k -> new TreeMap<>()).put(entry.dictionary, entry.payload);
+            sequences.putIfAbsent(key, entry.sequence);
+        }
+        for (Map.Entry<String, Map<Integer, T>> pattern : patterns.entrySet()) {
+            Map<Integer, T> byDictionary = pattern.getValue();
+            int[] dictionaries = new int[byDictionary.size()];
+            List<T> payloads = new ArrayList<>(byDictionary.size());
+            int i = 0;
+            for (Map.Entry<Integer, T> tag : byDictionary.entrySet()) {
+                dictionaries[i++] = tag.getKey();
+                payloads.add(tag.getValue());
+            }
+            builder.addCharSequence(sequences.get(pattern.getKey()), new UnionTrie.Tags<>(dictionaries, payloads));
+        }
+        return new UnionTrie<>(builder.build(), dictionaryCount);
+    }
+
+    @Nonnull
+    private static String convert(@Nonnull String sequence, @Nonnull CharConverter converter) {
+        char[] chars = sequence.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = converter.convert(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static class Entry<T> {
+
+        private final int dictionary;
+        private final String sequence;
+        private final T payload;
+
+        private Entry(int dictionary, @Nonnull String sequence, @Nonnull T payload) {
+            this.dictionary = dictionary;
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.BitSet;
+
+/**
+ * Matcher reporting only the first occurrence of every pattern, for callers that need to know which patterns occur
+ * in a text rather than every occurrence, like document classification. Repeats are suppressed before the handler is
+ * called, and the scan can stop as soon as every pattern of a target set has been found.
+ *
+ * Seen pattern ids are kept in a bitset reused from call to call, only the words set by the previous call are cleared.
+ *
+ * @param <T> payload type
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public class UniqueMatcher<T> {
+
+    private final Automaton<T> automaton;
+    private final long[] seen;
+    private final TIntArrayList found;
+
+    /**
+     * Construct an instance of UniqueMatcher.
+     *
+     * @param automaton automaton to drive, see {@link TrieBuilder#buildAutomaton()}
+     * @throws NullPointerException if automaton is null
+     */
+    public UniqueMatcher(@Nonnull Automaton<T> automaton) {
+        Validate.notNull(automaton);
+        this.automaton = automaton;
+        seen = new long[(automaton.getPatternCount() + 63) >>> 6];
+        found = new TIntArrayList();
+    }
+
+    /**
+     * Match the specified characters sequence, call the handler for the first occurrence of every pattern only.
+     * Occurrences are ordered like {@link Trie#match(CharSequence, MatchHandler)} orders them.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param handler  a handler to call when a pattern is found for the first time
+     * @throws NullPointerException     if any of the arguments is null
+     * @throws IllegalArgumentException if sequence is empty
+     */
+    public void match(@Nonnull CharSequence sequence, @Nonnull MatchHandler<T> handler) {
+        match(sequence, null, handler);
+    }
+
+    /**
+     * The same as {@link UniqueMatcher#match(CharSequence, MatchHandler)} but stops as soon as every target pattern
+     * has been found. Patterns which are not targets are reported too, once.
+     *
+     * @param sequence a characters sequence to look for matches in
+     * @param targets  ids of the target patterns, null if there are none
+     * @param handler  a handler to call when a pattern is found for the first time
+     * @return whether all the targets have been found, false if there are none
+     * @throws NullPointerException     if sequence or handler is null
+     * @throws IllegalArgumentException if sequence is empty or targets contain unknown pattern ids
+     */
+    public boolean match(@Nonnull CharSequence sequence, @Nullable BitSet targets,
+                         @Nonnull MatchHandler<T> handler) {
+        Validate.notEmpty(sequence);
+        Validate.notNull(handler);
+        reset();
+        int remaining = 0;
+        if (targets != null) {
+            Validate.isTrue(targets.length() <= automaton.getPatternCount(), "unknown target pattern id");
+            remaining = targets.cardinality();
+            if (remaining == 0) {
+                return false;
+            }
+        }
+        Automaton<T> automaton = this.automaton;
+        long[] seen = this.seen;
+        int length = sequence.length();
+        int state = automaton.root();
+        for (int index = 0; index < length; index++) {
+            state = automaton.step(state, sequence.charAt(index));
+            if (!automaton.hasOutput(state)) {
+                continue;
+            }
+            for (int output = automaton.firstOutput(state); output >= 0; output = automaton.nextOutput(output)) {
+                int patternId = automaton.getPatternId(output);
+                long bit = 1L << patternId;
+                int word = patternId >>> 6;
+                if ((seen[word] & bit) != 0) {
+                    continue;
+                }
+                seen[word] |= bit;
+                found.add(patternId);
+                int endIndex = index + 1;
+                if (!handler.handle(endIndex - automaton.getLength(output), endIndex,
+                        automaton.getPayload(patternId))) {
+                    return false;
+                }
+                if (targets != null && targets.get(patternId) && --remaining == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the specified pattern has been found by the last call of match.
+     *
+     * @param patternId pattern id
+     * @return whether the pattern has been found
+     * @throws IndexOutOfBoundsException if there is no such pattern
+     */
+    public boolean isFound(int patternId) {
+        if (patternId < 0 || patternId >= automaton.getPatternCount()) {
+            throw new IndexOutOfBoundsException("no pattern " + patternId);
+        }
+        return (seen[patternId >>> 6] & (1L << patternId)) != 0;
+    }
+
+    /**
+     * Get the number of distinct patterns found by the last call of match.
+     *
+     * @return the number of patterns found
+     */
+    public int getFoundCount() {
+        return found.size();
+    }
+
+    private void reset() {
+        for (int i = 0; i < found.size(); i++) {
+            seen[found.getQuick(i) >>> 6] = 0;
+        }
+        found.resetQuick();
+    }
+
+}
\ No newline at end of file
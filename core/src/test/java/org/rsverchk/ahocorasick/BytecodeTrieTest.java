@@ -0,0 +1,180 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.rsverchk.ahocorasick.TrieFixtures.*;
+
+/**
+ * Tests for {@link BytecodeTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class BytecodeTrieTest {
+
+    // test constructor ------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_TrieIsNull() {
+        new BytecodeTrie<>(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConstructor_NotInitialized() {
+        new BytecodeTrie<>(new MutableTrie<>(c -> c));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_TooManyStates() {
+        String[] sequences = new String[BytecodeTrie.MAX_STATE_COUNT / 8 + 1];
+        Random random = new Random(42);
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = random(random, 16, "abcdefghijklmnopqrstuvwxyz");
+        }
+        new BytecodeTrie<>(trie(c -> c, sequences));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_TooManyTransitions() {
+        TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(Engine.BYTECODE);
+        for (int i = 0; i < BytecodeTrie.MAX_TRANSITION_COUNT + 1; i++) {
+            builder.addCharSequence(String.valueOf((char) (0x100 + i)), "");
+        }
+        builder.build();
+    }
+
+    @Test
+    public void testConstructor_WideRoot() {
+        // the root takes more than a chunk, so it's not copied into every chunk
+        String[] sequences = new String[1000];
+        StringBuilder alphabet = new StringBuilder();
+        for (int i = 0; i < sequences.length; i++) {
+            char c = (char) (0x100 + i);
+            sequences[i] = i % 2 == 0 ? String.valueOf(c) : c + "ab";
+            alphabet.append(c);
+        }
+        alphabet.append("ab");
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        BytecodeTrie<String> actual = new BytecodeTrie<>(trie(c -> c, sequences));
+
+        // rather than a chunk per state
+        assertThat(actual.getChunkCount() < 50, is(true));
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            String text = random(random, 1 + random.nextInt(1000), alphabet.toString());
+            assertThat(match(actual, text), equalTo(match(expected, text)));
+        }
+    }
+
+    @Test
+    public void testConstructor_Empty() {
+        BytecodeTrie<String> trie = new BytecodeTrie<>(trie(c -> c));
+
+        assertThat(trie.getStateCount(), equalTo(1));
+        assertThat(match(trie, "text"), equalTo(Collections.emptyList()));
+    }
+
+    @Test
+    public void testConstructor_Chunks() {
+        Random random = new Random(42);
+        String[] sequences = sequences(random, 500, 12);
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        BytecodeTrie<String> actual = new BytecodeTrie<>(trie(c -> c, sequences));
+
+        assertThat(actual.getChunkCount() > 1, is(true));
+        for (int i = 0; i < 20; i++) {
+            String text = random(random, 1 + random.nextInt(1000), "abcdABCD");
+            assertThat(match(actual, text), equalTo(match(expected, text)));
+        }
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_SequenceIsEmpty() {
+        new BytecodeTrie<>(trie(c -> c, "text")).match("", (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch_Overlap() {
+        BytecodeTrie<String> trie = new BytecodeTrie<>(trie(c -> c, "hers", "his", "sher", "he"));
+
+        assertThat(match(trie, "shers"), equalTo(Arrays.asList(
+                Triple.of(1, 3, "he"),
+                Triple.of(0, 4, "sher"),
+                Triple.of(1, 5, "hers"))));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        BytecodeTrie<String> trie = new BytecodeTrie<>(trie(c -> c, "ab", "b"));
+        List<String> payloads = new ArrayList<>();
+
+        trie.match("abab", (beginIndex, endIndex, payload) -> payloads.add(payload) && payloads.size() < 3);
+
+        assertThat(payloads, equalTo(Arrays.asList("ab", "b", "ab")));
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        MutableTrie<String> mutableTrie = trie(c -> c, "foo", "bar");
+        HitStatistics<String> hitStatistics = new HitStatistics<>(mutableTrie.getPayloads());
+        mutableTrie.setHitStatistics(hitStatistics);
+        BytecodeTrie<String> trie = new BytecodeTrie<>(mutableTrie);
+
+        match(trie, "foo bar foo");
+
+        assertThat(hitStatistics.getHits(0), equalTo(2L));
+        assertThat(hitStatistics.getHits(1), equalTo(1L));
+    }
+
+    @Test
+    public void testMatch_TableAndLookupSwitches() {
+        // the keys after "a" fit a tableswitch, the ones after "b" span the whole char range and take a lookupswitch
+        String[] sequences = {"aa", "ab", "ac", "ae", "b\u0000", "b\uffff", "b\u8000", "\uffff"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        BytecodeTrie<String> trie = new BytecodeTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "aaabacadaeaf",
+                "b\u0000b\uffffb\u8000b\u7fffb\u0001",
+                "\uffff\uffffb\uffff\u0000a\u0000");
+    }
+
+    @Test
+    public void testMatch_Surrogates() {
+        String[] sequences = {"\ud83d\ude00", "\ude00\ud83d", "\ud83d\ude01\ud83d\ude00"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        BytecodeTrie<String> trie = new BytecodeTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "\ud83d\ude01\ud83d\ude00\ud83d\ude00",
+                "\ude00\ud83d\ude01\ud83d\ude00\ud83d");
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        // switches are generated over converted characters
+        MutableTrie<String> expected = trie(Character::toLowerCase, "hers", "his", "sher", "he");
+        BytecodeTrie<String> trie = new BytecodeTrie<>(trie(Character::toLowerCase, "hers", "his", "sher", "he"));
+
+        assertSameAsAhoCorasick(trie, expected, "SHERS", "shErs HiS");
+    }
+
+    private static String[] sequences(Random random, int count, int maxLength) {
+        String[] sequences = new String[count];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = random(random, 1 + random.nextInt(maxLength), "abcAB");
+        }
+        return sequences;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.rsverchk.ahocorasick.TrieFixtures.*;
+
+/**
+ * Tests for {@link CompiledTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class CompiledTrieTest {
+
+    // test constructor ------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_TrieIsNull() {
+        new CompiledTrie<>(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConstructor_NotInitialized() {
+        new CompiledTrie<>(new MutableTrie<>(c -> c));
+    }
+
+    @Test
+    public void testConstructor_Chains() {
+        // root, "walk", "ing", "ed", "talk", "ing", "ed"
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, "walking", "walked", "talking", "talked"));
+
+        assertThat(trie.getStateCount(), equalTo(7));
+        assertThat(trie.getPositionCount(), equalTo(18));
+        assertThat(trie.getMaxLength(), equalTo(7));
+    }
+
+    @Test
+    public void testConstructor_Empty() {
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c));
+
+        assertThat(trie.getStateCount(), equalTo(1));
+        assertThat(trie.getMaxLength(), equalTo(0));
+        assertThat(match(trie, "text"), equalTo(Collections.emptyList()));
+    }
+
+    @Test
+    public void testConstructor_Profiled() {
+        MutableTrie<String> mutableTrie = trie(c -> c, "abc", "xyz", "xya");
+        CompiledTrie<String> breadthFirst = new CompiledTrie<>(mutableTrie);
+        CompiledTrie<String> profiled = new CompiledTrie<>(mutableTrie, Collections.singletonList("xyzxyzabc"));
+
+        // labels "abc", "xy", "a", "z" are visited 3, 4, 0 and 2 times
+        assertThat(breadthFirst.getLabels(), equalTo("abcxyaz"));
+        assertThat(profiled.getLabels(), equalTo("xyabcza"));
+        assertThat(match(profiled, "xyzabcxya"), equalTo(match(breadthFirst, "xyzabcxya")));
+    }
+
+    // test write() and read() -----------------------------------------------------------------------------------------
+
+    @Test
+    public void testWriteRead() throws IOException {
+        Random random = new Random(42);
+        String[] sequences = new String[50];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = random(random, 1 + random.nextInt(8), "abcAB");
+        }
+        CompiledTrie<String> expected = new CompiledTrie<>(trie(Character::toLowerCase, sequences));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        expected.write(new DataOutputStream(bytes), payload -> payload);
+
+        CompiledTrie<String> actual = CompiledTrie.read(new DataInputStream(new ByteArrayInputStream(
+                bytes.toByteArray())), Character::toLowerCase, payload -> payload);
+
+        assertThat(actual.getStateCount(), equalTo(expected.getStateCount()));
+        assertThat(actual.getMaxLength(), equalTo(expected.getMaxLength()));
+        for (int i = 0; i < 20; i++) {
+            String text = random(random, 1 + random.nextInt(1000), "abcdABCD");
+            assertThat(match(actual, text), equalTo(match(expected, text)));
+        }
+    }
+
+    @Test
+    public void testWriteRead_Groups() throws IOException {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("he", "he", 0b01);
+        trie.addCharSequence("she", "she", 0b10);
+        trie.addCharSequence("hers", "hers");
+        trie.init();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CompiledTrie<>(trie).write(new DataOutputStream(bytes), payload -> payload);
+
+        CompiledTrie<String> actual = CompiledTrie.read(new DataInputStream(new ByteArrayInputStream(
+                bytes.toByteArray())), c -> c, payload -> payload);
+
+        List<Triple<Integer, Integer, String>> matches = new ArrayList<>();
+        actual.match("ushers", 0b10, (begin, end, payload) -> matches.add(Triple.of(begin, end, payload)));
+        assertThat(matches, equalTo(Arrays.asList(Triple.of(1, 4, "she"), Triple.of(2, 6, "hers"))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_WrongFormat() throws IOException {
+        CompiledTrie.read(new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})), c -> c,
+                payload -> payload);
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_SequenceIsEmpty() {
+        new CompiledTrie<>(trie(c -> c, "text")).match("", (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch_Overlap() {
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, "hers", "his", "sher", "he"));
+
+        assertThat(match(trie, "shers"), equalTo(Arrays.asList(
+                Triple.of(1, 3, "he"),
+                Triple.of(0, 4, "sher"),
+                Triple.of(1, 5, "hers"))));
+    }
+
+    @Test
+    public void testMatch_MismatchInsideLabel() {
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, "abcdef", "bcd", "cdx"));
+
+        assertThat(match(trie, "abcdxabcdef"), equalTo(Arrays.asList(
+                Triple.of(1, 4, "bcd"),
+                Triple.of(2, 5, "cdx"),
+                Triple.of(6, 9, "bcd"),
+                Triple.of(5, 11, "abcdef"))));
+    }
+
+    @Test
+    public void testMatch_LongOutputChain() {
+        String[] sequences = new String[50];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = StringUtils.repeat('a', i + 1);
+        }
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, sequences));
+        String text = StringUtils.repeat('a', 60);
+
+        assertThat(match(trie, text), equalTo(match(trie(c -> c, sequences), text)));
+        // a pair, the inlined pairs of the suffix and a jump or an end marker per sequence
+        assertThat(trie.getSlicesLength() <= 50 * (2 + 2 * CompiledTrie.MAX_INLINE_OUTPUTS + 1), is(true));
+        assertThat(trie.getMaxLength(), equalTo(50));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, "ab", "b"));
+        List<String> payloads = new ArrayList<>();
+
+        trie.match("abab", (beginIndex, endIndex, payload) -> payloads.add(payload) && payloads.size() < 3);
+
+        assertThat(payloads, equalTo(Arrays.asList("ab", "b", "ab")));
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        MutableTrie<String> mutableTrie = trie(c -> c, "foo", "bar", "boo");
+        HitStatistics<String> hitStatistics = new HitStatistics<>(mutableTrie.getPayloads());
+        mutableTrie.setHitStatistics(hitStatistics);
+        CompiledTrie<String> trie = new CompiledTrie<>(mutableTrie);
+
+        match(trie, "foo bar foo");
+
+        assertThat(hitStatistics.getHits(0), equalTo(2L));
+        assertThat(hitStatistics.getHits(1), equalTo(1L));
+        assertThat(hitStatistics.getHits(2), equalTo(0L));
+    }
+
+    @Test
+    public void testMatch_DenseAndSparseStates() {
+        // a dense root spanning Latin and Cyrillic, a dense state after "a" and a searched one after "b"
+        List<String> sequences = new ArrayList<>(Arrays.asList("\u0430\u044f", "b\u0000", "b\uffff"));
+        for (char c = 'a'; c <= 'p'; c++) {
+            sequences.add("a" + c);
+        }
+        for (char c = 's'; c <= 'z'; c++) {
+            sequences.add("b" + c);
+        }
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, sequences.toArray(new String[0])));
+
+        checkSameAsAhoCorasick(trie, sequences.toArray(new String[0]),
+                "ab\u0430\u044fb\u0000b\uffff",
+                "aaapaqbsbtbr\u0430",
+                "a\u0000a\uffffb\u0001b\ufffe\u0430\u0430\u044f",
+                "\u0000\uffff\u042f\u0450");
+    }
+
+    @Test
+    public void testMatch_ExtremesInsideLabels() {
+        // the labels are "\u0000\uffff\u0000" and "\uffff\u0000\uffff", mismatches are at the extremes
+        String[] sequences = {"\u0000\uffff\u0000", "\uffff\u0000\uffff", "\uffff\u0000"};
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, sequences));
+
+        checkSameAsAhoCorasick(trie, sequences,
+                "\u0000\uffff\uffff\u0000\uffff\u0000",
+                "\u0000\uffff\u0000\uffff\u0000\uffff",
+                "\uffff\u0000\u0000\uffff\u0001");
+    }
+
+    @Test
+    public void testMatch_Surrogates() {
+        String[] sequences = {"\ud83d\ude00", "\ude00\ud83d", "\ud83d\ude01\ud83d\ude00"};
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, sequences));
+
+        checkSameAsAhoCorasick(trie, sequences,
+                "\ud83d\ude01\ud83d\ude00\ud83d\ude00",
+                "\ude00\ud83d\ude01\ud83d\ude00\ud83d");
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        // labels hold converted characters
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(Character::toLowerCase, "hers", "his", "sher", "he"));
+
+        assertThat(match(trie, "SHErs"), equalTo(Arrays.asList(
+                Triple.of(1, 3, "he"),
+                Triple.of(0, 4, "sher"),
+                Triple.of(1, 5, "hers"))));
+        assertThat(step(trie, "SHErs"), equalTo(match(trie, "SHErs")));
+    }
+
+    private static void checkSameAsAhoCorasick(CompiledTrie<String> trie, String[] sequences, String... texts) {
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        assertSameAsAhoCorasick(trie, expected, texts);
+        for (String text : texts) {
+            assertThat(step(trie, text), equalTo(match(expected, text)));
+        }
+    }
+
+    // test step() -----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testStep() {
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(Character::toLowerCase, "hers", "he"));
+
+        int h = trie.step(trie.root(), 'H');
+        int he = trie.step(h, 'e');
+        int x = trie.step(he, 'x');
+
+        assertThat(trie.root(), equalTo(0));
+        assertThat(trie.hasOutput(trie.root()), equalTo(false));
+        assertThat(trie.hasOutput(h), equalTo(false));
+        assertThat(trie.hasOutput(he), equalTo(true));
+        assertThat(trie.getPayload(trie.getPatternId(trie.firstOutput(he))), equalTo("he"));
+        assertThat(trie.getLength(trie.firstOutput(he)), equalTo(2));
+        assertThat(trie.nextOutput(trie.firstOutput(he)), equalTo(-1));
+        assertThat(trie.firstOutput(h), equalTo(-1));
+        assertThat(x, equalTo(trie.root()));
+        assertThat(trie.step(trie.step(he, 'h'), 'e'), equalTo(he));
+    }
+
+    @Test
+    public void testStep_LongOutputChain() {
+        String[] sequences = new String[20];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = StringUtils.repeat('a', i + 1);
+        }
+        CompiledTrie<String> trie = new CompiledTrie<>(trie(c -> c, sequences));
+        String text = StringUtils.repeat('a', 30);
+
+        assertThat(step(trie, text), equalTo(match(trie, text)));
+    }
+
+    private static List<Triple<Integer, Integer, String>> step(Automaton<String> automaton, String text) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        int state = automaton.root();
+        for (int i = 0; i < text.length(); i++) {
+            state = automaton.step(state, text.charAt(i));
+            for (int o = automaton.firstOutput(state); o >= 0; o = automaton.nextOutput(o)) {
+                result.add(Triple.of(i + 1 - automaton.getLength(o), i + 1,
+                        automaton.getPayload(automaton.getPatternId(o))));
+            }
+        }
+        return result;
+    }
+
+}
\ No newline at end of file
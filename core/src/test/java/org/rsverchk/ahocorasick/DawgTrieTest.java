@@ -0,0 +1,160 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.rsverchk.ahocorasick.TrieFixtures.*;
+
+/**
+ * Tests for {@link DawgTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class DawgTrieTest {
+
+    // test constructor ------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_TrieIsNull() {
+        new DawgTrie<>(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConstructor_NotInitialized() {
+        new DawgTrie<>(new MutableTrie<>(c -> c));
+    }
+
+    @Test
+    public void testConstructor_SharedSuffixes() {
+        // the trie has 19 nodes, the DAWG shares everything after "w" and "t" and the ends of both "ing" and "ed"
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, "walking", "walked", "talking", "talked"));
+
+        assertThat(trie.getStateCount(), equalTo(9));
+        assertThat(trie.getTransitionCount(), equalTo(10));
+    }
+
+    @Test
+    public void testConstructor_Empty() {
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c));
+
+        assertThat(trie.getStateCount(), equalTo(1));
+        assertThat(match(trie, "text"), equalTo(Collections.emptyList()));
+    }
+
+    @Test
+    public void testConstructor_LongSequence() {
+        String sequence = StringUtils.repeat('a', 100000);
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, "x" + sequence, "y" + sequence, "y"));
+
+        assertThat(match(trie, "y" + sequence), equalTo(Arrays.asList(
+                Triple.of(0, 1, "y"),
+                Triple.of(0, sequence.length() + 1, "y" + sequence))));
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_SequenceIsEmpty() {
+        new DawgTrie<>(trie(c -> c, "text")).match("", (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch_Overlap() {
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, "hers", "his", "sher", "he"));
+
+        assertThat(match(trie, "shers"), equalTo(Arrays.asList(
+                Triple.of(1, 3, "he"),
+                Triple.of(0, 4, "sher"),
+                Triple.of(1, 5, "hers"))));
+    }
+
+    @Test
+    public void testMatch_SharedSuffixes() {
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, "walking", "walked", "talking", "talked", "king"));
+
+        assertThat(match(trie, "talking walked"), equalTo(Arrays.asList(
+                Triple.of(0, 7, "talking"),
+                Triple.of(3, 7, "king"),
+                Triple.of(8, 14, "walked"))));
+    }
+
+    @Test
+    public void testMatch_ManyPendingMatches() {
+        String[] sequences = new String[40];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = StringUtils.repeat('a', i + 1);
+        }
+        String text = StringUtils.repeat('a', 100);
+
+        assertThat(match(new DawgTrie<>(trie(c -> c, sequences)), text),
+                equalTo(match(trie(c -> c, sequences), text)));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, "ab", "b"));
+        List<String> payloads = new ArrayList<>();
+
+        trie.match("abab", (beginIndex, endIndex, payload) -> payloads.add(payload) && payloads.size() < 3);
+
+        assertThat(payloads, equalTo(Arrays.asList("ab", "b", "ab")));
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        MutableTrie<String> mutableTrie = trie(c -> c, "foo", "bar", "boo");
+        HitStatistics<String> hitStatistics = new HitStatistics<>(mutableTrie.getPayloads());
+        mutableTrie.setHitStatistics(hitStatistics);
+        DawgTrie<String> trie = new DawgTrie<>(mutableTrie);
+
+        match(trie, "foo bar foo");
+
+        assertThat(hitStatistics.getHits(0), equalTo(2L));
+        assertThat(hitStatistics.getHits(1), equalTo(1L));
+        assertThat(hitStatistics.getHits(2), equalTo(0L));
+    }
+
+    @Test
+    public void testMatch_LexicographicExtremes() {
+        // payloads are found by the index in lexicographic order, '\u0000' and '\uffff' are its extremes
+        String[] sequences = {"\uffff", "\u0000\uffff", "\u0000", "\uffff\u0000", "a\uffff", "\u0000a"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "\u0000\uffff\u0000a\uffff",
+                "\uffff\uffff\u0000\u0000a",
+                "a\uffff\u0000\uffff");
+    }
+
+    @Test
+    public void testMatch_SharedSurrogates() {
+        // the pairs share the high surrogate and the tails after it
+        String[] sequences = {"x\ud83d\ude00", "y\ud83d\ude00", "x\ud83d\ude01", "\ude00"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        DawgTrie<String> trie = new DawgTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "x\ud83d\ude00y\ud83d\ude00x\ud83d\ude01",
+                "\ud83d\ude00xy\ud83d\ude01");
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        // the states of converted sequences are merged
+        String[] sequences = {"Walking", "TALKING", "king"};
+        MutableTrie<String> expected = trie(Character::toLowerCase, sequences);
+        DawgTrie<String> trie = new DawgTrie<>(trie(Character::toLowerCase, sequences));
+
+        assertSameAsAhoCorasick(trie, expected, "talking WALKING", "WalKing");
+    }
+
+}
\ No newline at end of file
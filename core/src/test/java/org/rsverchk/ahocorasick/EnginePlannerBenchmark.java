@@ -0,0 +1,142 @@
+package org.rsverchk.ahocorasick;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calibration of {@link EnginePlanner} heuristics: every engine is measured on dictionaries of different shapes. It
+ * is run by hand and checks nothing, the thresholds are derived from its results, which are recorded next to them.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class EnginePlannerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        /**
+         * Dictionary shape: number of sequences, the range of their lengths and the alphabet size, optionally the
+         * length of a single outlying sequence added to them.
+         */
+        @Param({"5:16-32/26", "5:16-32/1000", "5:16-32/1000+12", "5:16-32/1000+8", "5:16-32/1000+4", "5:8-12/1000",
+                "2:4-8/1000", "100:4-8/1000", "2:4-8/26", "10:4-8/26", "100:2-4/26", "100:4-8/26", "100:16-32/26",
+                "1000:8-16/26", "1000:8-16/26+2", "20000:4-8/26", "200000:8-16/26"})
+        public String shape;
+
+        public Trie<String> planned;
+        public Trie<String> ahoCorasick;
+        public Trie<String> setHorspool;
+        public Trie<String> qGramPrefilter;
+        public String text;
+
+        private int alphabet;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String[] parts = shape.split("[:/+-]");
+            int count = Integer.parseInt(parts[0]);
+            int minLength = Integer.parseInt(parts[1]);
+            int maxLength = Integer.parseInt(parts[2]);
+            alphabet = Integer.parseInt(parts[3]);
+            Random random = new Random(42);
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                patterns.add(random(random, minLength + random.nextInt(maxLength - minLength + 1)));
+            }
+            if (parts.length > 4) {
+                patterns.add(random(random, Integer.parseInt(parts[4])));
+            }
+            TrieBuilder<String> builder = builder(patterns).withEngine(Engine.AUTO);
+            planned = builder.build();
+            ahoCorasick = builder(patterns).build();
+            setHorspool = builder(patterns).withEngine(Engine.SET_HORSPOOL).build();
+            qGramPrefilter = builder(patterns).withPrefilter(QGramPrefilter.factory()).build();
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 50000) {
+                text.append(random(random, 2000));
+                text.append(patterns.get(random.nextInt(patterns.size())));
+            }
+            this.text = text.toString();
+        }
+
+        private static TrieBuilder<String> builder(List<String> patterns) {
+            TrieBuilder<String> builder = new TrieBuilder<>();
+            for (String s : patterns) {
+                builder.addCharSequence(s, s);
+            }
+            return builder;
+        }
+
+        private String random(Random random, int length) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + random.nextInt(alphabet)));
+            }
+            return builder.toString();
+        }
+
+    }
+
+    public static void main(String ... args) throws IOException, RunnerException {
+        Main.main(args);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testPlanned(MyState state, Blackhole blackhole) {
+        testTrie(state.planned, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testAhoCorasick(MyState state, Blackhole blackhole) {
+        testTrie(state.ahoCorasick, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testSetHorspool(MyState state, Blackhole blackhole) {
+        testTrie(state.setHorspool, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testQGramPrefilter(MyState state, Blackhole blackhole) {
+        testTrie(state.qGramPrefilter, state.text, blackhole);
+    }
+
+    private void testTrie(Trie<String> trie, String text, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        trie.match(text, (int beginIndex, int endIndex, String payload) -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
+}
\ No newline at end of file
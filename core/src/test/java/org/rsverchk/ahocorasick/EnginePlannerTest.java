@@ -0,0 +1,214 @@
+package org.rsverchk.ahocorasick;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link EnginePlanner} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class EnginePlannerTest {
+
+    private final EnginePlanner planner = new EnginePlanner();
+
+    @Test(expected = NullPointerException.class)
+    public void testPlan_TrieIsNull() {
+        planner.plan(null, EnginePlanner.MatchDensity.UNKNOWN);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPlan_MatchDensityIsNull() {
+        planner.plan(trie("text"), null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPlan_NotInitialized() {
+        planner.plan(new MutableTrie<>(c -> c), EnginePlanner.MatchDensity.UNKNOWN);
+    }
+
+    @Test
+    public void testPlan_Empty() {
+        EnginePlan plan = planner.plan(trie(), EnginePlanner.MatchDensity.UNKNOWN);
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_Profile() {
+        EnginePlan plan = planner.plan(trie("abcdefgh", "abcdefghi", "abcdefghij", "abcdefghijk", "abcdefghijkl"),
+                EnginePlanner.MatchDensity.SPARSE);
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), notNullValue());
+        assertThat(plan.getExplanation(), startsWith("5 sequences of 8-12 characters over 12 distinct characters, " +
+                "9 at the 25th length percentile"));
+    }
+
+    @Test
+    public void testPlan_Outlier() {
+        StringBuilder sequence = new StringBuilder();
+        for (int i = 0; i < EnginePlanner.HORSPOOL_MIN_ALPHABET; i++) {
+            sequence.append((char) ('0' + i));
+        }
+        String rotated = sequence.substring(32) + sequence.substring(0, 32);
+        String outlier = sequence.substring(0, EnginePlanner.HORSPOOL_MIN_SHIFT);
+
+        EnginePlan plan = planner.plan(trie(sequence.toString(), sequence.reverse().toString(), rotated,
+                new StringBuilder(rotated).reverse().toString(), outlier), EnginePlanner.MatchDensity.UNKNOWN);
+
+        assertThat(plan.getEngine(), equalTo(Engine.SET_HORSPOOL));
+        assertThat(plan.getExplanation(), startsWith("5 sequences of 12-64 characters over 64 distinct characters, " +
+                "64 at the 25th length percentile"));
+    }
+
+    @Test
+    public void testPlan_Dense() {
+        EnginePlan plan = planner.plan(1, 100, 100, 1000, EnginePlanner.MatchDensity.DENSE, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_SetHorspool() {
+        EnginePlan plan = planner.plan(EnginePlanner.HORSPOOL_MAX_PATTERNS, EnginePlanner.HORSPOOL_MIN_SHIFT,
+                EnginePlanner.HORSPOOL_MIN_LENGTH, EnginePlanner.HORSPOOL_MIN_ALPHABET,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.SET_HORSPOOL));
+    }
+
+    @Test
+    public void testPlan_SetHorspool_SmallAlphabet() {
+        EnginePlan plan = planner.plan(EnginePlanner.HORSPOOL_MAX_PATTERNS, EnginePlanner.HORSPOOL_MIN_SHIFT,
+                EnginePlanner.HORSPOOL_MIN_LENGTH, EnginePlanner.HORSPOOL_MIN_ALPHABET - 1,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), notNullValue());
+    }
+
+    @Test
+    public void testPlan_SetHorspool_ShortOutlier() {
+        EnginePlan plan = planner.plan(EnginePlanner.HORSPOOL_MAX_PATTERNS, EnginePlanner.HORSPOOL_MIN_SHIFT - 1,
+                EnginePlanner.HORSPOOL_MIN_LENGTH, EnginePlanner.HORSPOOL_MIN_ALPHABET,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_SetHorspool_ShortPercentile() {
+        EnginePlan plan = planner.plan(EnginePlanner.HORSPOOL_MAX_PATTERNS, EnginePlanner.HORSPOOL_MIN_SHIFT,
+                EnginePlanner.HORSPOOL_MIN_LENGTH - 1, EnginePlanner.HORSPOOL_MIN_ALPHABET,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_QGramPrefilter() {
+        EnginePlan plan = planner.plan(EnginePlanner.QGRAM_MIN_PATTERNS, EnginePlanner.QGRAM_MIN_LENGTH,
+                EnginePlanner.QGRAM_MIN_LENGTH, 26, EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), notNullValue());
+    }
+
+    @Test
+    public void testPlan_QGramPrefilter_FewPatterns() {
+        EnginePlan plan = planner.plan(EnginePlanner.QGRAM_MIN_PATTERNS - 1, EnginePlanner.QGRAM_MIN_LENGTH,
+                EnginePlanner.QGRAM_MIN_LENGTH, 26, EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_QGramPrefilter_LargeAlphabet() {
+        EnginePlan plan = planner.plan(EnginePlanner.HORSPOOL_MAX_PATTERNS + 1, EnginePlanner.HORSPOOL_MIN_SHIFT,
+                EnginePlanner.HORSPOOL_MIN_LENGTH, EnginePlanner.HORSPOOL_MIN_ALPHABET,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), notNullValue());
+    }
+
+    @Test
+    public void testPlan_QGramPrefilter_LargeAlphabet_ShortPercentile() {
+        EnginePlan plan = planner.plan(EnginePlanner.HORSPOOL_MAX_PATTERNS + 1, EnginePlanner.HORSPOOL_MIN_SHIFT,
+                EnginePlanner.HORSPOOL_MIN_LENGTH - 1, EnginePlanner.HORSPOOL_MIN_ALPHABET,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_AhoCorasick() {
+        EnginePlan plan = planner.plan(1000, EnginePlanner.QGRAM_MIN_LENGTH - 1, 100, 26,
+                EnginePlanner.MatchDensity.UNKNOWN, "");
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), nullValue());
+    }
+
+    @Test
+    public void testPlan_SpecifiedPrefilter() {
+        StringBuilder sequence = new StringBuilder();
+        for (int i = 0; i < EnginePlanner.HORSPOOL_MIN_ALPHABET; i++) {
+            sequence.append((char) ('0' + i));
+        }
+        MutableTrie<String> trie = trie(sequence.toString());
+        PrefilterFactory prefilterFactory = QGramPrefilter.factory();
+
+        EnginePlan plan = planner.plan(trie, EnginePlanner.MatchDensity.UNKNOWN, prefilterFactory);
+
+        // Set-Horspool otherwise, but it would drop the prefilter
+        assertThat(planner.plan(trie, EnginePlanner.MatchDensity.UNKNOWN).getEngine(), equalTo(Engine.SET_HORSPOOL));
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), sameInstance(prefilterFactory));
+    }
+
+    @Test
+    public void testPlan_Empty_SpecifiedPrefilter() {
+        PrefilterFactory prefilterFactory = QGramPrefilter.factory();
+
+        EnginePlan plan = planner.plan(trie(), EnginePlanner.MatchDensity.UNKNOWN, prefilterFactory);
+
+        assertThat(plan.getEngine(), equalTo(Engine.AHO_CORASICK));
+        assertThat(plan.getPrefilterFactory(), sameInstance(prefilterFactory));
+    }
+
+    @Test
+    public void testPlan_AhoCorasickOrSetHorspoolOnly() {
+        for (EnginePlanner.MatchDensity matchDensity : EnginePlanner.MatchDensity.values()) {
+            for (int length = 1; length <= 1000; length *= 10) {
+                for (int patternCount = 1; patternCount <= 100000; patternCount *= 10) {
+                    for (int alphabetSize = 1; alphabetSize <= 10000; alphabetSize *= 10) {
+                        EnginePlan plan = planner.plan(patternCount, length, length, alphabetSize, matchDensity, "");
+
+                        assertThat(plan.getEngine(), anyOf(equalTo(Engine.AHO_CORASICK),
+                                equalTo(Engine.SET_HORSPOOL)));
+                    }
+                }
+            }
+        }
+    }
+
+    private static MutableTrie<String> trie(String... sequences) {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        for (String sequence : sequences) {
+            trie.addCharSequence(sequence, sequence);
+        }
+        trie.init();
+        return trie;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package org.rsverchk.ahocorasick;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link HitStatistics} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class HitStatisticsTest {
+
+    private HitStatistics<String> statistics;
+
+    @Before
+    public void setUp() {
+        statistics = new HitStatistics<>(ImmutableList.of("a", "b", "c"), 4);
+    }
+
+    // test constructor ------------------------------------------------------------------------------------------------
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_PayloadsIsNull() {
+        new HitStatistics<>(null, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_StripesIsZero() {
+        new HitStatistics<>(Collections.emptyList(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_StripesIsNotPowerOfTwo() {
+        new HitStatistics<>(Collections.emptyList(), 3);
+    }
+    // test constructor ------------------------------------------------------------------------------------------------
+
+    // test increment() ------------------------------------------------------------------------------------------------
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIncrement_NegativeId() {
+        statistics.increment(-1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIncrement_NoSuchPattern() {
+        statistics.increment(3);
+    }
+
+    @Test
+    public void testIncrement() {
+        statistics.increment(0);
+        statistics.increment(2);
+        statistics.increment(2);
+
+        assertThat(statistics.getHits(0), equalTo(1L));
+        assertThat(statistics.getHits(1), equalTo(0L));
+        assertThat(statistics.getHits(2), equalTo(2L));
+    }
+    // test increment() ------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testIncrement_Concurrent() throws InterruptedException {
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int k = 0; k < 10000; k++) {
+                    statistics.increment(k % 3);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] snapshot = statistics.snapshot();
+
+        assertThat(snapshot[0] + snapshot[1] + snapshot[2], equalTo(80000L));
+        assertThat(snapshot[0], equalTo(8L * 3334));
+    }
+
+    @Test
+    public void testSnapshot() {
+        statistics.increment(1);
+
+        assertThat(statistics.snapshot(), equalTo(new long[]{0, 1, 0}));
+    }
+
+    @Test
+    public void testReset() {
+        statistics.increment(0);
+        statistics.increment(1);
+
+        statistics.reset();
+
+        assertThat(statistics.snapshot(), equalTo(new long[]{0, 0, 0}));
+    }
+
+    @Test
+    public void testGetNeverMatched() {
+        statistics.increment(1);
+
+        assertThat(statistics.getNeverMatched(), equalTo(ImmutableList.of("a", "c")));
+    }
+
+    @Test
+    public void testGetPayload() {
+        assertThat(statistics.getPatternCount(), equalTo(3));
+        assertThat(statistics.getPayload(1), equalTo("b"));
+    }
+
+}
\ No newline at end of file
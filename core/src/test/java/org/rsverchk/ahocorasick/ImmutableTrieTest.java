@@ -0,0 +1,69 @@
+package org.rsverchk.ahocorasick;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.CharBuffer;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link ImmutableTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ImmutableTrieTest {
+
+    @Mock
+    private Trie<Object> trie;
+
+    @Mock
+    private MatchHandler<Object> handler;
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_TrieIsNull() {
+        new ImmutableTrie<>(null);
+    }
+
+    @Test
+    public void testFinalFields() {
+        assertThat(Modifier.isFinal(ImmutableTrie.class.getModifiers()), equalTo(true));
+        for (Field field : ImmutableTrie.class.getDeclaredFields()) {
+            assertThat(field.getName(), Modifier.isFinal(field.getModifiers()), equalTo(true));
+        }
+    }
+
+    @Test
+    public void testMatch() {
+        char[] array = "text".toCharArray();
+        CharBuffer buffer = CharBuffer.wrap(array);
+        ImmutableTrie<Object> immutableTrie = new ImmutableTrie<>(trie);
+
+        immutableTrie.match("text", handler);
+        immutableTrie.match("text", 1, 3, handler);
+        immutableTrie.match(array, 1, 2, handler);
+        immutableTrie.match(buffer, handler);
+        immutableTrie.match("text", 0b101L, handler);
+        immutableTrie.get("text");
+        immutableTrie.longestPrefixMatch("text", 1);
+        immutableTrie.allPrefixMatches("text", 2, handler);
+
+        verify(trie, times(1)).match("text", handler);
+        verify(trie, times(1)).match("text", 1, 3, handler);
+        verify(trie, times(1)).match(array, 1, 2, handler);
+        verify(trie, times(1)).match(buffer, handler);
+        verify(trie, times(1)).match("text", 0b101L, handler);
+        verify(trie, times(1)).get("text");
+        verify(trie, times(1)).longestPrefixMatch("text", 1);
+        verify(trie, times(1)).allPrefixMatches("text", 2, handler);
+        verifyNoMoreInteractions(trie);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.rsverchk.ahocorasick.TrieFixtures.*;
+
+/**
+ * Tests for {@link LazyDfaTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class LazyDfaTrieTest {
+
+    // test constructor ------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_TrieIsNull() {
+        new LazyDfaTrie<>(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConstructor_NotInitialized() {
+        new LazyDfaTrie<>(new MutableTrie<>(c -> c));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_BudgetIsTooSmall() {
+        new LazyDfaTrie<>(trie(c -> c, "text"), 7);
+    }
+
+    @Test
+    public void testConstructor_CacheSize() {
+        assertThat(new LazyDfaTrie<>(trie(c -> c, "text"), 1000).getCacheSize(), equalTo(64));
+        assertThat(new LazyDfaTrie<>(trie(c -> c, "text")).getCacheSize(),
+                equalTo(LazyDfaTrie.DEFAULT_CACHE_BUDGET / 8));
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_SequenceIsEmpty() {
+        new LazyDfaTrie<>(trie(c -> c, "text")).match("", (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch_Overlap() {
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(c -> c, "hers", "his", "sher", "he"));
+
+        assertThat(match(trie, "shers"), equalTo(Arrays.asList(
+                Triple.of(1, 3, "he"),
+                Triple.of(0, 4, "sher"),
+                Triple.of(1, 5, "hers"))));
+        assertThat(trie.getCachedCount() > 0, is(true));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(c -> c, "ab", "b"));
+        List<String> payloads = new ArrayList<>();
+
+        trie.match("abab", (beginIndex, endIndex, payload) -> payloads.add(payload) && payloads.size() < 3);
+
+        assertThat(payloads, equalTo(Arrays.asList("ab", "b", "ab")));
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        MutableTrie<String> mutableTrie = trie(c -> c, "foo", "bar");
+        HitStatistics<String> hitStatistics = new HitStatistics<>(mutableTrie.getPayloads());
+        mutableTrie.setHitStatistics(hitStatistics);
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(mutableTrie);
+
+        match(trie, "foo bar foo");
+
+        assertThat(hitStatistics.getHits(0), equalTo(2L));
+        assertThat(hitStatistics.getHits(1), equalTo(1L));
+    }
+
+    @Test
+    public void testMatch_SparseRoot() {
+        // the range of the root keys is far over the budget of a dense table
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(c -> c, "a", "\uffff", "b\uffff"));
+
+        assertThat(match(trie, "\uffffab\uffffc"), equalTo(Arrays.asList(
+                Triple.of(0, 1, "\uffff"),
+                Triple.of(1, 2, "a"),
+                Triple.of(2, 4, "b\uffff"),
+                Triple.of(3, 4, "\uffff"))));
+    }
+
+    @Test
+    public void testMatch_Extremes() {
+        // '\u0000' and '\uffff' are the extremes of the character bits of a cache entry, the repeated text is
+        // matched by cached transitions
+        String[] sequences = {"\u0000\u0000", "\u0000\uffff\u0000", "\uffff\uffff"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "\u0000\u0000\u0000\uffff\u0000\u0000",
+                "\uffff\uffff\uffff\u0000\uffff\u0000",
+                "\u0000\u0000\u0000\uffff\u0000\u0000");
+        assertThat(trie.getCachedCount() > 0, is(true));
+    }
+
+    @Test
+    public void testMatch_Surrogates() {
+        String[] sequences = {"\ud83d\ude00", "\ude00\ud83d", "\ud83d\ude01\ud83d\ude00"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "\ud83d\ude01\ud83d\ude00\ud83d\ude00",
+                "\ude00\ud83d\ude01\ud83d\ude00\ud83d");
+    }
+
+    @Test
+    public void testMatch_Eviction() {
+        // a single slot, every transition evicts the previous one
+        MutableTrie<String> expected = trie(c -> c, "hers", "his", "sher", "he");
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(c -> c, "hers", "his", "sher", "he"), Long.BYTES);
+
+        assertSameAsAhoCorasick(trie, expected, "shershishe", "hhishershe", "shershishe");
+        assertThat(trie.getCacheSize(), equalTo(1));
+        assertThat(trie.getCachedCount(), equalTo(1));
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        // transitions are cached by converted characters
+        MutableTrie<String> expected = trie(Character::toLowerCase, "hers", "his", "sher", "he");
+        LazyDfaTrie<String> trie = new LazyDfaTrie<>(trie(Character::toLowerCase, "hers", "his", "sher", "he"));
+
+        assertSameAsAhoCorasick(trie, expected, "SHERS", "shErs HiS", "SHERS");
+    }
+
+    @Test
+    public void testMatch_Concurrent() throws Exception {
+        Random random = new Random(42);
+        String[] sequences = sequences(random);
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        LazyDfaTrie<String> actual = new LazyDfaTrie<>(trie(c -> c, sequences), 256);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            texts.add(random(random, 1 + random.nextInt(1000), "abcdABCD"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    boolean same = true;
+                    for (int i = 0; i < 20; i++) {
+                        for (String text : texts) {
+                            same &= match(actual, text).equals(match(expected, text));
+                        }
+                    }
+                    return same;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get(), is(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String[] sequences(Random random) {
+        String[] sequences = new String[50];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = random(random, 1 + random.nextInt(8), "abcAB");
+        }
+        return sequences;
+    }
+
+}
\ No newline at end of file
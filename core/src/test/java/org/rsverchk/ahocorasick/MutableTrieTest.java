@@ -1,5 +1,6 @@
 package org.rsverchk.ahocorasick;
 
+import org.apache.commons.lang3.tuple.Triple;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -7,6 +8,16 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +50,9 @@ public class MutableTrieTest {
     @Mock
     private Node<Object> terminalSuffix;
 
+    @Mock
+    private Prefilter prefilter;
+
     @Mock
     private Object payload;
 
@@ -84,6 +98,7 @@ public class MutableTrieTest {
         trie = spy(new MutableTrie<>(converter));
 
         trie.setRoot(root);
+        trie.setStartCharacters(bitset('a', 'b', 'c'));
     }
 
     // test addCharSequence() ------------------------------------------------------------------------------------------
@@ -135,6 +150,21 @@ public class MutableTrieTest {
         assertThat(abc.getChildren().size(), equalTo(1));
         Node<Object> d = abc.getChild('d');
         assertThat(d.getPayload(), sameInstance(payload));
+        assertThat(d.getPatternId(), equalTo(0));
+    }
+
+    @Test
+    public void testAddCharSequence_PatternIds() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+
+        trie.addCharSequence("foo", "foo1");
+        trie.addCharSequence("bar", "bar");
+        trie.addCharSequence("foo", "foo2");
+
+        assertThat(trie.getPatternCount(), equalTo(2));
+        assertThat(trie.getPayloads(), equalTo(Arrays.asList("foo2", "bar")));
+        assertThat(trie.getRoot().getChild('f').getChild('o').getChild('o').getPatternId(), equalTo(0));
+        assertThat(trie.getRoot().getChild('b').getChild('a').getChild('r').getPatternId(), equalTo(1));
     }
     // test addCharSequence() ------------------------------------------------------------------------------------------
 
@@ -147,13 +177,16 @@ public class MutableTrieTest {
 
     @Test
     public void testInit() {
+        long[] startCharacters = bitset('x');
         doReturn(consumer).when(trie).getNodeInitializer();
         doNothing().when(trie).breadthFirstTraversal(consumer);
+        doReturn(startCharacters).when(trie).findStartCharacters();
         trie.setRoot(node);
 
         trie.init();
 
         assertThat(trie.isBuilt(), is(true));
+        assertThat(trie.getStartCharacters(), sameInstance(startCharacters));
         verify(node, times(1)).init();
         verify(trie, times(1)).breadthFirstTraversal(consumer);
         verifyNoMoreInteractions(node);
@@ -216,8 +249,418 @@ public class MutableTrieTest {
         verify(handler, times(1)).handle(0, 3, "abc");
         verify(handler, times(1)).handle(2, 3, "c");
     }
+
+    @Test
+    public void testMatch_SkipCharacters() {
+        doReturn('a').when(converter).convert('a');
+        doReturn('b').when(converter).convert('b');
+        doReturn('c').when(converter).convert('c');
+
+        trie.setBuilt(true);
+
+        doReturn(true).when(handler).handle(anyInt(), anyInt(), any());
+
+        trie.match("xxabcxxcxx", handler);
+
+        verify(handler, times(1)).handle(2, 5, "abc");
+        verify(handler, times(1)).handle(4, 5, "c");
+        verify(handler, times(1)).handle(7, 8, "c");
+        verifyNoMoreInteractions(handler);
+        verify(converter, times(3)).convert('x'); // only while falling back to root
+    }
+
+    @Test
+    public void testMatch_Prefilter() {
+        doReturn('a').when(converter).convert('a');
+        doReturn('b').when(converter).convert('b');
+        doReturn('c').when(converter).convert('c');
+        doReturn('x').when(converter).convert('x');
+        // "a" and "c" can start a match
+        doReturn(1).when(prefilter).next("xabcxcx", 0);
+        doReturn(3).when(prefilter).next("xabcxcx", 3);
+        doReturn(5).when(prefilter).next("xabcxcx", 4);
+        doReturn(7).when(prefilter).next("xabcxcx", 6);
+
+        trie.setBuilt(true);
+        trie.setPrefilter(prefilter);
+
+        doReturn(true).when(handler).handle(anyInt(), anyInt(), any());
+
+        trie.match("xabcxcx", handler);
+
+        verify(handler, times(1)).handle(1, 4, "abc");
+        verify(handler, times(1)).handle(3, 4, "c");
+        verify(handler, times(1)).handle(5, 6, "c");
+        verifyNoMoreInteractions(handler);
+        verify(prefilter, times(4)).next(anyString(), anyInt());
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        doReturn('a').when(converter).convert('a');
+        doReturn('b').when(converter).convert('b');
+        doReturn('c').when(converter).convert('c');
+        doReturn('$').when(converter).convert('$');
+        c.setPatternId(0);
+        abc.setPatternId(1);
+        HitStatistics<Object> hitStatistics = new HitStatistics<>(Arrays.asList("c", "abc"), 1);
+
+        trie.setBuilt(true);
+        trie.setHitStatistics(hitStatistics);
+
+        doReturn(true).when(handler).handle(anyInt(), anyInt(), any());
+
+        trie.match("abc$bcc", handler);
+
+        assertThat(hitStatistics.snapshot(), equalTo(new long[]{3, 1}));
+    }
     // test match() ----------------------------------------------------------------------------------------------------
 
+    // test match() overloads ------------------------------------------------------------------------------------------
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testMatchRange_OutOfBounds() {
+        trie.setBuilt(true);
+
+        trie.match("abc", 1, 4, handler);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatchRange_Empty() {
+        trie.setBuilt(true);
+
+        trie.match("abc", 1, 1, handler);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testMatchArray_NegativeLength() {
+        trie.setBuilt(true);
+
+        trie.match("abc".toCharArray(), 2, -1, handler);
+    }
+
+    @Test
+    public void testMatchRange_Interrupt() {
+        doReturn('a').when(converter).convert('a');
+        doReturn('b').when(converter).convert('b');
+        doReturn('c').when(converter).convert('c');
+        doReturn('$').when(converter).convert('$');
+
+        trie.setBuilt(true);
+
+        doReturn(false).when(handler).handle(2, 5, "abc");
+
+        trie.match(new StringBuilder("$$abc$bc$"), 1, 8, handler);
+
+        verify(handler, times(1)).handle(2, 5, "abc");
+        verifyNoMoreInteractions(handler);
+    }
+
+    @Test
+    public void testMatchRange_SameAsSubstring() {
+        Random random = new Random(42);
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        for (int i = 0; i < 30; i++) {
+            String sequence = random(random, 1 + random.nextInt(6));
+            trie.addCharSequence(sequence, sequence);
+        }
+        trie.init();
+        String text = random(random, 3 * MutableTrie.CHUNK_SIZE + 100);
+        char[] array = ("$$" + text + "$").toCharArray();
+        CharBuffer heap = CharBuffer.wrap(array);
+        heap.position(2);
+        CharBuffer direct = ByteBuffer.allocateDirect(array.length * 2).asCharBuffer().put(array);
+        direct.position(2);
+        for (int i = 0; i < 10; i++) {
+            int beginIndex = random.nextInt(text.length());
+            int endIndex = beginIndex + 1 + random.nextInt(text.length() - beginIndex);
+            List<Triple<Integer, Integer, String>> expected = new ArrayList<>();
+            trie.match(text.substring(beginIndex, endIndex), (begin, end, payload) ->
+                    expected.add(Triple.of(begin + beginIndex, end + beginIndex, payload)));
+
+            assertThat(matchRange(trie, text, beginIndex, endIndex), equalTo(expected));
+            assertThat(matchRange(trie, new StringBuilder(text), beginIndex, endIndex), equalTo(expected));
+            assertThat(matchRange(trie, CharBuffer.wrap(text), beginIndex, endIndex), equalTo(expected));
+            assertThat(matchRange(trie, heap, beginIndex, endIndex), equalTo(expected));
+            assertThat(matchRange(trie, direct, beginIndex, endIndex), equalTo(expected));
+            List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+            trie.match(array, beginIndex + 2, endIndex - beginIndex, (begin, end, payload) ->
+                    actual.add(Triple.of(begin - 2, end - 2, payload)));
+            assertThat(actual, equalTo(expected));
+        }
+        List<Triple<Integer, Integer, String>> expected = new ArrayList<>();
+        trie.match(text, (begin, end, payload) -> expected.add(Triple.of(begin, end, payload)));
+        List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+        trie.match(heap, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+        assertThat(actual.subList(0, expected.size()), equalTo(expected));
+        assertThat(heap.position(), equalTo(2));
+    }
+
+    @Test
+    public void testMatchRange_Prefilter() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("ab", "ab");
+        trie.init();
+        trie.setPrefilter((sequence, fromIndex) -> fromIndex);
+        List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+        trie.match("abab".toCharArray(), 1, 2, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+        trie.match(new StringBuilder("abab"), 2, 4, (begin, end, payload) ->
+                actual.add(Triple.of(begin, end, payload)));
+
+        assertThat(actual, equalTo(Arrays.asList(Triple.of(2, 4, "ab"))));
+    }
+
+    @Test
+    public void testMatchRange_PrefilterArray() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("ab", "ab");
+        trie.init();
+        trie.setPrefilter(new Prefilter() {
+
+            @Override
+            public int next(@Nonnull CharSequence sequence, int fromIndex) {
+                throw new AssertionError("the array is expected to be scanned in place");
+            }
+
+            @Override
+            public int next(@Nonnull char[] array, int fromIndex, int toIndex) {
+                int index = fromIndex;
+                while (index < toIndex && array[index] != 'a') {
+                    index++;
+                }
+                return index;
+            }
+
+        });
+        char[] array = "xabxxabab".toCharArray();
+        List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+        trie.match(array, 1, 7, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+        trie.match(CharBuffer.wrap(array, 2, 7), 2, 5, (begin, end, payload) ->
+                actual.add(Triple.of(begin, end, payload)));
+
+        assertThat(actual, equalTo(Arrays.asList(Triple.of(1, 3, "ab"), Triple.of(5, 7, "ab"),
+                Triple.of(3, 5, "ab"))));
+    }
+
+    @Test
+    public void testMatchRange_Reentrant() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("ab", "ab");
+        trie.init();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < MutableTrie.CHUNK_SIZE; i++) {
+            text.append("ab");
+        }
+        List<Triple<Integer, Integer, String>> inner = new ArrayList<>();
+        int[] count = {0};
+
+        // the chunk of the outer match must not be reused by the inner one
+        trie.match(text, 0, text.length(), (begin, end, payload) -> {
+            if (count[0]++ == 0) {
+                trie.match(new StringBuilder("xxab"), 1, 4, (b, e, p) -> inner.add(Triple.of(b, e, p)));
+            }
+            return true;
+        });
+
+        assertThat(count[0], equalTo(MutableTrie.CHUNK_SIZE));
+        assertThat(inner, equalTo(Arrays.asList(Triple.of(2, 4, "ab"))));
+    }
+
+    // test match() overloads ------------------------------------------------------------------------------------------
+
+    // test match() groups ---------------------------------------------------------------------------------------------
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddCharSequence_NoGroups() {
+        trie.addCharSequence("abc", "abc", 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMatchGroups_NotBuilt() {
+        trie.match("abc", 1, handler);
+    }
+
+    @Test
+    public void testMatchGroups_NoneEnabled() {
+        MutableTrie<Object> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("a", "a");
+        trie.init();
+
+        trie.match("aaa", 0, handler);
+
+        verifyNoMoreInteractions(handler);
+    }
+
+    @Test
+    public void testMatchGroups_ReplacedGroups() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("ab", "ab", 0b01);
+        trie.addCharSequence("ab", "ab", 0b10);
+        trie.init();
+        List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+        trie.match("abab", 0b01, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+
+        assertThat(actual, equalTo(new ArrayList<>()));
+    }
+
+    @Test
+    public void testGetGroups() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("ab", "ab", 0b01);
+        trie.addCharSequence("b", "b");
+        trie.addCharSequence("ab", "ab", 0b10);
+
+        assertThat(trie.getGroups(), equalTo(new long[]{0b10, MutableTrie.ALL_GROUPS}));
+    }
+
+    @Test
+    public void testMatchGroups_SameAsFiltering() {
+        Random random = new Random(42);
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        Map<String, Long> groups = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            String sequence = random(random, 1 + random.nextInt(6)).toLowerCase();
+            long group = 1L << random.nextInt(64);
+            groups.put(sequence, group);
+            trie.addCharSequence(sequence, sequence, group);
+        }
+        trie.init();
+        String text = random(random, 5000);
+        List<Triple<Integer, Integer, String>> all = new ArrayList<>();
+        trie.match(text, (begin, end, payload) -> all.add(Triple.of(begin, end, payload)));
+        List<Triple<Integer, Integer, String>> allGroups = new ArrayList<>();
+        trie.match(text, MutableTrie.ALL_GROUPS, (begin, end, payload) ->
+                allGroups.add(Triple.of(begin, end, payload)));
+        assertThat(allGroups, equalTo(all));
+        for (int i = 0; i < 20; i++) {
+            long enabled = random.nextLong() & random.nextLong() & random.nextLong();
+            List<Triple<Integer, Integer, String>> expected = new ArrayList<>();
+            for (Triple<Integer, Integer, String> match : all) {
+                if ((groups.get(match.getRight()) & enabled) != 0) {
+                    expected.add(match);
+                }
+            }
+            List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+            trie.match(text, enabled, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+
+            assertThat(actual, equalTo(expected));
+        }
+    }
+    // test match() groups ---------------------------------------------------------------------------------------------
+
+    // test prefix lookups ---------------------------------------------------------------------------------------------
+    @Test(expected = IllegalStateException.class)
+    public void testGet_NotBuilt() {
+        trie.get("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLongestPrefixMatch_OffsetIsLength() {
+        trie.setBuilt(true);
+
+        trie.longestPrefixMatch("abc", 3);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAllPrefixMatches_NegativeOffset() {
+        trie.setBuilt(true);
+
+        trie.allPrefixMatches("abc", -1, handler);
+    }
+
+    @Test
+    public void testGet() {
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        trie.addCharSequence("he", "he");
+        trie.addCharSequence("hers", "hers");
+        trie.init();
+
+        assertThat(trie.get("he"), equalTo("he"));
+        assertThat(trie.get("HERS"), equalTo("hers"));
+        assertThat(trie.get("her"), nullValue());
+        assertThat(trie.get("hersh"), nullValue());
+        assertThat(trie.get("she"), nullValue());
+    }
+
+    @Test
+    public void testLongestPrefixMatch() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("he", "he");
+        trie.addCharSequence("hers", "hers");
+        trie.addCharSequence("she", "she");
+        trie.init();
+
+        assertThat(trie.longestPrefixMatch("ushers", 2), equalTo(6));
+        assertThat(trie.longestPrefixMatch("usher", 2), equalTo(4));
+        assertThat(trie.longestPrefixMatch("ushers", 1), equalTo(4));
+        // "he" ends inside "she" but doesn't start at the offset
+        assertThat(trie.longestPrefixMatch("ushe", 0), equalTo(-1));
+    }
+
+    @Test
+    public void testAllPrefixMatches() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("h", "h");
+        trie.addCharSequence("he", "he");
+        trie.addCharSequence("hers", "hers");
+        trie.addCharSequence("e", "e");
+        trie.init();
+        List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+        trie.allPrefixMatches("ushers", 2, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+
+        assertThat(actual, equalTo(Arrays.asList(Triple.of(2, 3, "h"), Triple.of(2, 4, "he"),
+                Triple.of(2, 6, "hers"))));
+    }
+
+    @Test
+    public void testAllPrefixMatches_Interrupt() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("h", "h");
+        trie.addCharSequence("he", "he");
+        trie.init();
+        List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+        trie.allPrefixMatches("he", 0, (begin, end, payload) -> !actual.add(Triple.of(begin, end, payload)));
+
+        assertThat(actual, equalTo(Arrays.asList(Triple.of(0, 1, "h"))));
+    }
+
+    @Test
+    public void testPrefixLookups_SameAsMatch() {
+        Random random = new Random(42);
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        for (int i = 0; i < 50; i++) {
+            String sequence = random(random, 1 + random.nextInt(6)).toLowerCase();
+            trie.addCharSequence(sequence, sequence);
+        }
+        trie.init();
+        String text = random(random, 2000);
+        List<List<Triple<Integer, Integer, String>>> expected = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            expected.add(new ArrayList<>());
+        }
+        trie.match(text, (begin, end, payload) -> expected.get(begin).add(Triple.of(begin, end, payload)));
+        for (int offset = 0; offset < text.length(); offset++) {
+            List<Triple<Integer, Integer, String>> matches = expected.get(offset);
+            matches.sort((left, right) -> Integer.compare(left.getMiddle(), right.getMiddle()));
+            List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+            trie.allPrefixMatches(text, offset, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+
+            assertThat(actual, equalTo(matches));
+            assertThat(trie.longestPrefixMatch(text, offset),
+                    equalTo(matches.isEmpty() ? -1 : matches.get(matches.size() - 1).getMiddle()));
+            for (Triple<Integer, Integer, String> match : matches) {
+                assertThat(trie.get(text.substring(match.getLeft(), match.getMiddle())), equalTo(match.getRight()));
+            }
+        }
+    }
+    // test prefix lookups ---------------------------------------------------------------------------------------------
+
     // test breadthFirstTraversal() ------------------------------------------------------------------------------------
     @Test(expected = NullPointerException.class)
     public void testBreadthFirstTraversal_ConsumerIsNull() {
@@ -239,6 +682,16 @@ public class MutableTrieTest {
     }
     // test breadthFirstTraversal() ------------------------------------------------------------------------------------
 
+    @Test
+    public void testFindStartCharacters() {
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        trie.addCharSequence("ab", "ab");
+        trie.addCharSequence("\u0416", "\u0416");
+        trie.getRoot().init();
+
+        assertThat(trie.findStartCharacters(), equalTo(bitset('a', 'A', '\u0416', '\u0436')));
+    }
+
     @Test
     public void testGetNodeInitializer() {
         NodeConsumer<Object> nodeInitializer = trie.getNodeInitializer();
@@ -306,6 +759,29 @@ public class MutableTrieTest {
         // level 4 ------------------------------------------------
     }
 
+    private static List<Triple<Integer, Integer, String>> matchRange(Trie<String> trie, CharSequence sequence,
+                                                                     int beginIndex, int endIndex) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        trie.match(sequence, beginIndex, endIndex, (begin, end, payload) -> result.add(Triple.of(begin, end, payload)));
+        return result;
+    }
+
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abcAB$".charAt(random.nextInt(6)));
+        }
+        return builder.toString();
+    }
+
+    private static long[] bitset(char... characters) {
+        long[] bitset = new long[1024];
+        for (char c : characters) {
+            bitset[c >>> 6] |= 1L << c;
+        }
+        return bitset;
+    }
+
     private void checkRoot(Node<String> root, int numberOfChildren) {
 
         assertThat(root.isRoot(), is(true));
@@ -313,7 +789,7 @@ public class MutableTrieTest {
         assertThat(root.getSuffix(), sameInstance(root));
         assertThat(root.getTerminalSuffix(), nullValue());
         assertThat(root.getLevel(), equalTo(0));
-        assertThat(root.getChildren().size(), is(numberOfChildren));
+        assertThat(root.getChildCount(), is(numberOfChildren));
     }
 
     private void checkNode(Node<String> node,
@@ -338,11 +814,7 @@ public class MutableTrieTest {
             assertThat(node.getPayload(), sameInstance(payload));
         }
         assertThat(node.getLevel(), equalTo(level));
-        if (numberOfChildren == 0) {
-            assertThat(node.getChildren(), nullValue());
-        } else {
-            assertThat(node.getChildren().size(), is(numberOfChildren));
-        }
+        assertThat(node.getChildCount(), is(numberOfChildren));
     }
     // black box -------------------------------------------------------------------------------------------------------
 
@@ -1,6 +1,5 @@
 package org.rsverchk.ahocorasick;
 
-import gnu.trove.map.hash.TCharObjectHashMap;
 import gnu.trove.procedure.TCharObjectProcedure;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +7,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
+
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -26,9 +27,6 @@ public class NodeTest {
     @Mock
     private TCharObjectProcedure<Node<Object>> procedure;
 
-    @Mock
-    private TCharObjectHashMap<Node<Object>> children;
-
     @Mock
     private Object payload;
 
@@ -57,6 +55,24 @@ public class NodeTest {
         assertThat(a.isRoot(), is(false));
     }
 
+    // test setPatternId() ---------------------------------------------------------------------------------------------
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetPatternId_Negative() {
+        root.createChild('a').setPatternId(-1);
+    }
+
+    @Test
+    public void testSetPatternId() {
+        Node<Object> a = root.createChild('a');
+
+        assertThat(a.getPatternId(), equalTo(-1));
+
+        a.setPatternId(7);
+
+        assertThat(a.getPatternId(), equalTo(7));
+    }
+    // test setPatternId() ---------------------------------------------------------------------------------------------
+
     @Test
     public void testIsTerminal() {
         Node<Object> a = root.createChild('a');
@@ -210,6 +226,81 @@ public class NodeTest {
         verify(handler, times(1)).handle(2, 3, "c");
         verifyNoMoreInteractions(handler);
     }
+
+    @Test
+    public void testHandleMatch_HitStatistics() {
+        Node<Object> a = root.createChild('a');
+        Node<Object> ab = a.createChild('b');
+        Node<Object> abc = ab.createChild('c');
+        Node<Object> c = root.createChild('c');
+
+        c.setPayload("c");
+        c.setPatternId(1);
+        abc.setTerminalSuffix(c);
+        abc.setPayload("abc");
+        abc.setPatternId(0);
+
+        HitStatistics<Object> hitStatistics = new HitStatistics<>(Arrays.asList("abc", "c"), 1);
+        doReturn(false).when(handler).handle(0, 3, "abc");
+
+        abc.handleMatch(2, handler, hitStatistics);
+
+        assertThat(hitStatistics.snapshot(), equalTo(new long[]{1, 0}));
+    }
+
+    @Test
+    public void testHandleMatch_Groups() {
+        Node<Object> a = root.createChild('a');
+        Node<Object> b = root.createChild('b');
+        Node<Object> c = root.createChild('c');
+        Node<Object> ab = a.createChild('b');
+        Node<Object> bc = b.createChild('c');
+        Node<Object> abc = ab.createChild('c');
+
+        abc.setPayload("abc");
+        abc.setGroups(0b001);
+        bc.setPayload("bc");
+        bc.setGroups(0b010);
+        c.setPayload("c");
+        c.setGroups(0b100);
+        init(root, a, b, c, ab, bc, abc);
+
+        assertThat(a.getOutputGroups(), equalTo(0L));
+        assertThat(c.getOutputGroups(), equalTo(0b100L));
+        assertThat(bc.getOutputGroups(), equalTo(0b110L));
+        assertThat(abc.getOutputGroups(), equalTo(0b111L));
+
+        doReturn(true).when(handler).handle(anyInt(), anyInt(), any());
+
+        assertThat(abc.handleMatch(2, 0b101, handler, null), is(true));
+
+        verify(handler, times(1)).handle(0, 3, "abc");
+        verify(handler, times(1)).handle(2, 3, "c");
+        verifyNoMoreInteractions(handler);
+    }
+
+    @Test
+    public void testHandleMatch_GroupsInterrupt() {
+        Node<Object> a = root.createChild('a');
+        Node<Object> c = root.createChild('c');
+        Node<Object> ab = a.createChild('b');
+        Node<Object> abc = ab.createChild('c');
+
+        abc.setPayload("abc");
+        abc.setPatternId(0);
+        c.setPayload("c");
+        c.setPatternId(1);
+        init(root, a, c, ab, abc);
+
+        HitStatistics<Object> hitStatistics = new HitStatistics<>(Arrays.asList("abc", "c"), 1);
+        doReturn(false).when(handler).handle(0, 3, "abc");
+
+        assertThat(abc.handleMatch(2, 0b1, handler, hitStatistics), is(false));
+
+        verify(handler, times(1)).handle(0, 3, "abc");
+        verifyNoMoreInteractions(handler);
+        assertThat(hitStatistics.snapshot(), equalTo(new long[]{1, 0}));
+    }
     // test handleMatch() ----------------------------------------------------------------------------------------------
 
     @Test
@@ -299,14 +390,14 @@ public class NodeTest {
         c.setSuffix(root);
         ab.setSuffix(root);
 
-        abc.setChildren(children);
+        Node<Object> abcd = abc.createChild('d');
 
         abc.init();
 
         assertThat(abc.getSuffix(), sameInstance(c));
         assertThat(abc.getTerminalSuffix(), nullValue());
-        verify(children, times(1)).compact();
-        verifyNoMoreInteractions(children);
+        assertThat(abc.getChildren(), nullValue());
+        assertThat(abc.getChild('d'), sameInstance(abcd));
     }
 
     @Test
@@ -322,17 +413,172 @@ public class NodeTest {
         c.setPayload("c");
         ab.setSuffix(root);
 
-        abc.setChildren(children);
+        Node<Object> abcd = abc.createChild('d');
 
         abc.init();
 
         assertThat(abc.getSuffix(), sameInstance(c));
         assertThat(abc.getTerminalSuffix(), sameInstance(c));
-        verify(children, times(1)).compact();
-        verifyNoMoreInteractions(children);
+        assertThat(abc.getChildren(), nullValue());
+        assertThat(abc.getChild('d'), sameInstance(abcd));
     }
     // test initNode() -------------------------------------------------------------------------------------------------
 
+    // test compactChildren() ------------------------------------------------------------------------------------------
+    @Test
+    public void testCompactChildren_NoChildren() {
+        Node<Object> a = root.createChild('a');
+
+        a.compactChildren();
+
+        assertThat(a.getChildCount(), equalTo(0));
+        assertThat(a.getChild('a'), nullValue());
+        assertThat(a.getKeys(), nullValue());
+        assertThat(a.getTable(), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_SingleChild() {
+        Node<Object> a = root.createChild('a');
+        Node<Object> ab = a.createChild('b');
+
+        a.compactChildren();
+
+        assertThat(a.getChildren(), nullValue());
+        assertThat(a.getKeys(), nullValue());
+        assertThat(a.getTable(), nullValue());
+        assertThat(a.getChildCount(), equalTo(1));
+        assertThat(a.getChild('b'), sameInstance(ab));
+        assertThat(a.getChild('c'), nullValue());
+        assertThat(ab.getKey(), equalTo('b'));
+    }
+
+    @Test
+    public void testCompactChildren_SortedArray() {
+        Node<Object> a = root.createChild('a');
+        Node<Object>[] children = createChildren(a, "zyxwvutsrqponm");
+
+        a.compactChildren();
+
+        assertThat(a.getChildren(), nullValue());
+        assertThat(a.getKeys(), equalTo("mnopqrstuvwxyz".toCharArray()));
+        assertThat(a.getChildCount(), equalTo(14));
+        checkChildren(a, "zyxwvutsrqponm", children);
+        assertThat(a.getChild('a'), nullValue());
+        assertThat(a.getChild('{'), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_SortedArray_LinearSearch() {
+        Node<Object> a = root.createChild('a');
+        Node<Object>[] children = createChildren(a, "zxb");
+
+        a.compactChildren();
+
+        assertThat(a.getKeys(), equalTo("bxz".toCharArray()));
+        checkChildren(a, "zxb", children);
+        assertThat(a.getChild('c'), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_SparseKeys() {
+        Node<Object> a = root.createChild('a');
+        String keys = "abcdefghijklmnop\u0400";
+        Node<Object>[] children = createChildren(a, keys);
+
+        a.compactChildren();
+
+        assertThat(a.getKeys(), notNullValue());
+        checkChildren(a, keys, children);
+    }
+
+    @Test
+    public void testCompactChildren_DenseTable() {
+        Node<Object> a = root.createChild('a');
+        String keys = "abcdefghijklmnopqrstuvwxyz";
+        Node<Object>[] children = createChildren(a, keys);
+
+        a.compactChildren();
+
+        assertThat(a.getKeys(), nullValue());
+        assertThat(a.getTable().length, equalTo(26));
+        assertThat(a.getChildCount(), equalTo(26));
+        checkChildren(a, keys, children);
+        assertThat(a.getChild('`'), nullValue());
+        assertThat(a.getChild('{'), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_Root() {
+        String keys = "abd";
+        Node<Object>[] children = createChildren(root, keys);
+
+        root.compactChildren();
+
+        // fewer children than a dense table of another node needs
+        assertThat(root.getKeys(), nullValue());
+        assertThat(root.getTable().length, equalTo(4));
+        assertThat(root.getChildCount(), equalTo(3));
+        checkChildren(root, keys, children);
+        assertThat(root.getChild('c'), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_SparseRoot() {
+        String keys = "a\u0400\uffff";
+        Node<Object>[] children = createChildren(root, keys);
+
+        root.compactChildren();
+
+        assertThat(root.getKeys(), equalTo(keys.toCharArray()));
+        assertThat(root.getTable().length, equalTo(3));
+        assertThat(root.getChildCount(), equalTo(3));
+        checkChildren(root, keys, children);
+        assertThat(root.getChild('b'), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_LatinCyrillicRoot() {
+        StringBuilder keys = new StringBuilder();
+        for (char c = 'a'; c <= 'z'; c++) {
+            keys.append(c);
+        }
+        for (char c = '\u0430'; c <= '\u044f'; c++) {
+            keys.append(c);
+        }
+        Node<Object>[] children = createChildren(root, keys.toString());
+
+        root.compactChildren();
+
+        // far sparser than another node may be, but within the budget of the root
+        assertThat(root.getKeys(), nullValue());
+        assertThat(root.getTable().length, equalTo('\u044f' - 'a' + 1));
+        assertThat(root.getChildCount(), equalTo(58));
+        checkChildren(root, keys.toString(), children);
+        assertThat(root.getChild('{'), nullValue());
+        assertThat(root.getChild('\u042f'), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_ForEachChild() {
+        Node<Object>[] children = createChildren(root, "cab");
+
+        root.compactChildren();
+        root.forEachChild(procedure);
+
+        verify(procedure, times(1)).execute('a', children[1]);
+        verifyNoMoreInteractions(procedure);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCompactChildren_CreateChild() {
+        root.createChild('a');
+        root.compactChildren();
+
+        root.createChild('b');
+    }
+    // test compactChildren() ------------------------------------------------------------------------------------------
+
     // test getKey() ---------------------------------------------------------------------------------------------------
     @Test(expected = IllegalStateException.class)
     public void testGetKey_RootNode() {
@@ -379,6 +625,22 @@ public class NodeTest {
         assertThat(abc.toString(), notNullValue()); // make sure there are no exceptions or infinite loops
     }
 
+    @SuppressWarnings("unchecked")
+    private Node<Object>[] createChildren(Node<Object> parent, String keys) {
+        Node<Object>[] children = new Node[keys.length()];
+        for (int i = 0; i < keys.length(); i++) {
+            children[i] = parent.createChild(keys.charAt(i));
+        }
+        return children;
+    }
+
+    private void checkChildren(Node<Object> parent, String keys, Node<Object>[] children) {
+        for (int i = 0; i < keys.length(); i++) {
+            assertThat(parent.getChild(keys.charAt(i)), sameInstance(children[i]));
+            assertThat(children[i].getKey(), equalTo(keys.charAt(i)));
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testConstructor_ParentIsNull_LevelIsNegative() {
         new Node<>(null, -1);
@@ -399,4 +661,14 @@ public class NodeTest {
         new Node<>(root, 0);
     }
 
+    /**
+     * Init the nodes, they must be given in breadth-first order.
+     */
+    @SafeVarargs
+    private static void init(Node<Object>... nodes) {
+        for (Node<Object> node : nodes) {
+            node.init();
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package org.rsverchk.ahocorasick;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PatternCounter} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class PatternCounterTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_AutomatonIsNull() {
+        new PatternCounter<>(null);
+    }
+
+    // test count() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCount_SequenceIsEmpty() {
+        counter("he").count("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCount_ArrayIsTooShort() {
+        counter("he", "she").count("she", new int[1]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetCount_UnknownPattern() {
+        counter("he").getCount(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetFoundPatternId_OutOfBounds() {
+        PatternCounter<String> counter = counter("he");
+        counter.count("he");
+
+        counter.getFoundPatternId(1);
+    }
+
+    @Test
+    public void testCount() {
+        PatternCounter<String> counter = counter("he", "she", "hers");
+
+        assertThat(counter.getCount(0), equalTo(0));
+        assertThat(counter.count("she said hershe he"), equalTo(3));
+        assertThat(counter.getCount(0), equalTo(4));
+        assertThat(counter.getCount(1), equalTo(2));
+        assertThat(counter.getCount(2), equalTo(1));
+        // in the order of first occurrences
+        assertThat(counter.getFoundPatternId(0), equalTo(1));
+        assertThat(counter.getFoundPatternId(1), equalTo(0));
+        assertThat(counter.getFoundPatternId(2), equalTo(2));
+    }
+
+    @Test
+    public void testCount_Reuse() {
+        PatternCounter<String> counter = counter("he", "she", "hers");
+
+        counter.count("hers hers");
+
+        assertThat(counter.count("he she"), equalTo(2));
+        assertThat(counter.getFoundCount(), equalTo(2));
+        assertThat(counter.getCount(0), equalTo(2));
+        assertThat(counter.getCount(1), equalTo(1));
+        assertThat(counter.getCount(2), equalTo(0));
+    }
+
+    @Test
+    public void testCount_Accumulate() {
+        PatternCounter<String> counter = counter("he", "she", "hers");
+        int[] counts = new int[3];
+        TIntIntMap map = new TIntIntHashMap();
+
+        counter.count("she", counts);
+        counter.count("hers", counts);
+        counter.count("she", map);
+        counter.count("hers", map);
+
+        assertThat(counts, equalTo(new int[]{2, 1, 1}));
+        assertThat(map.size(), equalTo(3));
+        assertThat(map.get(0), equalTo(2));
+        assertThat(map.get(1), equalTo(1));
+        assertThat(map.get(2), equalTo(1));
+    }
+
+    @Test
+    public void testCount_SameAsMatch() {
+        Random random = new Random(42);
+        TrieBuilder<String> builder = new TrieBuilder<>();
+        for (int i = 0; i < 100; i++) {
+            String sequence = random(random, 1 + random.nextInt(4));
+            builder.addCharSequence(sequence, sequence);
+        }
+        PatternCounter<String> counter = new PatternCounter<>(builder.buildAutomaton());
+        MutableTrie<String> trie = builder.getTrie();
+        for (int i = 0; i < 20; i++) {
+            String text = random(random, 1 + random.nextInt(300));
+            Map<String, Integer> expected = new HashMap<>();
+            trie.match(text, (beginIndex, endIndex, payload) -> {
+                expected.merge(payload, 1, Integer::sum);
+                return true;
+            });
+            int[] counts = new int[trie.getPatternCount()];
+            TIntIntMap map = new TIntIntHashMap();
+
+            assertThat(counter.count(text), equalTo(expected.size()));
+            counter.count(text, counts);
+            counter.count(text, map);
+
+            for (int patternId = 0; patternId < trie.getPatternCount(); patternId++) {
+                String payload = trie.getPayloads().get(patternId);
+                int count = expected.getOrDefault(payload, 0);
+                assertThat(counter.getCount(patternId), equalTo(count));
+                assertThat(counts[patternId], equalTo(count));
+                assertThat(map.get(patternId), equalTo(count));
+            }
+        }
+    }
+
+    private static PatternCounter<String> counter(String... sequences) {
+        TrieBuilder<String> builder = new TrieBuilder<>();
+        for (String sequence : sequences) {
+            builder.addCharSequence(sequence, sequence);
+        }
+        return new PatternCounter<>(builder.buildAutomaton());
+    }
+
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abcd".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+
+}
\ No newline at end of file
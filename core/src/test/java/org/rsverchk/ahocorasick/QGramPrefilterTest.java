@@ -0,0 +1,127 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.rsverchk.ahocorasick.TrieFixtures.*;
+
+/**
+ * Tests for {@link QGramPrefilter} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class QGramPrefilterTest {
+
+    // test create() ---------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testCreate_TrieIsNull() {
+        QGramPrefilter.create(null, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreate_QIsNotPositive() {
+        QGramPrefilter.create(trie(c -> c, "text"), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreate_NotInitialized() {
+        QGramPrefilter.create(new MutableTrie<>(c -> c), 3);
+    }
+
+    @Test
+    public void testCreate_ShortSequences() {
+        QGramPrefilter prefilter = QGramPrefilter.create(trie(c -> c, "text", "to"), 3);
+
+        assertThat(prefilter.getMinLength(), equalTo(2));
+        assertThat(prefilter.getQ(), equalTo(2));
+    }
+
+    @Test
+    public void testCreate_ChooseQ() {
+        // log(2 * 6 * 2) to the base of 6
+        assertThat(QGramPrefilter.create(trie(c -> c, "abcdef", "fedcba")).getQ(), equalTo(2));
+    }
+
+    // test next() -----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testNext() {
+        QGramPrefilter prefilter = QGramPrefilter.create(trie(c -> c, "needle", "haystack"), 3);
+
+        String text = "........needle........haystac";
+        assertThat(prefilter.next(text, 0), equalTo(8));
+        // "haysta" is a prefix, the prefilter doesn't look further
+        assertThat(prefilter.next(text, 9), equalTo(22));
+        // no added sequence fits after 23
+        assertThat(prefilter.next(text, 23), equalTo(text.length()));
+    }
+
+    @Test
+    public void testNext_Empty() {
+        QGramPrefilter prefilter = QGramPrefilter.create(trie(c -> c), 3);
+
+        assertThat(prefilter.next("text", 0), equalTo(4));
+    }
+
+    // test match() with prefilter -------------------------------------------------------------------------------------
+
+    @Test
+    public void testMatch_LongShifts() {
+        // shifts are capped at 127 characters, the shortest sequence is longer
+        String needle = StringUtils.repeat("needle", 30);
+        String text = StringUtils.repeat('.', 500) + needle + StringUtils.repeat('.', 300) + needle;
+
+        checkMatch(c -> c, 3, new String[]{needle, needle + "s"}, text, text + "s", needle.substring(1));
+    }
+
+    @Test
+    public void testMatch_CrowdedTables() {
+        // far more q-grams than slots of the smallest tables, almost every window passes
+        String[] sequences = new String[1000];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = StringUtils.leftPad(Integer.toString(i * 7919, 36), 4, '0');
+        }
+        String text = StringUtils.join(sequences, ' ');
+
+        checkMatch(c -> c, 2, sequences, text, text.replace('1', '2'), StringUtils.reverse(text));
+    }
+
+    @Test
+    public void testMatch_Unigrams() {
+        checkMatch(c -> c, 1, new String[]{"ab", "ba", "abc"}, "xabcbaab", "b", "cccab");
+    }
+
+    @Test
+    public void testMatch_Extremes() {
+        // the extreme characters and surrogate pairs are hashed like any other
+        String[] sequences = {"\u0000\uffff\u0000", "\uffff\uffff\u0000", "\ud83d\ude00\ud83d"};
+
+        checkMatch(c -> c, 2, sequences,
+                "\u0000\u0000\uffff\u0000\uffff\uffff\u0000",
+                "\ud83d\ude00\ud83d\ude00\ud83d\ude01",
+                "\uffff\u0000\uffff\uffff");
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        // q-grams of the text are converted before hashing
+        checkMatch(Character::toLowerCase, 3, new String[]{"needle", "haystack"}, "a NeEdLe in a HAYSTACK",
+                "HAYSTACKNEEDLE");
+    }
+
+    @Test
+    public void testMatch_ChooseQ() {
+        checkMatch(c -> c, 0, new String[]{"abcdef", "fedcba", "bcdefa"}, "abcdefedcbabcdefa", "fedcbcdefedc");
+    }
+
+    private void checkMatch(CharConverter converter, int q, String[] sequences, String... texts) {
+        MutableTrie<String> expected = trie(converter, sequences);
+        MutableTrie<String> actual = trie(converter, sequences);
+        actual.setPrefilter(q == 0 ? QGramPrefilter.create(actual) : QGramPrefilter.create(actual, q));
+        assertSameAsAhoCorasick(actual, expected, texts);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,212 @@
+package org.rsverchk.ahocorasick;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link Replacer} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class ReplacerTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_AutomatonIsNull() {
+        new Replacer<>(null, '*');
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_ReplacementsIsNull() {
+        new Replacer<>(automaton("he"), null);
+    }
+
+    // test replace() --------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testReplace_ReplacementIsNull() {
+        new Replacer<>(automaton("he"), patternId -> null).replace("she");
+    }
+
+    @Test
+    public void testReplace_Empty() {
+        assertThat(new Replacer<>(automaton("he"), '*').replace(""), equalTo(""));
+        assertThat(new Replacer<>(automaton(), '*').replace("she"), equalTo("she"));
+    }
+
+    @Test
+    public void testReplace_LeftmostLongest() {
+        Automaton<String> automaton = automaton("he", "she", "hers", "his");
+        Replacer<String> replacer = new Replacer<>(automaton, patternId -> "<" + automaton.getPayload(patternId) + ">");
+
+        // "she" begins before "he" and "hers", "his" follows "she"
+        assertThat(replacer.replace("ushers; this"), equalTo("u<she>rs; t<his>"));
+        assertThat(replacer.replace("hershe"), equalTo("<hers><he>"));
+    }
+
+    @Test
+    public void testReplace_LongerMatchBeginningEarlier() {
+        Automaton<String> automaton = automaton("ab", "cd", "xabcdy");
+        Replacer<String> replacer = new Replacer<>(automaton, patternId -> "<" + automaton.getPayload(patternId) + ">");
+
+        assertThat(replacer.replace("xabcdy"), equalTo("<xabcdy>"));
+        // "ab" and "cd" are reported while "xabcdy" is still possible
+        assertThat(replacer.replace("xabcdz"), equalTo("x<ab><cd>z"));
+    }
+
+    @Test
+    public void testReplace_Redact() {
+        Replacer<String> replacer = new Replacer<>(automaton("secret", "password"), '*');
+
+        assertThat(replacer.replace("my password is secret."), equalTo("my ******** is ******."));
+    }
+
+    @Test
+    public void testReplace_Reuse() throws IOException {
+        Replacer<String> replacer = new Replacer<>(automaton("ab"), '-');
+        StringWriter writer = new StringWriter();
+
+        replacer.replace("xa", writer);
+        replacer.replace(new StringReader("bab"), writer);
+
+        assertThat(writer.toString(), equalTo("xab--"));
+    }
+
+    @Test
+    public void testReplace_SameAsBruteForce() throws IOException {
+        Random random = new Random(42);
+        String[] sequences = new String[60];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = random(random, 1 + random.nextInt(i < 5 ? 40 : 5));
+        }
+        Automaton<String> automaton = automaton(sequences);
+        Replacer<String> replacer = new Replacer<>(automaton, patternId -> "[" + patternId + "]");
+        for (int i = 0; i < 20; i++) {
+            // longer than the buffer, so the kept characters are flushed
+            String text = random(random, 1 + random.nextInt(5 * Replacer.MIN_BUFFER_SIZE));
+            String expected = bruteForce(automaton, sequences, text);
+
+            assertThat(replacer.replace(text), equalTo(expected));
+            StringWriter writer = new StringWriter();
+            replacer.replace(new ChoppyReader(text, random), writer);
+            assertThat(writer.toString(), equalTo(expected));
+            StringBuilder builder = new StringBuilder();
+            replacer.replace(new StringReader(text), (Appendable) new AppendableWrapper(builder));
+            assertThat(builder.toString(), equalTo(expected));
+        }
+    }
+
+    /**
+     * Replace matches one by one: take the longest sequence beginning at the index, skip it or a character if there is
+     * none.
+     */
+    private static String bruteForce(Automaton<String> automaton, String[] sequences, String text) {
+        StringBuilder result = new StringBuilder();
+        int index = 0;
+        while (index < text.length()) {
+            String longest = null;
+            for (String sequence : sequences) {
+                if (text.startsWith(sequence, index) && (longest == null || sequence.length() > longest.length())) {
+                    longest = sequence;
+                }
+            }
+            if (longest == null) {
+                result.append(text.charAt(index++));
+            } else {
+                for (int patternId = 0; patternId < automaton.getPatternCount(); patternId++) {
+                    if (automaton.getPayload(patternId).equals(longest)) {
+                        result.append('[').append(patternId).append(']');
+                    }
+                }
+                index += longest.length();
+            }
+        }
+        return result.toString();
+    }
+
+    private static Automaton<String> automaton(String... sequences) {
+        TrieBuilder<String> builder = new TrieBuilder<>();
+        for (String sequence : sequences) {
+            builder.addCharSequence(sequence, sequence);
+        }
+        return builder.buildAutomaton();
+    }
+
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abc".charAt(random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reader returning a few characters at a time.
+     */
+    private static class ChoppyReader extends Reader {
+
+        private final String text;
+        private final Random random;
+        private int index;
+
+        ChoppyReader(String text, Random random) {
+            this.text = text;
+            this.random = random;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (index == text.length()) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, 1 + random.nextInt(3)), text.length() - index);
+            text.getChars(index, index + count, buffer, offset);
+            index += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    /**
+     * Appendable which is neither a Writer nor a StringBuilder.
+     */
+    private static class AppendableWrapper implements Appendable {
+
+        private final StringBuilder builder;
+
+        AppendableWrapper(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence) {
+            builder.append(sequence);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence, int start, int end) {
+            builder.append(sequence, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            builder.append(c);
+            return this;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.rsverchk.ahocorasick.TrieFixtures.*;
+
+/**
+ * Tests for {@link SetHorspoolTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class SetHorspoolTrieTest {
+
+    // test constructor ------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_TrieIsNull() {
+        new SetHorspoolTrie<>(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConstructor_NotInitialized() {
+        new SetHorspoolTrie<>(new MutableTrie<>(c -> c));
+    }
+
+    @Test
+    public void testConstructor_Shifts() {
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c, "abcd", "xyzab"));
+
+        assertThat(trie.getMinLength(), equalTo(4));
+        // the last character of a sequence doesn't count
+        assertThat(trie.getShift('c'), equalTo(1));
+        assertThat(trie.getShift('b'), equalTo(2));
+        assertThat(trie.getShift('a'), equalTo(1));
+        assertThat(trie.getShift('z'), equalTo(2));
+        assertThat(trie.getShift('y'), equalTo(3));
+        // "x" is too far from the end
+        assertThat(trie.getShift('x'), equalTo(4));
+        assertThat(trie.getShift('q'), equalTo(4));
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_SequenceIsEmpty() {
+        new SetHorspoolTrie<>(trie(c -> c, "text")).match("", (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch_Empty() {
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c));
+
+        assertThat(match(trie, "text"), equalTo(new ArrayList<>()));
+    }
+
+    @Test
+    public void testMatch_Overlap() {
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c, "hers", "his", "sher", "he"));
+
+        assertThat(match(trie, "shers"), equalTo(Arrays.asList(
+                Triple.of(1, 3, "he"),
+                Triple.of(0, 4, "sher"),
+                Triple.of(1, 5, "hers"))));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c, "ab", "b"));
+        List<String> payloads = new ArrayList<>();
+
+        trie.match("abab", (beginIndex, endIndex, payload) -> payloads.add(payload) && payloads.size() < 3);
+
+        assertThat(payloads, equalTo(Arrays.asList("ab", "b", "ab")));
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        MutableTrie<String> mutableTrie = trie(c -> c, "foo", "bar");
+        HitStatistics<String> hitStatistics = new HitStatistics<>(mutableTrie.getPayloads());
+        mutableTrie.setHitStatistics(hitStatistics);
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(mutableTrie);
+
+        match(trie, "foo bar foo");
+
+        assertThat(hitStatistics.getHits(0), equalTo(2L));
+        assertThat(hitStatistics.getHits(1), equalTo(1L));
+    }
+
+    @Test
+    public void testMatch_ShiftCollision() {
+        // 'a' and '\u0161' share the lowest 8 bits, so they share the smallest shift
+        MutableTrie<String> expected = trie(c -> c, "\u0161bcdef", "uvwxay");
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c, "\u0161bcdef", "uvwxay"));
+
+        assertThat(trie.getShift('a'), equalTo(1));
+        assertThat(trie.getShift('\u0161'), equalTo(1));
+        assertSameAsAhoCorasick(trie, expected,
+                "\u0161bcdef",
+                "a\u0161bcdefuvwxay",
+                "uvwx\u0161y\u0161bcdefa",
+                "abcdefuvwxayy\u0161");
+    }
+
+    @Test
+    public void testMatch_Extremes() {
+        // '\u0100' shares the shift of '\u0000' and '\u01ff' the one of '\uffff'
+        String[] sequences = {"\u0000\uffff\u0000", "\uffff\uffff\uffff", "\u0000\u0000\u0100"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "\u0000\uffff\u0000\u0000\u0100",
+                "\uffff\uffff\uffff\uffff\u01ff\uffff\uffff",
+                "\u0100\u0000\uffff\u0000\u0000\u0000\u0100\u0000");
+    }
+
+    @Test
+    public void testMatch_Surrogates() {
+        // the low surrogates share the shift of '\u0000', the pairs share the high surrogate
+        String[] sequences = {"\ud83d\ude00ab\ud83d\ude01", "\ud83d\ude01\ud83d\ude00"};
+        MutableTrie<String> expected = trie(c -> c, sequences);
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(c -> c, sequences));
+
+        assertSameAsAhoCorasick(trie, expected,
+                "\ud83d\ude00ab\ud83d\ude01\ud83d\ude00",
+                "x\ud83d\ude00\ud83d\ude00ab\ud83d\ude01\u0000",
+                "\ude00ab\ud83d\ud83d\ude01\ud83d\ude00\ud83d");
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        // shifts are looked up by converted characters
+        MutableTrie<String> expected = trie(Character::toLowerCase, "needle", "haystack");
+        SetHorspoolTrie<String> trie = new SetHorspoolTrie<>(trie(Character::toLowerCase, "needle", "haystack"));
+
+        assertThat(match(trie, "a NeEdLe in a HAYSTACK"), equalTo(Arrays.asList(
+                Triple.of(2, 8, "needle"),
+                Triple.of(14, 22, "haystack"))));
+        assertSameAsAhoCorasick(trie, expected, "NEEDLEHAYSTACKneedle", "hayneedlestack");
+    }
+
+}
\ No newline at end of file
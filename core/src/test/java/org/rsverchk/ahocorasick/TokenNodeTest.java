@@ -0,0 +1,141 @@
+package org.rsverchk.ahocorasick;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TokenNode} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class TokenNodeTest {
+
+    private TokenNode<Object> root;
+
+    @Before
+    public void setUp() {
+        root = TokenNode.root();
+    }
+
+    // test getKey() ---------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetKey_RootNode() {
+        root.getKey();
+    }
+
+    @Test
+    public void testGetKey() {
+        assertThat(root.createChild(-7).getKey(), equalTo(-7));
+    }
+
+    // test createChild() ----------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateChild_AlreadyExists() {
+        root.createChild(1);
+        root.createChild(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreateChild_Compacted() {
+        root.createChild(1);
+        root.compactChildren();
+        root.createChild(2);
+    }
+
+    // test compactChildren() ------------------------------------------------------------------------------------------
+
+    @Test
+    public void testCompactChildren_SingleChild() {
+        TokenNode<Object> child = root.createChild(Integer.MAX_VALUE);
+
+        root.compactChildren();
+
+        assertThat(root.getKeys(), nullValue());
+        assertThat(root.getTable(), nullValue());
+        assertThat(root.getChild(Integer.MAX_VALUE), sameInstance(child));
+        assertThat(root.getChild(0), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_SortedArray() {
+        int[] keys = {Integer.MAX_VALUE, 5, Integer.MIN_VALUE, 0, -5, 100, 7, 8, 9, 1000};
+        List<TokenNode<Object>> children = createChildren(root, keys);
+
+        root.compactChildren();
+
+        assertThat(root.getKeys(), equalTo(new int[]{Integer.MIN_VALUE, -5, 0, 5, 7, 8, 9, 100, 1000,
+                Integer.MAX_VALUE}));
+        assertThat(root.getChildCount(), equalTo(keys.length));
+        checkChildren(root, keys, children);
+        assertThat(root.getChild(6), nullValue());
+    }
+
+    @Test
+    public void testCompactChildren_DenseTable() {
+        int[] keys = new int[20];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Integer.MAX_VALUE - 2 * i;
+        }
+        List<TokenNode<Object>> children = createChildren(root, keys);
+
+        root.compactChildren();
+
+        assertThat(root.getKeys(), nullValue());
+        assertThat(root.getTable().length, equalTo(39));
+        assertThat(root.getChildCount(), equalTo(20));
+        checkChildren(root, keys, children);
+        assertThat(root.getChild(Integer.MAX_VALUE - 1), nullValue());
+        assertThat(root.getChild(Integer.MIN_VALUE), nullValue());
+        assertThat(root.getChild(0), nullValue());
+    }
+
+    // test init() -----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testInit() {
+        // 1 2 3 and 2 3, 3 is terminal
+        TokenNode<Object> n1 = root.createChild(1);
+        TokenNode<Object> n12 = n1.createChild(2);
+        TokenNode<Object> n123 = n12.createChild(3);
+        TokenNode<Object> n2 = root.createChild(2);
+        TokenNode<Object> n23 = n2.createChild(3);
+        TokenNode<Object> n3 = root.createChild(3);
+        n3.setPayload("3");
+
+        for (TokenNode<Object> node : new TokenNode[]{root, n1, n2, n3, n12, n23, n123}) {
+            node.init();
+        }
+
+        assertThat(n12.getSuffix(), sameInstance(n2));
+        assertThat(n123.getSuffix(), sameInstance(n23));
+        assertThat(n23.getSuffix(), sameInstance(n3));
+        assertThat(n123.getTerminalSuffix(), sameInstance(n3));
+        assertThat(n12.getTerminalSuffix(), nullValue());
+    }
+
+    private static List<TokenNode<Object>> createChildren(TokenNode<Object> node, int[] keys) {
+        List<TokenNode<Object>> children = new ArrayList<>();
+        for (int key : keys) {
+            children.add(node.createChild(key));
+        }
+        return children;
+    }
+
+    private static void checkChildren(TokenNode<Object> node, int[] keys, List<TokenNode<Object>> children) {
+        for (int i = 0; i < keys.length; i++) {
+            assertThat(node.getChild(keys[i]), sameInstance(children.get(i)));
+        }
+        List<Integer> visited = new ArrayList<>();
+        node.forEachChild((int key, TokenNode<Object> child) -> visited.add(key));
+        assertThat(visited.size(), equalTo(keys.length));
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TokenTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class TokenTrieTest {
+
+    // test addTokens() ------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddTokens_Empty() {
+        new TokenTrie<String>().addTokens(new int[0], "payload");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddTokens_Initialized() {
+        TokenTrie<String> trie = trie(new int[]{1});
+        trie.addTokens(new int[]{2}, "payload");
+    }
+
+    @Test
+    public void testAddTokens_SameSequence() {
+        TokenTrie<String> trie = new TokenTrie<>();
+        trie.addTokens(new int[]{1, 2}, "first");
+        trie.addTokens(new int[]{3}, "other");
+        trie.addTokens(new int[]{1, 2}, "second");
+
+        assertThat(trie.getPatternCount(), equalTo(2));
+        assertThat(trie.getPayloads(), equalTo(Arrays.asList("second", "other")));
+    }
+
+    // test init() -----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalStateException.class)
+    public void testInit_Twice() {
+        trie(new int[]{1}).init();
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalStateException.class)
+    public void testMatch_NotInitialized() {
+        new TokenTrie<String>().match(new int[]{1}, (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_Empty() {
+        trie(new int[]{1}).match(new int[0], (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testMatch_RangeOutOfBounds() {
+        trie(new int[]{1}).match(new int[]{1, 2}, 1, 3, (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch_Overlap() {
+        // he=1 2, hers=1 2 3 4, his=1 5 4, sher=4 1 2 3 in a made-up tokens alphabet
+        TokenTrie<String> trie = trie(new int[]{1, 2}, new int[]{1, 2, 3, 4}, new int[]{1, 5, 4},
+                new int[]{4, 1, 2, 3});
+
+        assertThat(match(trie, new int[]{4, 1, 2, 3, 4}), equalTo(Arrays.asList(
+                Triple.of(1, 3, "[1, 2]"),
+                Triple.of(0, 4, "[4, 1, 2, 3]"),
+                Triple.of(1, 5, "[1, 2, 3, 4]"))));
+    }
+
+    @Test
+    public void testMatch_Range() {
+        TokenTrie<String> trie = trie(new int[]{7, 8}, new int[]{8});
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+
+        trie.match(new int[]{7, 8, 0, 7, 8, 0}, 2, 5,
+                (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+
+        assertThat(result, equalTo(Arrays.asList(
+                Triple.of(3, 5, "[7, 8]"),
+                Triple.of(4, 5, "[8]"))));
+    }
+
+    @Test
+    public void testMatch_LargeTokenIds() {
+        TokenTrie<String> trie = trie(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE}, new int[]{Integer.MAX_VALUE});
+
+        assertThat(match(trie, new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE}),
+                equalTo(Arrays.asList(
+                        Triple.of(0, 1, "[2147483647]"),
+                        Triple.of(1, 3, "[-2147483648, 2147483647]"),
+                        Triple.of(2, 3, "[2147483647]"))));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        TokenTrie<String> trie = trie(new int[]{1}, new int[]{1, 1});
+        List<Integer> ends = new ArrayList<>();
+
+        trie.match(new int[]{1, 1, 1}, (beginIndex, endIndex, payload) -> {
+            ends.add(endIndex);
+            return ends.size() < 2;
+        });
+
+        assertThat(ends, equalTo(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void testMatch_HitStatistics() {
+        TokenTrie<String> trie = trie(new int[]{1}, new int[]{2});
+        HitStatistics<String> statistics = new HitStatistics<>(trie.getPayloads());
+        trie.setHitStatistics(statistics);
+
+        match(trie, new int[]{1, 1, 3});
+
+        assertThat(statistics.getHits(0), equalTo(2L));
+        assertThat(statistics.getNeverMatched(), equalTo(Collections.singletonList("[2]")));
+    }
+
+    @Test
+    public void testMatch_SameAsAhoCorasick() {
+        // characters are tokens of a tiny alphabet, so MutableTrie is the reference
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            MutableTrie<String> expected = new MutableTrie<>(c -> c);
+            TokenTrie<String> actual = new TokenTrie<>();
+            for (int i = 0; i < 1 + random.nextInt(50); i++) {
+                String sequence = random(random, 1 + random.nextInt(6));
+                expected.addCharSequence(sequence, sequence);
+                actual.addTokens(tokens(sequence), sequence);
+            }
+            expected.init();
+            actual.init();
+            String text = random(random, 1 + random.nextInt(500));
+            List<Triple<Integer, Integer, String>> expectedMatches = new ArrayList<>();
+            expected.match(text, (beginIndex, endIndex, payload) ->
+                    expectedMatches.add(Triple.of(beginIndex, endIndex, payload)));
+            List<Triple<Integer, Integer, String>> actualMatches = new ArrayList<>();
+            actual.match(tokens(text), (beginIndex, endIndex, payload) ->
+                    actualMatches.add(Triple.of(beginIndex, endIndex, payload)));
+
+            assertThat(actualMatches, equalTo(expectedMatches));
+        }
+    }
+
+    private static TokenTrie<String> trie(int[]... sequences) {
+        TokenTrie<String> trie = new TokenTrie<>();
+        for (int[] sequence : sequences) {
+            trie.addTokens(sequence, Arrays.toString(sequence));
+        }
+        trie.init();
+        return trie;
+    }
+
+    private static List<Triple<Integer, Integer, String>> match(TokenTrie<String> trie, int[] tokens) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        trie.match(tokens, (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+        return result;
+    }
+
+    private static int[] tokens(String text) {
+        int[] tokens = new int[text.length()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = text.charAt(i);
+        }
+        return tokens;
+    }
+
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abc".charAt(random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+
+}
\ No newline at end of file
@@ -11,7 +11,12 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -26,6 +31,9 @@ public class TrieBenchmark {
     public static class MyState {
 
         public Trie<String> trie;
+        public UniqueMatcher<String> uniqueMatcher;
+        public PatternCounter<String> patternCounter;
+        public Replacer<String> replacer;
         public List<String> lines;
         public String textOf10Symbols;
         public String textOf100Symbols;
@@ -42,6 +50,10 @@ public class TrieBenchmark {
                 builder.addCharSequence(s, s);
             }
             trie = builder.build();
+            Automaton<String> automaton = builder.buildAutomaton();
+            uniqueMatcher = new UniqueMatcher<>(automaton);
+            patternCounter = new PatternCounter<>(automaton);
+            replacer = new Replacer<>(automaton, '*');
             String text = StringUtils.join(lines, " ");
             textOf10Symbols = text.substring(0, 10);
             textOf100Symbols = text.substring(0, 100);
@@ -52,6 +64,266 @@ public class TrieBenchmark {
 
     }
 
+    @State(Scope.Benchmark)
+    public static class RangeState {
+
+        public Trie<String> trie;
+        public StringBuilder buffer;
+        public char[] array;
+        public int beginIndex;
+        public int endIndex;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            URL url = Thread.currentThread().getContextClassLoader().getResource("google-10000-english.txt");
+            List<String> lines = Files.readAllLines(Paths.get(url.toURI()));
+            TrieBuilder<String> builder = new TrieBuilder<>();
+            for (String s : lines) {
+                builder.addCharSequence(s, s);
+            }
+            trie = builder.build();
+            buffer = new StringBuilder(StringUtils.join(lines, " ").substring(0, 50000));
+            array = buffer.toString().toCharArray();
+            beginIndex = 10000;
+            endIndex = 40000;
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnionState {
+
+        public List<Trie<String>> tries;
+        public UnionTrie<String> union;
+        public String text;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            URL url = Thread.currentThread().getContextClassLoader().getResource("google-10000-english.txt");
+            List<String> lines = Files.readAllLines(Paths.get(url.toURI()));
+            int dictionaryCount = 6;
+            List<TrieBuilder<String>> builders = new ArrayList<>();
+            for (int i = 0; i < dictionaryCount; i++) {
+                builders.add(new TrieBuilder<>());
+            }
+            UnionTrieBuilder<String> unionBuilder = new UnionTrieBuilder<>();
+            for (int i = 0; i < lines.size(); i++) {
+                builders.get(i % dictionaryCount).addCharSequence(lines.get(i), lines.get(i));
+                unionBuilder.addCharSequence(i % dictionaryCount, lines.get(i), lines.get(i));
+            }
+            tries = new ArrayList<>();
+            for (TrieBuilder<String> builder : builders) {
+                tries.add(builder.build());
+            }
+            union = unionBuilder.build();
+            text = StringUtils.join(lines, " ").substring(0, 50000);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class GroupState {
+
+        public Trie<String> trie;
+        public Map<String, Long> groups;
+        public long enabled;
+        public String text;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            URL url = Thread.currentThread().getContextClassLoader().getResource("google-10000-english.txt");
+            List<String> lines = Files.readAllLines(Paths.get(url.toURI()));
+            TrieBuilder<String> builder = new TrieBuilder<>();
+            groups = new HashMap<>();
+            for (int i = 0; i < lines.size(); i++) {
+                long group = 1L << (i % 64);
+                builder.addCharSequence(lines.get(i), lines.get(i), group);
+                groups.put(lines.get(i), group);
+            }
+            trie = builder.build();
+            // 2 of 64 groups
+            enabled = 0b101;
+            text = StringUtils.join(lines, " ").substring(0, 50000);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class PatternLengthState {
+
+        @Param({"4", "8", "16", "32", "64"})
+        public int patternLength;
+
+        public Trie<String> ahoCorasick;
+        public Trie<String> setHorspool;
+        public Trie<String> compiled;
+        public String text;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                patterns.add(random(random, patternLength));
+            }
+            ahoCorasick = build(patterns, Engine.AHO_CORASICK);
+            setHorspool = build(patterns, Engine.SET_HORSPOOL);
+            compiled = build(patterns, Engine.COMPILED);
+            StringBuilder builder = new StringBuilder();
+            while (builder.length() < 50000) {
+                builder.append(random(random, 1000));
+                builder.append(patterns.get(random.nextInt(patterns.size())));
+            }
+            text = builder.toString();
+        }
+
+        private static Trie<String> build(List<String> patterns, Engine engine) {
+            TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(engine);
+            for (String s : patterns) {
+                builder.addCharSequence(s, s);
+            }
+            return builder.build();
+        }
+
+        private static String random(Random random, int length) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+            return builder.toString();
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class SmallDictionaryState {
+
+        @Param({"10", "30", "100", "300"})
+        public int patternCount;
+
+        public Trie<String> ahoCorasick;
+        public Trie<String> bytecode;
+        public String text;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < patternCount; i++) {
+                patterns.add(PatternLengthState.random(random, 8));
+            }
+            ahoCorasick = PatternLengthState.build(patterns, Engine.AHO_CORASICK);
+            bytecode = PatternLengthState.build(patterns, Engine.BYTECODE);
+            text = PatternLengthState.random(random, 50000);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class LargeDictionaryState {
+
+        public Trie<String> trie;
+        public Trie<String> prefilteredTrie;
+        public Trie<String> compiledTrie;
+        public Trie<String> profiledTrie;
+        public String text;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < 200000; i++) {
+                patterns.add(PatternLengthState.random(random, 8 + random.nextInt(9)));
+            }
+            trie = build(patterns, Engine.AHO_CORASICK, null);
+            prefilteredTrie = build(patterns, Engine.AHO_CORASICK, QGramPrefilter.factory());
+            compiledTrie = build(patterns, Engine.COMPILED, null);
+            text = text(random, patterns);
+            // a different text of the same kind
+            TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(Engine.COMPILED)
+                    .withSample(Collections.singletonList(text(random, patterns)));
+            for (String s : patterns) {
+                builder.addCharSequence(s, s);
+            }
+            profiledTrie = builder.build();
+        }
+
+        private static String text(Random random, List<String> patterns) {
+            StringBuilder builder = new StringBuilder();
+            while (builder.length() < 50000) {
+                builder.append(PatternLengthState.random(random, 5000));
+                builder.append(patterns.get(random.nextInt(patterns.size())));
+            }
+            return builder.toString();
+        }
+
+        private static Trie<String> build(List<String> patterns, Engine engine, PrefilterFactory prefilterFactory) {
+            TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(engine);
+            if (prefilterFactory != null) {
+                builder.withPrefilter(prefilterFactory);
+            }
+            for (String s : patterns) {
+                builder.addCharSequence(s, s);
+            }
+            return builder.build();
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class LazyDfaState {
+
+        /**
+         * "words": English and Russian words glued together, "dna": random sequences over 4 characters, failure chains
+         * are long.
+         */
+        @Param({"words", "dna"})
+        public String dictionary;
+
+        public Trie<String> ahoCorasick;
+        public Trie<String> lazyDfa;
+        public String text;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            List<String> lines = new ArrayList<>();
+            if (dictionary.equals("words")) {
+                for (String resource : new String[]{"google-10000-english.txt", "top-10000-russian.txt"}) {
+                    URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+                    lines.addAll(Files.readAllLines(Paths.get(url.toURI())));
+                }
+                List<String> shuffled = new ArrayList<>(lines);
+                Collections.shuffle(shuffled, new Random(42));
+                text = StringUtils.join(shuffled, "").substring(0, 50000);
+            } else {
+                Random random = new Random(42);
+                for (int i = 0; i < 1000; i++) {
+                    lines.add(random(random, 12));
+                }
+                text = random(random, 50000);
+            }
+            ahoCorasick = build(lines, Engine.AHO_CORASICK);
+            lazyDfa = build(lines, Engine.LAZY_DFA);
+        }
+
+        private static Trie<String> build(List<String> lines, Engine engine) {
+            TrieBuilder<String> builder = new TrieBuilder<String>().ignoreCase().withEngine(engine);
+            for (String s : lines) {
+                builder.addCharSequence(s, s);
+            }
+            return builder.build();
+        }
+
+        private static String random(Random random, int length) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                builder.append("acgt".charAt(random.nextInt(4)));
+            }
+            return builder.toString();
+        }
+
+    }
+
     public static void main(String ... args) throws IOException, RunnerException {
         Main.main(args);
     }
@@ -106,6 +378,56 @@ public class TrieBenchmark {
         testTrie(state.trie, state.textOf50000Symbols, blackhole);
     }
 
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testUnique_TextOf50000Symbols(MyState state, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        state.uniqueMatcher.match(state.textOf50000Symbols, (int beginIndex, int endIndex, String payload) -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testCount_HashMap_TextOf50000Symbols(MyState state, Blackhole blackhole) {
+        Map<String, Integer> counts = new HashMap<>();
+        state.trie.match(state.textOf50000Symbols, (int beginIndex, int endIndex, String payload) -> {
+            counts.merge(payload, 1, Integer::sum);
+            return true;
+        });
+        blackhole.consume(counts);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testCount_PatternCounter_TextOf50000Symbols(MyState state, Blackhole blackhole) {
+        blackhole.consume(state.patternCounter.count(state.textOf50000Symbols));
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testReplace_TextOf50000Symbols(MyState state, Blackhole blackhole) {
+        blackhole.consume(state.replacer.replace(state.textOf50000Symbols));
+    }
+
     @Benchmark
     @Fork(value = 1, warmups = 0)
     @Measurement(iterations = 10)
@@ -156,6 +478,216 @@ public class TrieBenchmark {
         testBruteForce(state.lines, state.textOf50000Symbols, blackhole);
     }
 
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testAhoCorasick_PatternLength(PatternLengthState state, Blackhole blackhole) {
+        testTrie(state.ahoCorasick, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testSetHorspool_PatternLength(PatternLengthState state, Blackhole blackhole) {
+        testTrie(state.setHorspool, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testCompiled_PatternLength(PatternLengthState state, Blackhole blackhole) {
+        testTrie(state.compiled, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testAhoCorasick_SmallDictionary(SmallDictionaryState state, Blackhole blackhole) {
+        testTrie(state.ahoCorasick, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testBytecode_SmallDictionary(SmallDictionaryState state, Blackhole blackhole) {
+        testTrie(state.bytecode, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testLargeDictionary(LargeDictionaryState state, Blackhole blackhole) {
+        testTrie(state.trie, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testLargeDictionary_QGramPrefilter(LargeDictionaryState state, Blackhole blackhole) {
+        testTrie(state.prefilteredTrie, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testLargeDictionary_Compiled(LargeDictionaryState state, Blackhole blackhole) {
+        testTrie(state.compiledTrie, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testLargeDictionary_CompiledProfiled(LargeDictionaryState state, Blackhole blackhole) {
+        testTrie(state.profiledTrie, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testLazyDfa_AhoCorasick(LazyDfaState state, Blackhole blackhole) {
+        testTrie(state.ahoCorasick, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testLazyDfa(LazyDfaState state, Blackhole blackhole) {
+        testTrie(state.lazyDfa, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testRange_Substring(RangeState state, Blackhole blackhole) {
+        testTrie(state.trie, state.buffer.substring(state.beginIndex, state.endIndex), blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testRange_StringBuilder(RangeState state, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        state.trie.match(state.buffer, state.beginIndex, state.endIndex, (beginIndex, endIndex, payload) -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testRange_CharArray(RangeState state, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        state.trie.match(state.array, state.beginIndex, state.endIndex - state.beginIndex,
+                (beginIndex, endIndex, payload) -> {
+                    counter.incrementAndGet();
+                    return true;
+                });
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testUnion_SeparateTries(UnionState state, Blackhole blackhole) {
+        for (Trie<String> trie : state.tries) {
+            testTrie(trie, state.text, blackhole);
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testUnion_SinglePass(UnionState state, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        state.union.match(state.text, (int dictionary, int beginIndex, int endIndex, String payload) -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testGroups_HandlerFiltering(GroupState state, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        state.trie.match(state.text, (int beginIndex, int endIndex, String payload) -> {
+            if ((state.groups.get(payload) & state.enabled) != 0) {
+                counter.incrementAndGet();
+            }
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0)
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testGroups_Mask(GroupState state, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        state.trie.match(state.text, state.enabled, (int beginIndex, int endIndex, String payload) -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
     private void testTrie(Trie<String> trie, String text, Blackhole blackhole) {
         AtomicLong counter = new AtomicLong();
         trie.match(text, (int beginIndex, int endIndex, String payload) -> {
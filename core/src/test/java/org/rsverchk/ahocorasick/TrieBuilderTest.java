@@ -6,6 +6,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Collections;
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -30,9 +33,33 @@ public class TrieBuilderTest {
     @Mock
     private CharConverter emptyConverter;
 
+    @Mock
+    private PrefilterFactory prefilterFactory;
+
+    @Mock
+    private Prefilter prefilter;
+
     @Mock
     private CharConverter toLowerCaseConverter;
 
+    @Mock
+    private SetHorspoolTrie<Object> setHorspoolTrie;
+
+    @Mock
+    private EnginePlanner enginePlanner;
+
+    @Mock
+    private LazyDfaTrie<Object> lazyDfaTrie;
+
+    @Mock
+    private DawgTrie<Object> dawgTrie;
+
+    @Mock
+    private CompiledTrie<Object> compiledTrie;
+
+    @Mock
+    private BytecodeTrie<Object> bytecodeTrie;
+
     private TrieBuilder<Object> builder;
 
     @Before
@@ -99,6 +126,16 @@ public class TrieBuilderTest {
         verify(trie, times(1)).addCharSequence("text", payload);
         verifyNoMoreInteractions(trie);
     }
+
+    @Test
+    public void testAddCharSequence_Groups() {
+        builder.setTrie(trie);
+
+        assertThat(builder.addCharSequence("text", payload, 0b10L), sameInstance(builder));
+
+        verify(trie, times(1)).addCharSequence("text", payload, 0b10L);
+        verifyNoMoreInteractions(trie);
+    }
     // test addCharSequence() ------------------------------------------------------------------------------------------
 
     // test build() ----------------------------------------------------------------------------------------------------
@@ -109,6 +146,7 @@ public class TrieBuilderTest {
         assertThat(builder.build(), sameInstance(immutableTrie));
 
         verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
         verifyNoMoreInteractions(trie);
     }
 
@@ -119,7 +157,240 @@ public class TrieBuilderTest {
         assertThat(builder.build(), sameInstance(immutableTrie));
 
         verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verifyNoMoreInteractions(trie);
+        assertThat(builder.getHitStatistics(), nullValue());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testWithPrefilter_FactoryIsNull() {
+        builder.withPrefilter(null);
+    }
+
+    @Test
+    public void testBuild_WithPrefilter() {
+        doReturn(prefilter).when(prefilterFactory).create(trie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withPrefilter(prefilterFactory), sameInstance(builder));
+        assertThat(builder.build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(trie, times(1)).setPrefilter(prefilter);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test
+    public void testBuild_WithHitStatistics() {
+        HitStatistics<Object> hitStatistics = new HitStatistics<>(Collections.emptyList());
+        doReturn(hitStatistics).when(builder).createHitStatistics(trie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withHitStatistics(), sameInstance(builder));
+        assertThat(builder.build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(trie, times(1)).setHitStatistics(hitStatistics);
+        verifyNoMoreInteractions(trie);
+        assertThat(builder.getHitStatistics(), sameInstance(hitStatistics));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testWithEngine_EngineIsNull() {
+        builder.withEngine(null);
+    }
+
+    @Test
+    public void testBuild_SetHorspool() {
+        doReturn(setHorspoolTrie).when(builder).createSetHorspoolTrie(trie);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(setHorspoolTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withEngine(Engine.SET_HORSPOOL), sameInstance(builder));
+        assertThat(builder.build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createImmutableTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithCacheBudget_TooSmall() {
+        builder.withCacheBudget(7);
+    }
+
+    @Test
+    public void testBuild_LazyDfa() {
+        doReturn(lazyDfaTrie).when(builder).createLazyDfaTrie(trie, 1024);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(lazyDfaTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withCacheBudget(1024), sameInstance(builder));
+        assertThat(builder.withEngine(Engine.LAZY_DFA).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createImmutableTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test
+    public void testBuild_Dawg() {
+        doReturn(dawgTrie).when(builder).createDawgTrie(trie);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(dawgTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withEngine(Engine.DAWG).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createImmutableTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test
+    public void testBuild_Compiled() {
+        doReturn(compiledTrie).when(builder).createCompiledTrie(trie, null);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(compiledTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withEngine(Engine.COMPILED).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createImmutableTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testWithSample_SampleIsNull() {
+        builder.withSample(null);
+    }
+
+    @Test
+    public void testBuild_Compiled_WithSample() {
+        List<String> sample = Collections.singletonList("text");
+        doReturn(compiledTrie).when(builder).createCompiledTrie(trie, sample);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(compiledTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withSample(sample), sameInstance(builder));
+        assertThat(builder.withEngine(Engine.COMPILED).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createImmutableTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test
+    public void testBuildAutomaton() {
+        doReturn(compiledTrie).when(builder).createCompiledTrie(trie, null);
+        builder.setTrie(trie);
+
+        assertThat(builder.withEngine(Engine.DAWG).buildAutomaton(), sameInstance(compiledTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createDawgTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test
+    public void testBuildAutomaton_AfterBuild() {
+        doReturn(compiledTrie).when(builder).createCompiledTrie(trie, null);
+        doReturn(true).when(trie).isBuilt();
+        builder.setTrie(trie);
+
+        assertThat(builder.buildAutomaton(), sameInstance(compiledTrie));
+
+        verify(trie, times(1)).isBuilt();
+        verify(trie, never()).init();
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuild_Twice() {
+        builder.setTrie(trie);
+        builder.build();
+        doReturn(true).when(trie).isBuilt();
+
+        builder.build();
+    }
+
+    @Test
+    public void testBuild_Bytecode() {
+        doReturn(bytecodeTrie).when(builder).createBytecodeTrie(trie);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(bytecodeTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withEngine(Engine.BYTECODE).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(builder, never()).createImmutableTrie(trie);
+        verifyNoMoreInteractions(trie);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testWithMatchDensity_MatchDensityIsNull() {
+        builder.withMatchDensity(null);
+    }
+
+    @Test
+    public void testBuild_Auto() {
+        EnginePlan plan = new EnginePlan(Engine.AHO_CORASICK, prefilterFactory, "explanation");
+        doReturn(enginePlanner).when(builder).createEnginePlanner();
+        doReturn(plan).when(enginePlanner).plan(trie, EnginePlanner.MatchDensity.SPARSE, null);
+        doReturn(prefilter).when(prefilterFactory).create(trie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withMatchDensity(EnginePlanner.MatchDensity.SPARSE), sameInstance(builder));
+        assertThat(builder.withEngine(Engine.AUTO).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(trie, times(1)).setPrefilter(prefilter);
         verifyNoMoreInteractions(trie);
+        assertThat(builder.getEnginePlan(), sameInstance(plan));
+    }
+
+    @Test
+    public void testBuild_Auto_SetHorspool() {
+        EnginePlan plan = new EnginePlan(Engine.SET_HORSPOOL, null, "explanation");
+        doReturn(enginePlanner).when(builder).createEnginePlanner();
+        doReturn(plan).when(enginePlanner).plan(trie, EnginePlanner.MatchDensity.UNKNOWN, null);
+        doReturn(setHorspoolTrie).when(builder).createSetHorspoolTrie(trie);
+        doReturn(immutableTrie).when(builder).createImmutableTrie(setHorspoolTrie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withEngine(Engine.AUTO).build(), sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verifyNoMoreInteractions(trie);
+        assertThat(builder.getEnginePlan(), sameInstance(plan));
+    }
+
+    @Test
+    public void testBuild_Auto_WithPrefilter() {
+        EnginePlan plan = new EnginePlan(Engine.AHO_CORASICK, prefilterFactory, "explanation");
+        doReturn(enginePlanner).when(builder).createEnginePlanner();
+        doReturn(plan).when(enginePlanner).plan(trie, EnginePlanner.MatchDensity.UNKNOWN, prefilterFactory);
+        doReturn(prefilter).when(prefilterFactory).create(trie);
+        builder.setTrie(trie);
+
+        assertThat(builder.withPrefilter(prefilterFactory).withEngine(Engine.AUTO).build(),
+                sameInstance(immutableTrie));
+
+        verify(trie, times(1)).init();
+        verify(trie, times(1)).isBuilt();
+        verify(trie, times(1)).setPrefilter(prefilter);
+        verifyNoMoreInteractions(trie);
+        assertThat(builder.getEnginePlan(), sameInstance(plan));
     }
     // test build() ----------------------------------------------------------------------------------------------------
 
@@ -144,11 +415,79 @@ public class TrieBuilderTest {
         assertThat(builder.createMutableTrie(toLowerCaseConverter), notNullValue());
     }
 
+    @Test
+    public void testCreateHitStatistics() {
+        doCallRealMethod().when(builder).createHitStatistics(trie);
+        doReturn(Collections.singletonList(payload)).when(trie).getPayloads();
+
+        HitStatistics<Object> hitStatistics = builder.createHitStatistics(trie);
+
+        assertThat(hitStatistics.getPatternCount(), equalTo(1));
+        assertThat(hitStatistics.getPayload(0), sameInstance(payload));
+    }
+
+    @Test
+    public void testCreateEnginePlanner() {
+        doCallRealMethod().when(builder).createEnginePlanner();
+
+        assertThat(builder.createEnginePlanner(), notNullValue());
+    }
+
+    @Test
+    public void testCreateSetHorspoolTrie() {
+        MutableTrie<Object> mutableTrie = new MutableTrie<>(c -> c);
+        mutableTrie.addCharSequence("text", payload);
+        mutableTrie.init();
+        doCallRealMethod().when(builder).createSetHorspoolTrie(mutableTrie);
+
+        assertThat(builder.createSetHorspoolTrie(mutableTrie).getMinLength(), equalTo(4));
+    }
+
+    @Test
+    public void testCreateLazyDfaTrie() {
+        MutableTrie<Object> mutableTrie = new MutableTrie<>(c -> c);
+        mutableTrie.addCharSequence("text", payload);
+        mutableTrie.init();
+        doCallRealMethod().when(builder).createLazyDfaTrie(mutableTrie, 1024);
+
+        assertThat(builder.createLazyDfaTrie(mutableTrie, 1024).getCacheSize(), equalTo(128));
+    }
+
+    @Test
+    public void testCreateDawgTrie() {
+        MutableTrie<Object> mutableTrie = new MutableTrie<>(c -> c);
+        mutableTrie.addCharSequence("text", payload);
+        mutableTrie.init();
+        doCallRealMethod().when(builder).createDawgTrie(mutableTrie);
+
+        assertThat(builder.createDawgTrie(mutableTrie).getStateCount(), equalTo(5));
+    }
+
+    @Test
+    public void testCreateCompiledTrie() {
+        MutableTrie<Object> mutableTrie = new MutableTrie<>(c -> c);
+        mutableTrie.addCharSequence("text", payload);
+        mutableTrie.init();
+        doCallRealMethod().when(builder).createCompiledTrie(mutableTrie, null);
+
+        assertThat(builder.createCompiledTrie(mutableTrie, null).getStateCount(), equalTo(2));
+    }
+
+    @Test
+    public void testCreateBytecodeTrie() {
+        MutableTrie<Object> mutableTrie = new MutableTrie<>(c -> c);
+        mutableTrie.addCharSequence("text", payload);
+        mutableTrie.init();
+        doCallRealMethod().when(builder).createBytecodeTrie(mutableTrie);
+
+        assertThat(builder.createBytecodeTrie(mutableTrie).getStateCount(), equalTo(5));
+    }
+
     @Test
     public void testCreateImmutableTrie() {
         doCallRealMethod().when(builder).createImmutableTrie(trie);
 
-        assertThat(builder.createImmutableTrie(trie), notNullValue());
+        assertThat(builder.createImmutableTrie(trie), instanceOf(ImmutableTrie.class));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Stress tests of one built trie shared by many threads matching at once, see {@link ImmutableTrie}.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class TrieConcurrencyIntegrationTest {
+
+    private static final int THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final int ROUNDS = 200;
+    private static final int TEXTS = 32;
+
+    /**
+     * Deliberately neither volatile nor guarded, the trie is published to the matching threads through a data race.
+     */
+    private Trie<String> published;
+
+    @Test
+    public void testShared_AhoCorasick() throws Exception {
+        checkShared(new TrieBuilder<String>());
+    }
+
+    @Test
+    public void testShared_SetHorspool() throws Exception {
+        checkShared(new TrieBuilder<String>().withEngine(Engine.SET_HORSPOOL));
+    }
+
+    @Test
+    public void testShared_LazyDfa() throws Exception {
+        // a tiny cache, so threads keep evicting each other's transitions
+        checkShared(new TrieBuilder<String>().withEngine(Engine.LAZY_DFA).withCacheBudget(1024));
+    }
+
+    @Test
+    public void testShared_Dawg() throws Exception {
+        checkShared(new TrieBuilder<String>().withEngine(Engine.DAWG));
+    }
+
+    @Test
+    public void testShared_Compiled() throws Exception {
+        checkShared(new TrieBuilder<String>().withEngine(Engine.COMPILED));
+    }
+
+    @Test
+    public void testShared_HitStatistics() throws Exception {
+        TrieBuilder<String> builder = new TrieBuilder<String>().withHitStatistics();
+        long expectedHits = checkShared(builder);
+
+        long hits = 0;
+        for (long value : builder.getHitStatistics().snapshot()) {
+            hits += value;
+        }
+        assertThat(hits, equalTo(expectedHits));
+    }
+
+    /**
+     * Start many threads spinning on a plain field, build a trie of the big dictionary and assign it to the field with
+     * no synchronization, so the threads can only rely on the final field semantics of {@link ImmutableTrie}. Every
+     * thread matches random parts of the text in its own order, every result is compared with the one of the building
+     * thread.
+     *
+     * @return the total number of matches reported to all the threads
+     */
+    private long checkShared(TrieBuilder<String> builder) throws Exception {
+        URL url = Thread.currentThread().getContextClassLoader().getResource("google-10000-english.txt");
+        List<String> lines = Files.readAllLines(Paths.get(url.toURI()));
+        for (String s : lines) {
+            builder.addCharSequence(s, s);
+        }
+        String text = StringUtils.join(lines, " ");
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < TEXTS; i++) {
+            int beginIndex = random.nextInt(text.length() - 1000);
+            texts.add(text.substring(beginIndex, beginIndex + 1 + random.nextInt(1000)));
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(THREADS + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Pair<Integer, List<Triple<Integer, Integer, String>>>>>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            long seed = thread;
+            futures.add(executor.submit(() -> {
+                Random threadRandom = new Random(seed);
+                barrier.await();
+                Trie<String> trie;
+                while ((trie = published) == null) {
+                    Thread.yield();
+                }
+                List<Pair<Integer, List<Triple<Integer, Integer, String>>>> results = new ArrayList<>();
+                for (int round = 0; round < ROUNDS; round++) {
+                    int index = threadRandom.nextInt(TEXTS);
+                    results.add(Pair.of(index, match(trie, texts.get(index))));
+                }
+                return results;
+            }));
+        }
+        // the trie is built after the threads passed the barrier, nothing orders its writes before their reads
+        barrier.await();
+        Trie<String> trie = builder.build();
+        published = trie;
+
+        List<List<Triple<Integer, Integer, String>>> expected = new ArrayList<>();
+        long total = 0;
+        for (String t : texts) {
+            List<Triple<Integer, Integer, String>> matches = match(trie, t);
+            expected.add(matches);
+            total += matches.size();
+        }
+        for (Future<List<Pair<Integer, List<Triple<Integer, Integer, String>>>>> future : futures) {
+            for (Pair<Integer, List<Triple<Integer, Integer, String>>> result : future.get(1, TimeUnit.MINUTES)) {
+                assertThat("text " + result.getLeft(), result.getRight(), equalTo(expected.get(result.getLeft())));
+                total += result.getRight().size();
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        return total;
+    }
+
+    private static List<Triple<Integer, Integer, String>> match(Trie<String> trie, String text) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        trie.match(text, (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+        return result;
+    }
+
+}
\ No newline at end of file
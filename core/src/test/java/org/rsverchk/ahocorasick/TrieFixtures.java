@@ -0,0 +1,80 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Fixtures shared by the tests of the engines: dictionaries, texts and matches collected into lists.
+ *
+ * @author Ruslan Sverchkov
+ */
+final class TrieFixtures {
+
+    /**
+     * Create a random string.
+     *
+     * @param random   random to use
+     * @param length   length of the string
+     * @param alphabet characters to take
+     * @return a random string
+     */
+    static String random(Random random, int length, String alphabet) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Create an initialized trie, every sequence is its own payload.
+     *
+     * @param converter characters converter
+     * @param sequences sequences to add
+     * @return an initialized trie
+     */
+    static MutableTrie<String> trie(CharConverter converter, String... sequences) {
+        MutableTrie<String> trie = new MutableTrie<>(converter);
+        for (String sequence : sequences) {
+            trie.addCharSequence(sequence, sequence);
+        }
+        trie.init();
+        return trie;
+    }
+
+    /**
+     * Collect the matches of the specified trie in the order they are reported.
+     *
+     * @param trie trie to match
+     * @param text text to match
+     * @return begin index, end index and payload of every match
+     */
+    static List<Triple<Integer, Integer, String>> match(Trie<String> trie, String text) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        trie.match(text, (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+        return result;
+    }
+
+    /**
+     * Check that the specified trie reports every text exactly like {@link MutableTrie} does.
+     *
+     * @param actual   trie to check
+     * @param expected trie with the same sequences added
+     * @param texts    texts to match
+     */
+    static void assertSameAsAhoCorasick(Trie<String> actual, MutableTrie<String> expected, String... texts) {
+        for (String text : texts) {
+            assertThat(text, match(actual, text), equalTo(match(expected, text)));
+        }
+    }
+
+    private TrieFixtures() {
+    }
+
+}
\ No newline at end of file
@@ -12,8 +12,13 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.*;
@@ -158,9 +163,159 @@ public class TrieIntegrationTest {
 
     @Test
     public void testBigTrie() throws IOException, URISyntaxException {
+        checkBigTrie(Engine.AHO_CORASICK);
+    }
+
+    @Test
+    public void testBigTrie_SetHorspool() throws IOException, URISyntaxException {
+        checkBigTrie(Engine.SET_HORSPOOL);
+    }
+
+    @Test
+    public void testBigTrie_Dawg() throws IOException, URISyntaxException {
+        checkBigTrie(Engine.DAWG);
+    }
+
+    @Test
+    public void testBigTrie_Compiled() throws IOException, URISyntaxException {
+        checkBigTrie(Engine.COMPILED);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBigTrie_BytecodeTooBig() throws IOException, URISyntaxException {
+        checkBigTrie(Engine.BYTECODE);
+    }
+
+    @Test
+    public void testBigTrie_DawgStateCount() throws IOException, URISyntaxException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource("google-10000-english.txt");
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        for (String s : Files.readAllLines(Paths.get(url.toURI()))) {
+            trie.addCharSequence(s, s);
+        }
+        trie.init();
+        int[] nodeCount = {1};
+        trie.breadthFirstTraversal((c, node) -> nodeCount[0]++);
+
+        assertThat(new DawgTrie<>(trie).getStateCount() * 2 < nodeCount[0], equalTo(true));
+    }
+
+    @Test
+    public void testMatchGroups_EveryEngine() {
+        Random random = new Random(42);
+        Map<String, Long> groups = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            groups.put(random(random, 1 + random.nextInt(6)), 1L << random.nextInt(64));
+        }
+        String text = random(random, 3000);
+        for (Engine engine : Engine.values()) {
+            TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(engine);
+            groups.forEach((sequence, group) -> builder.addCharSequence(sequence, sequence, group));
+            Trie<String> trie = builder.build();
+            List<Triple<Integer, Integer, String>> all = new ArrayList<>();
+            trie.match(text, (begin, end, payload) -> all.add(Triple.of(begin, end, payload)));
+            for (int i = 0; i < 10; i++) {
+                long enabled = random.nextLong() & random.nextLong();
+                List<Triple<Integer, Integer, String>> expected = new ArrayList<>();
+                for (Triple<Integer, Integer, String> match : all) {
+                    if ((groups.get(match.getRight()) & enabled) != 0) {
+                        expected.add(match);
+                    }
+                }
+                List<Triple<Integer, Integer, String>> actual = new ArrayList<>();
+
+                trie.match(text, enabled, (begin, end, payload) -> actual.add(Triple.of(begin, end, payload)));
+
+                assertThat(engine.name(), actual, equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testPrefixLookups_EveryEngine() {
+        Random random = new Random(42);
+        List<String> sequences = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sequences.add(random(random, 1 + random.nextInt(6)));
+        }
+        MutableTrie<String> expected = new MutableTrie<>(c -> c);
+        sequences.forEach(sequence -> expected.addCharSequence(sequence, sequence));
+        expected.init();
+        String text = random(random, 200);
+        for (Engine engine : Engine.values()) {
+            TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(engine);
+            sequences.forEach(sequence -> builder.addCharSequence(sequence, sequence));
+            Trie<String> trie = builder.build();
+            for (int offset = 0; offset < text.length(); offset++) {
+                String word = text.substring(offset, offset + 1 + random.nextInt(Math.min(7, text.length() - offset)));
+                List<Triple<Integer, Integer, String>> expectedMatches = new ArrayList<>();
+                expected.allPrefixMatches(text, offset, (begin, end, payload) ->
+                        expectedMatches.add(Triple.of(begin, end, payload)));
+                List<Triple<Integer, Integer, String>> actualMatches = new ArrayList<>();
+
+                trie.allPrefixMatches(text, offset, (begin, end, payload) ->
+                        actualMatches.add(Triple.of(begin, end, payload)));
+
+                assertThat(engine.name(), actualMatches, equalTo(expectedMatches));
+                assertThat(engine.name(), trie.longestPrefixMatch(text, offset),
+                        equalTo(expected.longestPrefixMatch(text, offset)));
+                assertThat(engine.name() + " " + word, trie.get(word), equalTo(expected.get(word)));
+            }
+        }
+    }
+
+    @Test
+    public void testAuto_SetHorspool_GroupsAndLookups() {
+        StringBuilder alphabet = new StringBuilder();
+        for (int i = 0; i < EnginePlanner.HORSPOOL_MIN_ALPHABET; i++) {
+            alphabet.append((char) ('0' + i));
+        }
+        String first = alphabet.substring(0, 32);
+        String second = alphabet.substring(32);
+        TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(Engine.AUTO);
+        builder.addCharSequence(first, "first", 0b01);
+        builder.addCharSequence(second, "second", 0b10);
+        builder.addCharSequence(alphabet, "all", 0b10);
+        Trie<String> trie = builder.build();
+        String text = "x" + alphabet + "x";
+        List<Triple<Integer, Integer, String>> matches = new ArrayList<>();
+
+        trie.match(text, 0b10, (begin, end, payload) -> matches.add(Triple.of(begin, end, payload)));
+
+        assertThat(builder.getEnginePlan().getEngine(), equalTo(Engine.SET_HORSPOOL));
+        assertThat(matches, equalTo(Arrays.asList(Triple.of(1, 65, "all"), Triple.of(33, 65, "second"))));
+        assertThat(trie.get(first), equalTo("first"));
+        assertThat(trie.get(alphabet.substring(0, 16)), nullValue());
+        assertThat(trie.longestPrefixMatch(text, 1), equalTo(65));
+        assertThat(trie.longestPrefixMatch(text, 2), equalTo(-1));
+    }
+
+    @Test
+    public void testBuildAndBuildAutomaton() {
+        // either order, the trie and the automaton share the added sequences
+        TrieBuilder<String> builder = new TrieBuilder<String>().addCharSequence("he", "he")
+                .addCharSequence("she", "she");
+        Trie<String> trie = builder.build();
+        Automaton<String> automaton = builder.buildAutomaton();
+        TrieBuilder<String> reversed = new TrieBuilder<String>().addCharSequence("he", "he")
+                .addCharSequence("she", "she");
+        Automaton<String> reversedAutomaton = reversed.buildAutomaton();
+        Trie<String> reversedTrie = reversed.build();
+        List<Triple<Integer, Integer, String>> matches = new ArrayList<>();
+
+        trie.match("ushe", (begin, end, payload) -> matches.add(Triple.of(begin, end, payload)));
+        reversedTrie.match("ushe", (begin, end, payload) -> matches.add(Triple.of(begin, end, payload)));
+
+        assertThat(matches, equalTo(Arrays.asList(Triple.of(1, 4, "she"), Triple.of(2, 4, "he"),
+                Triple.of(1, 4, "she"), Triple.of(2, 4, "he"))));
+        assertThat(new Replacer<>(automaton, '*').replace("ushe"), equalTo("u***"));
+        assertThat(new Replacer<>(reversedAutomaton, '*').replace("ushe"), equalTo("u***"));
+    }
+
+    private void checkBigTrie(Engine engine) throws IOException, URISyntaxException {
         URL url = Thread.currentThread().getContextClassLoader().getResource("google-10000-english.txt");
         List<String> lines = Files.readAllLines(Paths.get(url.toURI()));
-        TrieBuilder<String> builder = new TrieBuilder<>();
+        TrieBuilder<String> builder = new TrieBuilder<String>().withEngine(engine);
         for (String s : lines) {
             builder.addCharSequence(s, s);
         }
@@ -187,4 +342,12 @@ public class TrieIntegrationTest {
         assertThat(matches, equalTo(expectedMatches));
     }
 
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abc".charAt(random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+
 }
\ No newline at end of file
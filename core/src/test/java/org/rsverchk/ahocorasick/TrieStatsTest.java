@@ -0,0 +1,65 @@
+package org.rsverchk.ahocorasick;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TrieStats} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class TrieStatsTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testOf_TrieIsNull() {
+        TrieStats.of(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOf_NotInitialized() {
+        TrieStats.of(new MutableTrie<>(c -> c));
+    }
+
+    @Test
+    public void testOf_Empty() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.init();
+
+        TrieStats stats = TrieStats.of(trie);
+
+        assertThat(stats.getStateCount(), equalTo(1));
+        assertThat(stats.getTerminalCount(), equalTo(0));
+        assertThat(stats.getMaxDepth(), equalTo(0));
+        assertThat(stats.getFanOutHistogram(), equalTo(new int[]{1, 0, 0, 0, 0}));
+        // header, 8 references, 2 ints, a char and 2 longs aligned to 8 bytes
+        assertThat(stats.getEstimatedMemory(), equalTo(72L));
+    }
+
+    @Test
+    public void testOf() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("hers", "hers");
+        trie.addCharSequence("his", "his");
+        trie.addCharSequence("sher", "sher");
+        trie.addCharSequence("he", "he");
+        trie.init();
+
+        TrieStats stats = TrieStats.of(trie);
+
+        assertThat(stats.getStateCount(), equalTo(11));
+        assertThat(stats.getTerminalCount(), equalTo(4));
+        assertThat(stats.getDepthHistogram(), equalTo(new int[]{1, 2, 3, 3, 2}));
+        assertThat(stats.getMaxDepth(), equalTo(4));
+        assertThat(stats.getFanOutHistogram(), equalTo(new int[]{3, 6, 2, 0, 0}));
+        assertThat(stats.getFailureChainHistogram(), equalTo(new int[]{1, 5, 5}));
+        assertThat(stats.getMaxFailureChainLength(), equalTo(2));
+        assertThat(stats.getAverageFailureChainLength(), equalTo(15.0 / 11));
+        assertThat(stats.getOutputChainHistogram(), equalTo(new int[]{6, 5}));
+        assertThat(stats.getMaxOutputChainLength(), equalTo(1));
+        assertThat(stats.getEstimatedMemory() > 0, is(true));
+        assertThat(stats.toString(), notNullValue());
+    }
+
+}
\ No newline at end of file
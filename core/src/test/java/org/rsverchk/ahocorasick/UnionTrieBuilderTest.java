@@ -0,0 +1,94 @@
+package org.rsverchk.ahocorasick;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link UnionTrieBuilder} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class UnionTrieBuilderTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_BuilderIsNull() {
+        new UnionTrieBuilder<String>(null);
+    }
+
+    // test addCharSequence() ------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddCharSequence_NegativeDictionary() {
+        new UnionTrieBuilder<String>().addCharSequence(-1, "text", "text");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddCharSequence_SequenceIsEmpty() {
+        new UnionTrieBuilder<String>().addCharSequence(0, "", "text");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddCharSequence_Built() {
+        UnionTrieBuilder<String> builder = new UnionTrieBuilder<>();
+        builder.build();
+
+        builder.addCharSequence(0, "text", "text");
+    }
+
+    // test build() ----------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testBuild_Empty() {
+        UnionTrie<String> trie = new UnionTrieBuilder<String>().build();
+
+        assertThat(trie.getDictionaryCount(), equalTo(0));
+        assertThat(match(trie, "text"), equalTo(new ArrayList<String>()));
+    }
+
+    @Test
+    public void testBuild_SameSequence() {
+        UnionTrie<String> trie = new UnionTrieBuilder<String>()
+                .addCharSequence(2, "he", "first")
+                .addCharSequence(0, "he", "zero")
+                .addCharSequence(2, "he", "second")
+                .build();
+
+        assertThat(trie.getDictionaryCount(), equalTo(3));
+        assertThat(match(trie, "he"), equalTo(Arrays.asList("0 0 2 zero", "2 0 2 second")));
+    }
+
+    @Test
+    public void testBuild_IgnoreCase() {
+        UnionTrie<String> trie = new UnionTrieBuilder<>(new TrieBuilder<UnionTrie.Tags<String>>().ignoreCase())
+                .addCharSequence(0, "He", "He")
+                .addCharSequence(1, "hE", "hE")
+                .build();
+
+        assertThat(match(trie, "HE"), equalTo(Arrays.asList("0 0 2 He", "1 0 2 hE")));
+    }
+
+    @Test
+    public void testBuild_Engine() {
+        UnionTrie<String> trie = new UnionTrieBuilder<>(
+                new TrieBuilder<UnionTrie.Tags<String>>().withEngine(Engine.COMPILED))
+                .addCharSequence(0, "she", "she")
+                .addCharSequence(1, "he", "he")
+                .build();
+
+        assertThat(match(trie, "she"), equalTo(Arrays.asList("0 0 3 she", "1 1 3 he")));
+    }
+
+    private static List<String> match(UnionTrie<String> trie, String text) {
+        List<String> result = new ArrayList<>();
+        trie.match(text, (dictionary, beginIndex, endIndex, payload) ->
+                result.add(dictionary + " " + beginIndex + " " + endIndex + " " + payload));
+        return result;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link UnionTrie} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class UnionTrieTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_WrongNumberOfHandlers() {
+        union().match("text", Collections.singletonList((beginIndex, endIndex, payload) -> true));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        List<String> payloads = new ArrayList<>();
+
+        union().match("ushers", (dictionary, beginIndex, endIndex, payload) -> {
+            payloads.add(payload);
+            return false;
+        });
+
+        assertThat(payloads, equalTo(Arrays.asList("she")));
+    }
+
+    @Test
+    public void testMatch_Handlers() {
+        List<String> pii = new ArrayList<>();
+        List<String> brands = new ArrayList<>();
+
+        union().match("ushers", Arrays.asList(
+                (beginIndex, endIndex, payload) -> pii.add(payload),
+                null,
+                (beginIndex, endIndex, payload) -> brands.add(payload)));
+
+        assertThat(pii, equalTo(Arrays.asList("she", "hers")));
+        assertThat(brands, equalTo(Arrays.asList("he", "hers")));
+    }
+
+    @Test
+    public void testMatch_SameAsSeparateTries() {
+        Random random = new Random(42);
+        int dictionaryCount = 6;
+        UnionTrieBuilder<String> unionBuilder = new UnionTrieBuilder<>();
+        List<TrieBuilder<String>> builders = new ArrayList<>();
+        for (int dictionary = 0; dictionary < dictionaryCount; dictionary++) {
+            TrieBuilder<String> builder = new TrieBuilder<>();
+            for (int i = 0; i < 20; i++) {
+                String sequence = random(random, 1 + random.nextInt(5));
+                String payload = dictionary + ":" + sequence;
+                builder.addCharSequence(sequence, payload);
+                unionBuilder.addCharSequence(dictionary, sequence, payload);
+            }
+            builders.add(builder);
+        }
+        UnionTrie<String> union = unionBuilder.build();
+        List<Trie<String>> tries = new ArrayList<>();
+        for (TrieBuilder<String> builder : builders) {
+            tries.add(builder.build());
+        }
+        for (int i = 0; i < 10; i++) {
+            String text = random(random, 1 + random.nextInt(500));
+            List<List<Triple<Integer, Integer, String>>> actual = new ArrayList<>();
+            List<MatchHandler<String>> handlers = new ArrayList<>();
+            for (int dictionary = 0; dictionary < dictionaryCount; dictionary++) {
+                List<Triple<Integer, Integer, String>> matches = new ArrayList<>();
+                actual.add(matches);
+                handlers.add((beginIndex, endIndex, payload) -> matches.add(Triple.of(beginIndex, endIndex, payload)));
+            }
+
+            union.match(text, handlers);
+
+            for (int dictionary = 0; dictionary < dictionaryCount; dictionary++) {
+                List<Triple<Integer, Integer, String>> expected = new ArrayList<>();
+                tries.get(dictionary).match(text, (beginIndex, endIndex, payload) ->
+                        expected.add(Triple.of(beginIndex, endIndex, payload)));
+                assertThat(actual.get(dictionary), equalTo(expected));
+            }
+        }
+    }
+
+    private static UnionTrie<String> union() {
+        return new UnionTrieBuilder<String>()
+                .addCharSequence(0, "she", "she")
+                .addCharSequence(0, "hers", "hers")
+                .addCharSequence(1, "his", "his")
+                .addCharSequence(2, "he", "he")
+                .addCharSequence(2, "hers", "hers")
+                .build();
+    }
+
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abc".charAt(random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package org.rsverchk.ahocorasick;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link UniqueMatcher} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class UniqueMatcherTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_AutomatonIsNull() {
+        new UniqueMatcher<>(null);
+    }
+
+    // test match() ----------------------------------------------------------------------------------------------------
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_SequenceIsEmpty() {
+        matcher("he").match("", (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatch_UnknownTarget() {
+        BitSet targets = new BitSet();
+        targets.set(1);
+
+        matcher("he").match("he", targets, (beginIndex, endIndex, payload) -> true);
+    }
+
+    @Test
+    public void testMatch() {
+        UniqueMatcher<String> matcher = matcher("he", "she", "hers");
+
+        assertThat(match(matcher, "she said hershe he"), equalTo(Arrays.asList(
+                Triple.of(0, 3, "she"),
+                Triple.of(1, 3, "he"),
+                Triple.of(9, 13, "hers"))));
+        assertThat(matcher.getFoundCount(), equalTo(3));
+    }
+
+    @Test
+    public void testMatch_Reuse() {
+        UniqueMatcher<String> matcher = matcher("he", "she", "hers");
+
+        match(matcher, "she");
+        List<Triple<Integer, Integer, String>> matches = match(matcher, "he she");
+
+        assertThat(matches, equalTo(Arrays.asList(
+                Triple.of(0, 2, "he"),
+                Triple.of(3, 6, "she"))));
+        assertThat(matcher.getFoundCount(), equalTo(2));
+        assertThat(matcher.isFound(2), equalTo(false));
+    }
+
+    @Test
+    public void testMatch_Stop() {
+        UniqueMatcher<String> matcher = matcher("he", "she");
+        List<String> payloads = new ArrayList<>();
+
+        boolean result = matcher.match("she he", null, (beginIndex, endIndex, payload) -> {
+            payloads.add(payload);
+            return false;
+        });
+
+        assertThat(result, equalTo(false));
+        assertThat(payloads, equalTo(Arrays.asList("she")));
+    }
+
+    @Test
+    public void testMatch_Targets() {
+        UniqueMatcher<String> matcher = matcher("a", "b", "c");
+        BitSet targets = new BitSet();
+        targets.set(0);
+        targets.set(1);
+        List<Integer> ends = new ArrayList<>();
+
+        boolean result = matcher.match("cabcab", targets, (beginIndex, endIndex, payload) -> ends.add(endIndex));
+
+        assertThat(result, equalTo(true));
+        assertThat(ends, equalTo(Arrays.asList(1, 2, 3)));
+        assertThat(matcher.isFound(0), equalTo(true));
+        assertThat(matcher.isFound(1), equalTo(true));
+        assertThat(matcher.isFound(2), equalTo(true));
+    }
+
+    @Test
+    public void testMatch_TargetsNotFound() {
+        UniqueMatcher<String> matcher = matcher("a", "b", "c");
+        BitSet targets = new BitSet();
+        targets.set(0);
+        targets.set(2);
+
+        assertThat(matcher.match("abab", targets, (beginIndex, endIndex, payload) -> true), equalTo(false));
+        assertThat(matcher.match("abab", new BitSet(), (beginIndex, endIndex, payload) -> true), equalTo(false));
+    }
+
+    @Test
+    public void testMatch_SameAsFirstOccurrences() {
+        Random random = new Random(42);
+        TrieBuilder<String> builder = new TrieBuilder<>();
+        for (int i = 0; i < 100; i++) {
+            String sequence = random(random, 1 + random.nextInt(4));
+            builder.addCharSequence(sequence, sequence);
+        }
+        UniqueMatcher<String> matcher = new UniqueMatcher<>(builder.buildAutomaton());
+        MutableTrie<String> trie = builder.getTrie();
+        for (int i = 0; i < 20; i++) {
+            String text = random(random, 1 + random.nextInt(300));
+            Set<String> seen = new LinkedHashSet<>();
+            List<Triple<Integer, Integer, String>> expected = new ArrayList<>();
+            trie.match(text, (beginIndex, endIndex, payload) -> {
+                if (seen.add(payload)) {
+                    expected.add(Triple.of(beginIndex, endIndex, payload));
+                }
+                return true;
+            });
+
+            assertThat(match(matcher, text), equalTo(expected));
+            assertThat(matcher.getFoundCount(), equalTo(seen.size()));
+        }
+    }
+
+    private static UniqueMatcher<String> matcher(String... sequences) {
+        TrieBuilder<String> builder = new TrieBuilder<>();
+        for (String sequence : sequences) {
+            builder.addCharSequence(sequence, sequence);
+        }
+        return new UniqueMatcher<>(builder.buildAutomaton());
+    }
+
+    private static List<Triple<Integer, Integer, String>> match(UniqueMatcher<String> matcher, String text) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        matcher.match(text, (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+        return result;
+    }
+
+    private static String random(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append("abcd".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+
+}
\ No newline at end of file
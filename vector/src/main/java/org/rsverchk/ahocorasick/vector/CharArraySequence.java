@@ -0,0 +1,78 @@
+package org.rsverchk.ahocorasick.vector;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A characters sequence backed by a range of a char array, without copying. Lets {@link VectorPrefilter} read the
+ * array directly with vector loads. The array is not copied, so changes made to it are visible through the sequence.
+ *
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public final class CharArraySequence implements CharSequence {
+
+    final char[] array;
+    final int offset;
+    private final int length;
+
+    /**
+     * Construct an instance of CharArraySequence backed by the whole array.
+     *
+     * @param array characters
+     * @throws NullPointerException if array is null
+     */
+    public CharArraySequence(@Nonnull char[] array) {
+        this(array, 0, Validate.notNull(array).length);
+    }
+
+    /**
+     * Construct an instance of CharArraySequence backed by a range of the array.
+     *
+     * @param array  characters
+     * @param offset index of the first character of the range
+     * @param length length of the range
+     * @throws NullPointerException      if array is null
+     * @throws IndexOutOfBoundsException if the range is out of array bounds
+     */
+    public CharArraySequence(@Nonnull char[] array, int offset, int length) {
+        Validate.notNull(array);
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        return array[offset + index];
+    }
+
+    @Nonnull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+        }
+        return new CharArraySequence(array, offset + start, end - start);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return new String(array, offset, length);
+    }
+
+}
\ No newline at end of file
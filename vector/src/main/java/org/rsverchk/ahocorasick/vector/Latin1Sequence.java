@@ -0,0 +1,80 @@
+package org.rsverchk.ahocorasick.vector;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A characters sequence backed by a range of a byte array in ISO-8859-1 (every byte is a character with code from 0
+ * to 255), without decoding. Suitable for ASCII input such as logs. Lets {@link VectorPrefilter} read the array
+ * directly with vector loads, twice as many characters per load as for a char array.
+ *
+ * @author Ruslan Sverchkov
+ */
+@NotThreadSafe
+public final class Latin1Sequence implements CharSequence {
+
+    final byte[] array;
+    final int offset;
+    private final int length;
+
+    /**
+     * Construct an instance of Latin1Sequence backed by the whole array.
+     *
+     * @param array characters encoded in ISO-8859-1
+     * @throws NullPointerException if array is null
+     */
+    public Latin1Sequence(@Nonnull byte[] array) {
+        this(array, 0, Validate.notNull(array).length);
+    }
+
+    /**
+     * Construct an instance of Latin1Sequence backed by a range of the array.
+     *
+     * @param array  characters encoded in ISO-8859-1
+     * @param offset index of the first character of the range
+     * @param length length of the range
+     * @throws NullPointerException      if array is null
+     * @throws IndexOutOfBoundsException if the range is out of array bounds
+     */
+    public Latin1Sequence(@Nonnull byte[] array, int offset, int length) {
+        Validate.notNull(array);
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        return (char) (array[offset + index] & 0xFF);
+    }
+
+    @Nonnull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+        }
+        return new Latin1Sequence(array, offset + start, end - start);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return new String(array, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,442 @@
+package org.rsverchk.ahocorasick.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.apache.commons.lang3.Validate;
+import org.rsverchk.ahocorasick.CharConverter;
+import org.rsverchk.ahocorasick.MutableTrie;
+import org.rsverchk.ahocorasick.Node;
+import org.rsverchk.ahocorasick.Prefilter;
+import org.rsverchk.ahocorasick.PrefilterFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link Prefilter} that uses the Java Vector API to find candidate positions: a position is a candidate if the two
+ * characters starting at it are the first two characters of an added sequence (or the first character is a whole
+ * added sequence). A whole vector of positions is tested with a few lane-wise comparisons, so for sparse matches
+ * the automaton is entered only near actual matches.
+ *
+ * Vector loads need an array, so the fast path works for {@link CharArraySequence} and {@link Latin1Sequence} input,
+ * for char arrays matched by {@code Trie.match(char[], int, int, MatchHandler)} and for array-backed CharBuffers.
+ * Other characters sequences are scanned with a scalar loop over the bitset of characters that can start a match.
+ *
+ * Up to {@link VectorPrefilter#MAX_PREFIXES} distinct two-character prefixes (case variants included) are compared
+ * exactly, one comparison per prefix. Up to {@link VectorPrefilter#MAX_FINGERPRINT_PREFIXES} of them are spread over
+ * buckets and looked up by nibbles: four 16-entry tables map the low and the high nibble of the first and the second
+ * character to the buckets having a prefix with such a nibble, a position is a candidate if the four lookups share a
+ * bucket. That's four table lookups per vector however many prefixes there are, at the cost of false candidates,
+ * which only cost an automaton step. Only the low byte of a char is looked up, so texts beyond ISO-8859-1 get more
+ * false candidates. Dictionaries with more prefixes, or platforms with vectors of less than 16 lanes, are scanned
+ * with the scalar loop.
+ *
+ * @author Ruslan Sverchkov
+ */
+@ThreadSafe
+public final class VectorPrefilter implements Prefilter {
+
+    /**
+     * Max number of distinct two-character prefixes (case variants included) to compare exactly.
+     */
+    public static final int MAX_PREFIXES = 8;
+
+    /**
+     * Max number of distinct two-character prefixes (case variants included) to look up by nibbles.
+     */
+    public static final int MAX_FINGERPRINT_PREFIXES = 64;
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final int NIBBLES = 16;
+
+    private final long[] startCharacters;
+    private final boolean vectorized;
+    private final boolean fingerprinted;
+
+    // characters that are added sequences by themselves
+    private final short[] singles;
+    // two-character prefixes, firsts[i] followed by seconds[i]
+    private final short[] firsts;
+    private final short[] seconds;
+
+    // the same for ISO-8859-1 characters only
+    private final byte[] byteSingles;
+    private final byte[] byteFirsts;
+    private final byte[] byteSeconds;
+
+    // nibble tables of buckets: low and high nibble of the first character, the same for the second one; a table is
+    // repeated to fill a vector
+    private final short[][] fingerprint;
+    private final byte[][] byteFingerprint;
+
+    /**
+     * Get a factory creating vector prefilters.
+     *
+     * @return a prefilter factory
+     */
+    @Nonnull
+    public static PrefilterFactory factory() {
+        return VectorPrefilter::create;
+    }
+
+    /**
+     * Create a prefilter for the specified trie.
+     *
+     * @param trie an initialized trie
+     * @return a prefilter
+     * @throws NullPointerException  if trie is null
+     * @throws IllegalStateException if the trie is not initialized
+     */
+    @Nonnull
+    public static VectorPrefilter create(@Nonnull MutableTrie<?> trie) {
+        Validate.notNull(trie);
+        if (!trie.isBuilt()) {
+            throw new IllegalStateException("call build() first");
+        }
+        Set<Character> singles = new LinkedHashSet<>();
+        Set<Integer> pairs = new LinkedHashSet<>();
+        findPrefixes(trie, singles, pairs);
+        return new VectorPrefilter(trie.getStartCharacters(), singles, pairs);
+    }
+
+    @Override
+    public int next(@Nonnull CharSequence sequence, int fromIndex) {
+        if (sequence instanceof CharArraySequence) {
+            CharArraySequence chars = (CharArraySequence) sequence;
+            return next(chars.array, chars.offset + fromIndex, chars.offset + chars.length()) - chars.offset;
+        }
+        if (sequence instanceof Latin1Sequence) {
+            Latin1Sequence bytes = (Latin1Sequence) sequence;
+            return next(bytes.array, bytes.offset + fromIndex, bytes.offset + bytes.length()) - bytes.offset;
+        }
+        int index = fromIndex;
+        int length = sequence.length();
+        while (index < length && !MutableTrie.isSet(startCharacters, sequence.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Find the next candidate position in a range of a char array, the array is scanned in place. Called by
+     * {@code Trie.match(char[], int, int, MatchHandler)} and for {@link CharArraySequence} input.
+     *
+     * @param array     characters
+     * @param fromIndex the index to start from, inclusive
+     * @param toIndex   the end of the range, exclusive
+     * @return the smallest candidate index i >= fromIndex, toIndex if there is none
+     */
+    @Override
+    public int next(@Nonnull char[] array, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        if (fingerprinted) {
+            index = nextFingerprint(array, index, toIndex);
+        } else if (vectorized) {
+            int step = SHORTS.length();
+            // the second vector is loaded one character ahead
+            for (int bound = toIndex - step - 1; index <= bound; index += step) {
+                ShortVector first = ShortVector.fromCharArray(SHORTS, array, index);
+                ShortVector second = ShortVector.fromCharArray(SHORTS, array, index + 1);
+                VectorMask<Short> mask = SHORTS.maskAll(false);
+                for (short single : singles) {
+                    mask = mask.or(first.eq(single));
+                }
+                for (int i = 0; i < firsts.length; i++) {
+                    mask = mask.or(first.eq(firsts[i]).and(second.eq(seconds[i])));
+                }
+                if (mask.anyTrue()) {
+                    return index + mask.firstTrue();
+                }
+            }
+        }
+        // the tail shorter than a vector, conservative
+        while (index < toIndex && !MutableTrie.isSet(startCharacters, array[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Find the next candidate position in a range of a byte array in ISO-8859-1.
+     *
+     * @param array     characters encoded in ISO-8859-1
+     * @param fromIndex the index to start from, inclusive
+     * @param toIndex   the end of the range, exclusive
+     * @return the smallest candidate index i >= fromIndex, toIndex if there is none
+     */
+    int next(@Nonnull byte[] array, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        if (fingerprinted) {
+            index = nextFingerprint(array, index, toIndex);
+        } else if (vectorized) {
+            int step = BYTES.length();
+            for (int bound = toIndex - step - 1; index <= bound; index += step) {
+                ByteVector first = ByteVector.fromArray(BYTES, array, index);
+                ByteVector second = ByteVector.fromArray(BYTES, array, index + 1);
+                VectorMask<Byte> mask = BYTES.maskAll(false);
+                for (byte single : byteSingles) {
+                    mask = mask.or(first.eq(single));
+                }
+                for (int i = 0; i < byteFirsts.length; i++) {
+                    mask = mask.or(first.eq(byteFirsts[i]).and(second.eq(byteSeconds[i])));
+                }
+                if (mask.anyTrue()) {
+                    return index + mask.firstTrue();
+                }
+            }
+        }
+        while (index < toIndex && !MutableTrie.isSet(startCharacters, (char) (array[index] & 0xFF))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Find the next position where the nibble lookups share a bucket, see class comment.
+     *
+     * @param array     characters
+     * @param fromIndex the index to start from, inclusive
+     * @param toIndex   the end of the range, exclusive
+     * @return the smallest such index i >= fromIndex, the first index the tail starts at if there is none
+     */
+    private int nextFingerprint(@Nonnull char[] array, int fromIndex, int toIndex) {
+        ShortVector firstLow = ShortVector.fromArray(SHORTS, fingerprint[0], 0);
+        ShortVector firstHigh = ShortVector.fromArray(SHORTS, fingerprint[1], 0);
+        ShortVector secondLow = ShortVector.fromArray(SHORTS, fingerprint[2], 0);
+        ShortVector secondHigh = ShortVector.fromArray(SHORTS, fingerprint[3], 0);
+        int step = SHORTS.length();
+        int index = fromIndex;
+        for (int bound = toIndex - step - 1; index <= bound; index += step) {
+            ShortVector first = ShortVector.fromCharArray(SHORTS, array, index);
+            ShortVector second = ShortVector.fromCharArray(SHORTS, array, index + 1);
+            ShortVector buckets = first.and((short) 0x0F).selectFrom(firstLow)
+                    .and(first.lanewise(VectorOperators.LSHR, 4).and((short) 0x0F).selectFrom(firstHigh))
+                    .and(second.and((short) 0x0F).selectFrom(secondLow))
+                    .and(second.lanewise(VectorOperators.LSHR, 4).and((short) 0x0F).selectFrom(secondHigh));
+            VectorMask<Short> mask = buckets.compare(VectorOperators.NE, (short) 0);
+            if (mask.anyTrue()) {
+                return index + mask.firstTrue();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The same for a byte array in ISO-8859-1.
+     */
+    private int nextFingerprint(@Nonnull byte[] array, int fromIndex, int toIndex) {
+        ByteVector firstLow = ByteVector.fromArray(BYTES, byteFingerprint[0], 0);
+        ByteVector firstHigh = ByteVector.fromArray(BYTES, byteFingerprint[1], 0);
+        ByteVector secondLow = ByteVector.fromArray(BYTES, byteFingerprint[2], 0);
+        ByteVector secondHigh = ByteVector.fromArray(BYTES, byteFingerprint[3], 0);
+        int step = BYTES.length();
+        int index = fromIndex;
+        for (int bound = toIndex - step - 1; index <= bound; index += step) {
+            ByteVector first = ByteVector.fromArray(BYTES, array, index);
+            ByteVector second = ByteVector.fromArray(BYTES, array, index + 1);
+            ByteVector buckets = first.and((byte) 0x0F).selectFrom(firstLow)
+                    .and(first.lanewise(VectorOperators.LSHR, 4).and((byte) 0x0F).selectFrom(firstHigh))
+                    .and(second.and((byte) 0x0F).selectFrom(secondLow))
+                    .and(second.lanewise(VectorOperators.LSHR, 4).and((byte) 0x0F).selectFrom(secondHigh));
+            VectorMask<Byte> mask = buckets.compare(VectorOperators.NE, (byte) 0);
+            if (mask.anyTrue()) {
+                return index + mask.firstTrue();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Check if the vector search is used, see class comment.
+     *
+     * @return whether the vector search is used
+     */
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    /**
+     * Check if the vector search looks prefixes up by nibbles rather than compares them exactly, see class comment.
+     *
+     * @return whether prefixes are looked up by nibbles
+     */
+    boolean isFingerprinted() {
+        return fingerprinted;
+    }
+
+    /**
+     * Find all two-character prefixes of added sequences and all single-character added sequences, before
+     * conversion. A two-character prefix is not included if its first character is an added sequence by itself.
+     *
+     * @param trie    an initialized trie
+     * @param singles single-character added sequences
+     * @param pairs   two-character prefixes, each one packed into an int: first character in high bits, second one
+     *                in low bits
+     */
+    private static void findPrefixes(@Nonnull MutableTrie<?> trie, @Nonnull Set<Character> singles,
+                                     @Nonnull Set<Integer> pairs) {
+        Map<Character, List<Character>> preimages = findPreimages(trie);
+        trie.getRoot().forEachChild((char first, Node<?> child) -> {
+            for (char rawFirst : preimages.get(first)) {
+                if (child.isTerminal()) {
+                    singles.add(rawFirst);
+                } else {
+                    child.forEachChild((char second, Node<?> grandchild) -> {
+                        for (char rawSecond : preimages.get(second)) {
+                            pairs.add(rawFirst << 16 | rawSecond);
+                        }
+                        return true;
+                    });
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Find characters that are converted to the keys of the first two levels of the trie.
+     *
+     * @param trie an initialized trie
+     * @return characters before conversion by the keys they are converted to
+     */
+    @Nonnull
+    private static Map<Character, List<Character>> findPreimages(@Nonnull MutableTrie<?> trie) {
+        Map<Character, List<Character>> preimages = new HashMap<>();
+        trie.getRoot().forEachChild((char first, Node<?> child) -> {
+            preimages.put(first, new ArrayList<>());
+            child.forEachChild((char second, Node<?> grandchild) -> {
+                preimages.put(second, new ArrayList<>());
+                return true;
+            });
+            return true;
+        });
+        CharConverter converter = trie.getConverter();
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            List<Character> list = preimages.get(converter.convert((char) c));
+            if (list != null) {
+                list.add((char) c);
+            }
+        }
+        return preimages;
+    }
+
+    private VectorPrefilter(@Nonnull long[] startCharacters, @Nonnull Set<Character> singles,
+                            @Nonnull Set<Integer> pairs) {
+        this.startCharacters = startCharacters;
+        int prefixes = singles.size() + pairs.size();
+        // a nibble indexes a lane of a table
+        this.fingerprinted = prefixes > MAX_PREFIXES && prefixes <= MAX_FINGERPRINT_PREFIXES
+                && SHORTS.length() >= NIBBLES && BYTES.length() >= NIBBLES;
+        this.vectorized = prefixes <= MAX_PREFIXES || fingerprinted;
+        this.singles = new short[singles.size()];
+        this.byteSingles = new byte[(int) singles.stream().filter(c -> c <= 0xFF).count()];
+        int i = 0;
+        int k = 0;
+        for (char single : singles) {
+            this.singles[i++] = (short) single;
+            if (single <= 0xFF) {
+                this.byteSingles[k++] = (byte) single;
+            }
+        }
+        this.firsts = new short[pairs.size()];
+        this.seconds = new short[pairs.size()];
+        // characters above 255 never occur in ISO-8859-1 input
+        int bytePairs = (int) pairs.stream().filter(pair -> (pair >>> 16) <= 0xFF && (pair & 0xFFFF) <= 0xFF).count();
+        this.byteFirsts = new byte[bytePairs];
+        this.byteSeconds = new byte[bytePairs];
+        i = 0;
+        k = 0;
+        for (int pair : pairs) {
+            char first = (char) (pair >>> 16);
+            char second = (char) pair;
+            firsts[i] = (short) first;
+            seconds[i++] = (short) second;
+            if (first <= 0xFF && second <= 0xFF) {
+                byteFirsts[k] = (byte) first;
+                byteSeconds[k++] = (byte) second;
+            }
+        }
+        if (fingerprinted) {
+            int[][] tables = buildFingerprint(this.singles, firsts, seconds, Short.SIZE);
+            fingerprint = new short[tables.length][SHORTS.length()];
+            for (int t = 0; t < tables.length; t++) {
+                for (int lane = 0; lane < SHORTS.length(); lane++) {
+                    fingerprint[t][lane] = (short) tables[t][lane % NIBBLES];
+                }
+            }
+            tables = buildFingerprint(widen(byteSingles), widen(byteFirsts), widen(byteSeconds), Byte.SIZE);
+            byteFingerprint = new byte[tables.length][BYTES.length()];
+            for (int t = 0; t < tables.length; t++) {
+                for (int lane = 0; lane < BYTES.length(); lane++) {
+                    byteFingerprint[t][lane] = (byte) tables[t][lane % NIBBLES];
+                }
+            }
+        } else {
+            fingerprint = null;
+            byteFingerprint = null;
+        }
+    }
+
+    /**
+     * Spread the prefixes over buckets and build the nibble tables of buckets. Prefixes are sorted, so the ones
+     * sharing the first character tend to share a bucket, and single characters come first: a single character
+     * matches any second character, so the second character tables have its bucket for every nibble.
+     *
+     * @param singles     single-character added sequences
+     * @param firsts      first characters of two-character prefixes
+     * @param seconds     second characters of two-character prefixes
+     * @param bucketCount number of buckets, one per bit of a table entry
+     * @return four tables: low and high nibble of the first character, the same for the second one
+     */
+    @Nonnull
+    private static int[][] buildFingerprint(@Nonnull short[] singles, @Nonnull short[] firsts,
+                                            @Nonnull short[] seconds, int bucketCount) {
+        long[] prefixes = new long[singles.length + firsts.length];
+        for (int i = 0; i < singles.length; i++) {
+            prefixes[i] = (long) (singles[i] & 0xFFFF) << 16;
+        }
+        for (int i = 0; i < firsts.length; i++) {
+            // flagged in high bits, so single characters are sorted first
+            prefixes[singles.length + i] = 1L << 32 | (long) (firsts[i] & 0xFFFF) << 16 | seconds[i] & 0xFFFF;
+        }
+        Arrays.sort(prefixes);
+        int[][] tables = new int[4][NIBBLES];
+        for (int i = 0; i < prefixes.length; i++) {
+            int bucket = 1 << (int) ((long) i * bucketCount / prefixes.length);
+            int first = (int) (prefixes[i] >>> 16 & 0xFFFF);
+            int second = prefixes[i] >>> 32 == 0 ? -1 : (int) (prefixes[i] & 0xFFFF);
+            tables[0][first & 0x0F] |= bucket;
+            tables[1][first >>> 4 & 0x0F] |= bucket;
+            for (int nibble = 0; nibble < NIBBLES; nibble++) {
+                if (second < 0 || (second & 0x0F) == nibble) {
+                    tables[2][nibble] |= bucket;
+                }
+                if (second < 0 || (second >>> 4 & 0x0F) == nibble) {
+                    tables[3][nibble] |= bucket;
+                }
+            }
+        }
+        return tables;
+    }
+
+    @Nonnull
+    private static short[] widen(@Nonnull byte[] bytes) {
+        short[] shorts = new short[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            shorts[i] = (short) (bytes[i] & 0xFF);
+        }
+        return shorts;
+    }
+
+}
\ No newline at end of file
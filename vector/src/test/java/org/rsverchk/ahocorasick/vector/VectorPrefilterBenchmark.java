@@ -0,0 +1,148 @@
+package org.rsverchk.ahocorasick.vector;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.RunnerException;
+import org.rsverchk.ahocorasick.Trie;
+import org.rsverchk.ahocorasick.TrieBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks for {@link VectorPrefilter}: a small dictionary of security keywords matched against log-like text where
+ * matches are rare.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class VectorPrefilterBenchmark {
+
+    private static final String[] KEYWORDS = {"select", "union", "drop", "exec", "script", "passwd"};
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        public Trie<String> scalarTrie;
+        public Trie<String> vectorTrie;
+        public Trie<String> scalarIgnoreCaseTrie;
+        public Trie<String> vectorIgnoreCaseTrie;
+        public String text;
+        public CharArraySequence chars;
+        public Latin1Sequence bytes;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            scalarTrie = build(false, false);
+            vectorTrie = build(true, false);
+            // 4 case variants of each prefix, looked up by nibbles
+            scalarIgnoreCaseTrie = build(false, true);
+            vectorIgnoreCaseTrie = build(true, true);
+            Random random = new Random(42);
+            String[] words = {"GET", "/index.html", "HTTP/1.1", "200", "user-agent", "Mozilla/5.0", "referer",
+                    "2016-10-19T12:00:00", "INFO", "request", "completed", "in", "12ms"};
+            StringBuilder builder = new StringBuilder();
+            while (builder.length() < 100000) {
+                builder.append(words[random.nextInt(words.length)]).append(' ');
+                if (random.nextInt(1000) == 0) {
+                    builder.append(KEYWORDS[random.nextInt(KEYWORDS.length)]).append(' ');
+                }
+            }
+            text = builder.toString();
+            chars = new CharArraySequence(text.toCharArray());
+            bytes = new Latin1Sequence(text.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        private static Trie<String> build(boolean vector, boolean ignoreCase) {
+            TrieBuilder<String> builder = new TrieBuilder<>();
+            if (ignoreCase) {
+                builder.ignoreCase();
+            }
+            if (vector) {
+                builder.withPrefilter(VectorPrefilter.factory());
+            }
+            for (String keyword : KEYWORDS) {
+                builder.addCharSequence(keyword, keyword);
+            }
+            return builder.build();
+        }
+
+    }
+
+    public static void main(String ... args) throws IOException, RunnerException {
+        Main.main(args);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testScalar(MyState state, Blackhole blackhole) {
+        testTrie(state.scalarTrie, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testVector_Chars(MyState state, Blackhole blackhole) {
+        testTrie(state.vectorTrie, state.chars, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testVector_Bytes(MyState state, Blackhole blackhole) {
+        testTrie(state.vectorTrie, state.bytes, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testScalar_IgnoreCase(MyState state, Blackhole blackhole) {
+        testTrie(state.scalarIgnoreCaseTrie, state.text, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testVector_IgnoreCaseChars(MyState state, Blackhole blackhole) {
+        testTrie(state.vectorIgnoreCaseTrie, state.chars, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 0, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    @Measurement(iterations = 10)
+    @Warmup(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void testVector_IgnoreCaseBytes(MyState state, Blackhole blackhole) {
+        testTrie(state.vectorIgnoreCaseTrie, state.bytes, blackhole);
+    }
+
+    private void testTrie(Trie<String> trie, CharSequence text, Blackhole blackhole) {
+        AtomicLong counter = new AtomicLong();
+        trie.match(text, (int beginIndex, int endIndex, String payload) -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        blackhole.consume(counter);
+    }
+
+}
\ No newline at end of file
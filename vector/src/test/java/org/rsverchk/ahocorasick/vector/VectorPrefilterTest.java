@@ -0,0 +1,207 @@
+package org.rsverchk.ahocorasick.vector;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+import org.rsverchk.ahocorasick.MutableTrie;
+import org.rsverchk.ahocorasick.Trie;
+import org.rsverchk.ahocorasick.TrieBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link VectorPrefilter} class.
+ *
+ * @author Ruslan Sverchkov
+ */
+public class VectorPrefilterTest {
+
+    private static final String[] KEYWORDS = {"select", "union", "drop", "exec", "script", "passwd", "x"};
+
+    // test create() ------------------------------------------------------------------------------------------------
+
+    @Test(expected = NullPointerException.class)
+    public void testCreate_TrieIsNull() {
+        VectorPrefilter.create(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreate_NotInitialized() {
+        VectorPrefilter.create(new MutableTrie<>(c -> c));
+    }
+
+    @Test
+    public void testCreate_Vectorized() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("union", "union");
+        trie.addCharSequence("x", "x");
+        trie.init();
+
+        assertThat(VectorPrefilter.create(trie).isVectorized(), is(true));
+    }
+
+    @Test
+    public void testCreate_Fingerprinted() {
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        trie.addCharSequence("select", "select");
+        trie.addCharSequence("union", "union");
+        trie.addCharSequence("drop", "drop");
+        trie.init();
+        VectorPrefilter prefilter = VectorPrefilter.create(trie);
+
+        // 4 case variants of each prefix
+        assertThat(prefilter.isVectorized(), is(true));
+        assertThat(prefilter.isFingerprinted(), is(true));
+    }
+
+    @Test
+    public void testCreate_TooManyPrefixes() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        for (String keyword : manyKeywords()) {
+            trie.addCharSequence(keyword, keyword);
+        }
+        trie.init();
+
+        assertThat(VectorPrefilter.create(trie).isVectorized(), is(false));
+    }
+
+    // test next() --------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testNext() {
+        MutableTrie<String> trie = new MutableTrie<>(c -> c);
+        trie.addCharSequence("union", "union");
+        trie.addCharSequence("x", "x");
+        trie.init();
+        VectorPrefilter prefilter = VectorPrefilter.create(trie);
+        String text = ".".repeat(100) + "un" + ".".repeat(100) + "x" + ".".repeat(10) + "u";
+
+        // "u" is not followed by "n" at 213, but the tail is checked conservatively
+        for (CharSequence sequence : sequences(text)) {
+            assertThat(prefilter.next(sequence, 0), equalTo(100));
+            assertThat(prefilter.next(sequence, 101), equalTo(202));
+            assertThat(prefilter.next(sequence, 203), equalTo(213));
+            assertThat(prefilter.next(sequence, 214), equalTo(214));
+        }
+    }
+
+    @Test
+    public void testNext_Fingerprinted() {
+        MutableTrie<String> trie = new MutableTrie<>(Character::toLowerCase);
+        for (String keyword : KEYWORDS) {
+            trie.addCharSequence(keyword, keyword);
+        }
+        trie.init();
+        VectorPrefilter prefilter = VectorPrefilter.create(trie);
+        String text = "#".repeat(100) + "SeL" + "#".repeat(100);
+
+        assertThat(prefilter.isFingerprinted(), is(true));
+        for (CharSequence sequence : sequences(text)) {
+            // the high nibble of '#' is not the one of a prefix character, so it's never a candidate
+            assertThat(prefilter.next(sequence, 0), equalTo(100));
+            assertThat(prefilter.next(sequence, 103), equalTo(text.length()));
+        }
+    }
+
+    // test match() with prefilter ----------------------------------------------------------------------------------
+
+    @Test
+    public void testMatch() {
+        checkMatch(false, KEYWORDS);
+    }
+
+    @Test
+    public void testMatch_IgnoreCase() {
+        checkMatch(true, KEYWORDS);
+    }
+
+    @Test
+    public void testMatch_Fingerprinted() {
+        String[] keywords = new String[30];
+        for (int i = 0; i < keywords.length; i++) {
+            keywords[i] = (char) ('a' + i % 26) + Integer.toString(i);
+        }
+        checkMatch(false, keywords);
+        checkMatch(true, keywords);
+    }
+
+    @Test
+    public void testMatch_NotVectorized() {
+        checkMatch(false, manyKeywords());
+    }
+
+    private static String[] manyKeywords() {
+        String[] keywords = new String[100];
+        for (int i = 0; i < keywords.length; i++) {
+            // distinct two-character prefixes
+            keywords[i] = String.format("%02dk", i);
+        }
+        return keywords;
+    }
+
+    private void checkMatch(boolean ignoreCase, String... keywords) {
+        Random random = new Random(42);
+        String alphabet = "abcdeilnoprstuxyzSELCTXUNO0123456789 ";
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            if (random.nextInt(50) == 0) {
+                builder.append(keywords[random.nextInt(keywords.length)]);
+            } else {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+        String text = builder.toString();
+        Trie<String> expected = build(ignoreCase, false, keywords);
+        Trie<String> actual = build(ignoreCase, true, keywords);
+        for (CharSequence sequence : sequences(text)) {
+            assertThat(match(actual, sequence), equalTo(match(expected, text)));
+            assertThat(match(actual, sequence.subSequence(17, 9000)),
+                    equalTo(match(expected, text.substring(17, 9000))));
+        }
+        // the array is passed to the prefilter in place
+        List<Triple<Integer, Integer, String>> range = new ArrayList<>();
+        expected.match(text, 17, 9000, (beginIndex, endIndex, payload) ->
+                range.add(Triple.of(beginIndex, endIndex, payload)));
+        List<Triple<Integer, Integer, String>> arrayRange = new ArrayList<>();
+        actual.match(text.toCharArray(), 17, 9000 - 17, (beginIndex, endIndex, payload) ->
+                arrayRange.add(Triple.of(beginIndex, endIndex, payload)));
+        assertThat(arrayRange, equalTo(range));
+    }
+
+    private static Trie<String> build(boolean ignoreCase, boolean prefilter, String... keywords) {
+        TrieBuilder<String> builder = new TrieBuilder<>();
+        if (ignoreCase) {
+            builder.ignoreCase();
+        }
+        if (prefilter) {
+            builder.withPrefilter(VectorPrefilter.factory());
+        }
+        for (String keyword : keywords) {
+            builder.addCharSequence(keyword, keyword);
+        }
+        return builder.build();
+    }
+
+    private static List<Triple<Integer, Integer, String>> match(Trie<String> trie, CharSequence sequence) {
+        List<Triple<Integer, Integer, String>> result = new ArrayList<>();
+        trie.match(sequence, (beginIndex, endIndex, payload) -> result.add(Triple.of(beginIndex, endIndex, payload)));
+        return result;
+    }
+
+    private static CharSequence[] sequences(String text) {
+        // with offsets to check index translation
+        char[] chars = ("##" + text).toCharArray();
+        byte[] bytes = ("###" + text).getBytes(StandardCharsets.ISO_8859_1);
+        return new CharSequence[]{
+                text,
+                new CharArraySequence(chars, 2, text.length()),
+                new Latin1Sequence(bytes, 3, text.length())
+        };
+    }
+
+}
\ No newline at end of file